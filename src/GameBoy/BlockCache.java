@@ -0,0 +1,204 @@
+package GameBoy;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: BlockCache
+ * Description: Cache of pre-decoded basic blocks, indexed by the address of their first instruction.
+ * A block is a straight-line run of instructions which ends at the first instruction that can change the program
+ * counter or the interrupt state (jumps, calls, returns, restarts, HALT, STOP, DI, EI).
+ *
+ * Blocks are invalidated when memory they were decoded from is written to, or when the bank mapped under them
+ * is switched. Each block is at most MAX_INSTRUCTIONS long, so it can only ever reach into the page after the
+ * one it starts in, and never runs from one bank's range (0x0000, 0x4000, 0x8000, 0xA000, 0xC000) into the next.
+ */
+public class BlockCache {
+    static final int MAX_INSTRUCTIONS = 32;
+
+    private final Block[] blocks = new Block[0x10000];
+    private final boolean[] codePages = new boolean[0x100];  // 256 byte pages that are covered by at least one block
+
+    // Opcodes that end a block
+    private static final boolean[] terminators = new boolean[0x100];
+
+    static {
+        int[] ends = {
+                0xC3, 0xC2, 0xCA, 0xD2, 0xDA, 0xE9,         // JP
+                0x18, 0x20, 0x28, 0x30, 0x38,               // JR
+                0xCD, 0xC4, 0xCC, 0xD4, 0xDC,               // CALL
+                0xC7, 0xCF, 0xD7, 0xDF, 0xE7, 0xEF, 0xF7, 0xFF, // RST
+                0xC9, 0xC0, 0xC8, 0xD0, 0xD8, 0xD9,         // RET, RETI
+                0x76, 0x10, 0xF3, 0xFB                      // HALT, STOP, DI, EI
+        };
+        for (int opcode : ends) {
+            terminators[opcode] = true;
+        }
+    }
+
+    private long hits = 0;
+    private long misses = 0;
+    private long invalidations = 0;
+
+    /**
+     * A decoded run of instructions.
+     */
+    static class Block {
+        int startPC;
+        int length = 0;                 // Number of instructions
+        int cycles = 0;                 // Total cycles of every instruction in the block
+        boolean valid = true;
+        int[] opcodes = new int[MAX_INSTRUCTIONS];
+        Instructions[] instructions = new Instructions[MAX_INSTRUCTIONS];
+        byte[] arg0 = new byte[MAX_INSTRUCTIONS];
+        byte[] arg1 = new byte[MAX_INSTRUCTIONS];
+        int[] nextPC = new int[MAX_INSTRUCTIONS];  // PC after the instruction and its arguments are fetched
+    }
+
+    /**
+     * Fetches the block starting at pc, decoding it first if it isn't cached.
+     *
+     * @param pc      Address of the first instruction
+     * @param mmu     Memory to decode from
+     * @param opcodes Opcode table used to look up instructions
+     * @return The block, or null if not even the first instruction can be placed in a block.
+     */
+    Block getBlock(int pc, MMU mmu, Opcodes opcodes) {
+        Block block = blocks[pc];
+        if (block != null) {
+            hits++;
+            return block;
+        }
+        misses++;
+
+        block = decode(pc, mmu, opcodes);
+        if (block == null) {
+            return null;
+        }
+        blocks[pc] = block;
+        codePages[pc >> 8] = true;
+        codePages[((block.nextPC[block.length - 1] - 1) & 0xFFFF) >> 8] = true;
+        return block;
+    }
+
+    /**
+     * Decodes instructions starting at pc until a terminating instruction, an unknown opcode or the size limit.
+     * Blocks never run over the end of the 0x0000 - 0x7FFF or 0x8000 - 0xFFFF halves of the address space,
+     * since Registers.incPC does not carry the program counter across those boundaries. Nor do they run over the
+     * end of a range banks are switched in, so switching a bank only has to drop the blocks starting in its range.
+     */
+    private Block decode(int pc, MMU mmu, Opcodes opcodes) {
+        Block block = new Block();
+        block.startPC = pc;
+        int maxNextPC;
+        if (pc < 0x4000) {
+            maxNextPC = 0x3FFF;
+        } else if (pc < 0x8000) {
+            maxNextPC = 0x7FFF;
+        } else if (pc < 0xA000) {
+            maxNextPC = 0x9FFF;
+        } else if (pc < 0xC000) {
+            maxNextPC = 0xBFFF;
+        } else {
+            maxNextPC = 0xFFFF;
+        }
+
+        while (block.length < MAX_INSTRUCTIONS) {
+            int adr = pc;
+            int opcode = 0xFF & mmu.getMemVal(adr++);
+            if (opcode == 0xCB) {
+                if (adr > maxNextPC) break;
+                opcode = 0xCB00 + (0xFF & mmu.getMemVal(adr++));
+            }
+
+            Instructions instr = opcodes.getInstruction(opcode);
+            if (instr == null || adr + instr.numArgs > maxNextPC) {
+                // Leave unknown opcodes and boundary crossings to the plain interpreter
+                break;
+            }
+
+            int i = block.length;
+            block.opcodes[i] = opcode;
+            block.instructions[i] = instr;
+            block.arg0[i] = (instr.numArgs > 0) ? mmu.getMemVal(adr) : 0;
+            block.arg1[i] = (instr.numArgs > 1) ? mmu.getMemVal(adr + 1) : 0;
+            adr += instr.numArgs;
+            block.nextPC[i] = adr;
+            block.cycles += instr.cycles;
+            block.length++;
+            pc = adr;
+
+            if (opcode < 0x100 && terminators[opcode]) {
+                break;
+            }
+        }
+
+        return (block.length == 0) ? null : block;
+    }
+
+    /**
+     * Invalidates any block which may have been decoded from adr. Called for every memory write.
+     *
+     * @param adr Address being written to
+     */
+    void invalidate(int adr) {
+        int page = (adr & 0xFFFF) >> 8;
+        if (!codePages[page]) {
+            return;
+        }
+        // Blocks covering this page start in it or in the page before it
+        int start = (page == 0) ? 0 : (page - 1) << 8;
+        invalidateRange(start, (page + 1) << 8);
+        codePages[page] = false;
+    }
+
+    /**
+     * Invalidates every block starting within [start, end). Used when a bank is switched. Only pages that blocks were
+     * decoded from are searched, so switching a bank nothing has run from costs little.
+     *
+     * @param start First address, at the start of a page
+     * @param end   Address after the last address, at the start of a page
+     */
+    void invalidateRange(int start, int end) {
+        for (int page = start >> 8; page < end >> 8; page++) {
+            if (!codePages[page]) {
+                continue;
+            }
+            for (int adr = page << 8; adr < (page + 1) << 8; adr++) {
+                Block block = blocks[adr];
+                if (block != null) {
+                    block.valid = false;
+                    blocks[adr] = null;
+                    invalidations++;
+                }
+            }
+            // When called for a write, a block starting in the page before the range may still run into its first page
+            if (page != start >> 8) {
+                codePages[page] = false;
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * @return Fraction of block lookups which were served from the cache (0 - 1)
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return (lookups == 0) ? 0 : (double) hits / lookups;
+    }
+
+    public String toString() {
+        return String.format("Block cache: %d hits, %d misses, %d invalidations, %.2f%% hit rate",
+                hits, misses, invalidations, getHitRate() * 100);
+    }
+}
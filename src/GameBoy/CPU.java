@@ -1,10 +1,5 @@
 package GameBoy;
 
-import java.util.Scanner;
-
-import static GameBoy.Emulator.mmu;
-import static GameBoy.Emulator.regs;
-
 /**
  * Author: Benjamin Baird
  * Created on: 2018-08-28
@@ -27,21 +22,86 @@ import static GameBoy.Emulator.regs;
 // TODO: Interrupts. Interrupts can't happen during a CB opcode.
 
 public class CPU {
+    public static final int TABLE_CORE = 0;     // Dispatch through the Operation lambdas stored in Opcodes
+    public static final int SWITCH_CORE = 1;    // Dispatch through the switch statements in OpcodeSwitch
+
     private Opcodes opcodes = new Opcodes();
+    private int core = TABLE_CORE;
+    private MMU mmu;
+    private Registers regs;
     int clockCycles = 0;   // Number of cycles performed during each update
     final int maxCycles = 69905;
+    boolean debug = false;  // Prints every executed opcode when true
+
+    // Operand buffer shared by every instruction, so decoding an opcode never allocates.
+    // Operations must not hold on to it after they return.
+    private final byte[] args = new byte[2];
+
+    private BlockCache blockCache = null;   // Only created when block execution is enabled
+    private int lastBlockLength = 0;        // Instructions executed by the last call to runNextBlock
 
+    private boolean halted = false;         // Waiting in HALT for an enabled interrupt to be requested
+    private boolean haltBug = false;        // HALT was skipped with interrupts disabled, the next PC increment is lost
+
+    public CPU(MMU mmu, Registers regs) {
+        this.mmu = mmu;
+        this.regs = regs;
+    }
+
+    /**
+     * Chooses the interpreter core used to execute opcodes. Both cores share the Opcodes table for cycles and arguments.
+     *
+     * @param core TABLE_CORE or SWITCH_CORE
+     */
+    public void setCore(int core) {
+        if (core != TABLE_CORE && core != SWITCH_CORE) {
+            throw new IllegalArgumentException("Unknown interpreter core: " + core);
+        }
+        this.core = core;
+    }
+
+    public int getCore() {
+        return core;
+    }
+
+    /**
+     * Turns execution of cached basic blocks through runNextBlock on or off. The MMU is told about the cache so
+     * writes and bank switches invalidate stale blocks.
+     *
+     * @param enabled true to create a new block cache, false to drop it
+     */
+    public void setBlockCacheEnabled(boolean enabled) {
+        blockCache = enabled ? new BlockCache() : null;
+        mmu.setBlockCache(blockCache);
+    }
+
+    /**
+     * @return The block cache, or null if block execution isn't enabled
+     */
+    public BlockCache getBlockCache() {
+        return blockCache;
+    }
+
+    /**
+     * @return Number of instructions executed by the last call to runNextBlock
+     */
+    public int getLastBlockLength() {
+        return lastBlockLength;
+    }
 
     /**
      * Executes the next opcode
      * @return The number of cycles the opcode took.
      */
-    int runNextOpCode() {
-        byte[] args = new byte[2];
-
+    public int runNextOpCode() {
         // Load an opcode
         int opcode = 0xFF & mmu.getMemVal(regs.getPC() & 0xFFFF);
-        regs.incPC();
+        if (haltBug) {
+            // The byte after HALT is read twice
+            haltBug = false;
+        } else {
+            regs.incPC();
+        }
 
         // If CB prefix in opcode, need to load instruction suffix
         if (opcode == 0xCB) {
@@ -50,19 +110,25 @@ public class CPU {
             opcode = 0xCB00 + opcode;   // 0xCBnn
         }
 
-        if (Emulator.debug) {
-            System.out.print("---\n| Opcode: " + Integer.toHexString(opcode) + " " + opcodes.getName(opcode) + " ");
+        Instructions instr = opcodes.getInstruction(opcode);
+        if (instr == null) {
+            throw Opcodes.unknownOpcode(opcode);
         }
 
+        if (debug) {
+            System.out.print("---\n| Opcode: " + Integer.toHexString(opcode) + " " + instr.label + " ");
+        }
 
-        // Load arguments for opcode
-        int numArgs = opcodes.getNumArgs(opcode);
+        // Load arguments for opcode. Unused slots are cleared so a stale operand is never visible.
+        int numArgs = instr.numArgs;
+        args[0] = 0;
+        args[1] = 0;
         for (int i = 0; i < numArgs; i++) {
-            args[i] = (byte) (0xFF & mmu.getMemVal(regs.getPC() & 0xFFFF));
+            args[i] = mmu.getMemVal(regs.getPC() & 0xFFFF);
             regs.incPC();
         }
 
-        if (Emulator.debug) {
+        if (debug) {
             for (int i : args) {
                 System.out.print(Integer.toHexString(i) + " ");
             }
@@ -71,10 +137,114 @@ public class CPU {
             System.out.println("| " + mmu.toString());
         }
 
+        // Execute Instruction
+        dispatch(opcode, instr);
+        return instr.cycles;
+    }
+
+    /**
+     * Executes the basic block starting at PC, decoding and caching it first if needed. Interrupts and timers are
+     * only serviced between blocks, so this trades interrupt latency for speed.
+     * Falls back to runNextOpCode when no block can be formed at PC.
+     *
+     * @return The number of cycles the block took.
+     */
+    public int runNextBlock() {
+        if (haltBug) {
+            lastBlockLength = 1;
+            return runNextOpCode();
+        }
+        BlockCache.Block block = blockCache.getBlock(regs.getPC() & 0xFFFF, mmu, opcodes);
+        if (block == null) {
+            lastBlockLength = 1;
+            return runNextOpCode();
+        }
+
+        for (int i = 0; i < block.length; i++) {
+            regs.setPC((short) block.nextPC[i]);
+            args[0] = block.arg0[i];
+            args[1] = block.arg1[i];
+            dispatch(block.opcodes[i], block.instructions[i]);
+
+            if (!block.valid) {
+                // The block wrote over its own code, the remaining instructions must be decoded again
+                int cycles = 0;
+                for (int j = 0; j <= i; j++) {
+                    cycles += block.instructions[j].cycles;
+                }
+                lastBlockLength = i + 1;
+                return cycles;
+            }
+        }
+        lastBlockLength = block.length;
+        return block.cycles;
+    }
 
+    /**
+     * Runs a decoded instruction on the selected core. The operands must already be in args.
+     *
+     * @param opcode The opcode, 0xCBnn for CB prefixed opcodes
+     * @param instr  The opcode's entry in the Opcodes table
+     */
+    private void dispatch(int opcode, Instructions instr) {
+        if (opcode == 0x76) {
+            // HALT and STOP change the CPU's state, which Operations can't reach
+            halt();
+        } else if (opcode == 0x10) {
+            stop();
+        } else if (core == SWITCH_CORE) {
+            OpcodeSwitch.execute(opcode, regs, mmu, args);
+        } else {
+            instr.op.cmd(regs, mmu, args);
+        }
+    }
 
-        // Execute Instruction
-        return opcodes.execute(opcode, regs, mmu, args);
+    /**
+     * Executes HALT. The CPU stops until an enabled interrupt (IE & IF) is requested. If one is already pending the
+     * CPU doesn't halt at all, and with interrupts disabled the hardware then fails to increment PC past the next
+     * opcode (the HALT bug).
+     */
+    private void halt() {
+        if (isInterruptPending()) {
+            haltBug = !mmu.getInterrupts().isMasterEnabled();
+        } else {
+            halted = true;
+        }
     }
 
+    /**
+     * Executes STOP. On the hardware the CPU and LCD stop until a button is pressed. There's no joypad yet, so the CPU
+     * waits as in HALT instead, until an enabled interrupt is requested, without blocking the thread running it.
+     * STOP also resets the divider.
+     */
+    private void stop() {
+        mmu.setMemVal(0xFF04, (byte) 0);
+        if (!isInterruptPending()) {
+            halted = true;
+        }
+    }
+
+    /**
+     * Leaves HALT once an enabled interrupt has been requested. This happens even when the master interrupt switch is
+     * off, in which case execution carries on after HALT without servicing the interrupt.
+     */
+    void updateHalted() {
+        if (halted && isInterruptPending()) {
+            halted = false;
+        }
+    }
+
+    /**
+     * @return Whether an interrupt is both requested (0xFF0F) and enabled (0xFFFF)
+     */
+    boolean isInterruptPending() {
+        return (mmu.getMemVal(0xFFFF) & mmu.getMemVal(0xFF0F) & 0x1F) != 0;
+    }
+
+    /**
+     * @return Whether the CPU is waiting in HALT
+     */
+    public boolean isHalted() {
+        return halted;
+    }
 }
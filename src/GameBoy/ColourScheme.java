@@ -0,0 +1,74 @@
+package GameBoy;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: ColourScheme
+ * Description: The RGB colours the DMG's 4 shades are shown in, lightest first. The GPU folds the scheme into its
+ * palette lookup tables, so the choice costs nothing per pixel.
+ */
+public class ColourScheme {
+    // Shades of grey, as the emulator has always shown them
+    public static final ColourScheme GREYSCALE = new ColourScheme("grey", 0xFFFFFF, 0xC0C0C0, 0x404040, 0x000000);
+
+    // Green tinted, like the original GameBoy's screen
+    public static final ColourScheme CLASSIC_GREEN = new ColourScheme("green", 0x9BBC0F, 0x8BAC0F, 0x306230, 0x0F380F);
+
+    private final String name;
+    private final int[] shades;
+
+    /**
+     * @param name   Name of the scheme
+     * @param shades RGB of each of the 4 shades, lightest first
+     */
+    public ColourScheme(String name, int... shades) {
+        if (shades.length != 4) {
+            throw new IllegalArgumentException("A colour scheme needs 4 shades, got " + shades.length);
+        }
+        this.name = name;
+        this.shades = new int[4];
+        for (int i = 0; i < 4; i++) {
+            this.shades[i] = shades[i] & 0xFFFFFF;
+        }
+    }
+
+    /**
+     * Reads a colour scheme from its name, or from 4 RGB colours in hex separated by commas, lightest first.
+     *
+     * @param text "grey", "green", or a custom scheme such as "E0F8D0,88C070,346856,081820"
+     * @return The scheme
+     */
+    public static ColourScheme parse(String text) {
+        if (GREYSCALE.name.equalsIgnoreCase(text)) {
+            return GREYSCALE;
+        } else if (CLASSIC_GREEN.name.equalsIgnoreCase(text)) {
+            return CLASSIC_GREEN;
+        }
+
+        String[] colours = text.split(",");
+        int[] shades = new int[colours.length];
+        for (int i = 0; i < colours.length; i++) {
+            try {
+                shades[i] = Integer.parseInt(colours[i].trim().replaceFirst("^(#|0x)", ""), 16);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a colour scheme: " + text);
+            }
+        }
+        return new ColourScheme("custom", shades);
+    }
+
+    /**
+     * @param shade Shade (0 - 3), 0 being the lightest
+     * @return RGB of the shade
+     */
+    public int getRGB(int shade) {
+        return shades[shade];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String toString() {
+        return String.format("%s (%06X, %06X, %06X, %06X)", name, shades[0], shades[1], shades[2], shades[3]);
+    }
+}
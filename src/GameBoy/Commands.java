@@ -1,6 +1,5 @@
 package GameBoy;
 
-import java.util.Scanner;
 
 /**
  * Created on: 2018-12-23
@@ -102,6 +101,11 @@ public class Commands {
     public static byte addToA(Registers regs, byte val) {
         byte aVal = regs.getA();
         byte sum = (byte) (regs.getA() + val);
+        if (regs.isLazyFlags()) {
+            regs.deferFlags(Registers.FLAGS_ADD, aVal, val, sum);
+            regs.setA(sum);
+            return sum;
+        }
         regs.clearNFlag();
 
         // Set if carry from bit 3
@@ -137,6 +141,11 @@ public class Commands {
     public static byte sub(Registers regs, byte val) {
         byte a = regs.getA();
         byte result = (byte) (a - val);
+        if (regs.isLazyFlags()) {
+            regs.deferFlags(Registers.FLAGS_SUB, a, val, result);
+            regs.setA(result);
+            return result;
+        }
 
         // Z Flag
         if (result == 0) {
@@ -174,6 +183,10 @@ public class Commands {
      */
     public static void AND(Registers regs, byte s) {
         regs.setA((byte) (regs.getA() & s));
+        if (regs.isLazyFlags()) {
+            regs.deferFlags(Registers.FLAGS_AND, 0, 0, regs.getA());
+            return;
+        }
 
         if (regs.getA() == 0) {
             regs.setZFlag();
@@ -193,6 +206,10 @@ public class Commands {
      */
     public static void OR(Registers regs, byte s) {
         regs.setA((byte) (regs.getA() | s));
+        if (regs.isLazyFlags()) {
+            regs.deferFlags(Registers.FLAGS_OR, 0, 0, regs.getA());
+            return;
+        }
         if (regs.getA() == 0) {
             regs.setZFlag();
         } else {
@@ -211,6 +228,10 @@ public class Commands {
      */
     public static void XOR(Registers regs, byte s) {
         regs.setA((byte) (regs.getA() ^ s));
+        if (regs.isLazyFlags()) {
+            regs.deferFlags(Registers.FLAGS_OR, 0, 0, regs.getA());
+            return;
+        }
         if (regs.getA() == 0) {
             regs.setZFlag();
         } else {
@@ -243,6 +264,12 @@ public class Commands {
      * @return val + 1, if val > byte.MAX_VAL then overflowed value returned.
      */
     public static byte inc(Registers regs, byte val) {
+        if (regs.isLazyFlags()) {
+            byte result = (byte) (val + 1);
+            regs.deferFlags(Registers.FLAGS_INC, val, 0, result);
+            return result;
+        }
+
         // Half carry check
         // Truncates register value to first nibble and then adds 1 to see if there is a carry from bit 3 to 4
         if (((val & 0xf) + 0x1) >= 0x10) {
@@ -273,6 +300,12 @@ public class Commands {
      * @return val - 1
      */
     public static byte dec(Registers regs, byte val) {
+        if (regs.isLazyFlags()) {
+            byte result = (byte) (val - 1);
+            regs.deferFlags(Registers.FLAGS_DEC, val, 0, result);
+            return result;
+        }
+
         // H flag if first 4 bits borrows from upper 4 bits
         if ((val & 0xF) < (0x01)) {
             regs.setHFlag();
@@ -310,6 +343,10 @@ public class Commands {
     public static short addShorts(Registers regs, short a, short b) {
         short sum = 0;
         sum = (short) (a + b);
+        if (regs.isLazyFlags()) {
+            regs.deferFlags(Registers.FLAGS_ADD16, a, b, sum);
+            return sum;
+        }
 
         // Setting flags
         regs.clearNFlag();
@@ -394,6 +431,10 @@ public class Commands {
         byte upperNibble = (byte) ((reg << 4) & 0xF0);
         byte lowerNibble = (byte) ((reg >> 4) & 0x0F);
         byte result = (byte) (upperNibble + lowerNibble);
+        if (regs.isLazyFlags()) {
+            regs.deferFlags(Registers.FLAGS_SHIFT, 0, 0, result);
+            return result;
+        }
         if (result == 0) {
             regs.setZFlag();
         } else {
@@ -459,6 +500,10 @@ public class Commands {
 
         // Put MSB into LSB and C Flag
         shiftedByte += msb;
+        if (regs.isLazyFlags()) {
+            regs.deferFlags(Registers.FLAGS_SHIFT, 0, msb, shiftedByte);
+            return shiftedByte;
+        }
         if (msb == 0) {
             regs.clearCFlag();
         } else {
@@ -492,6 +537,10 @@ public class Commands {
 
         // Put old CFlag into LSB
         shiftedByte += cFlag;
+        if (regs.isLazyFlags()) {
+            regs.deferFlags(Registers.FLAGS_SHIFT, 0, msb, shiftedByte);
+            return shiftedByte;
+        }
 
         // Put MSB into CFlag
         if (msb == 0) {
@@ -527,6 +576,10 @@ public class Commands {
 
         // Put LSB into MSB and C Flag
         shiftedByte |= (byte) (lsb << 7);
+        if (regs.isLazyFlags()) {
+            regs.deferFlags(Registers.FLAGS_SHIFT, 0, lsb, shiftedByte);
+            return shiftedByte;
+        }
         if (lsb == 0) {
             regs.clearCFlag();
         } else {
@@ -560,6 +613,10 @@ public class Commands {
 
         // Put LSB into MSB and C Flag
         shiftedByte += (byte) (cFlag << 7);
+        if (regs.isLazyFlags()) {
+            regs.deferFlags(Registers.FLAGS_SHIFT, 0, lsb, shiftedByte);
+            return shiftedByte;
+        }
         if (lsb == 0) {
             regs.clearCFlag();
         } else {
@@ -589,6 +646,10 @@ public class Commands {
     public static byte sla(Registers regs, byte value) {
         byte msb = (byte) ((value >>> 7));
         byte shiftedByte = (byte) (value << 1);
+        if (regs.isLazyFlags()) {
+            regs.deferFlags(Registers.FLAGS_SHIFT, 0, msb, shiftedByte);
+            return shiftedByte;
+        }
 
         // Shift MSB into C Flag
         if (msb == 0) {
@@ -620,6 +681,10 @@ public class Commands {
     public static byte sra(Registers regs, byte value) {
         byte lsb = (byte) (value & 0x1);
         byte shiftedByte = (byte) (value >> 1);
+        if (regs.isLazyFlags()) {
+            regs.deferFlags(Registers.FLAGS_SHIFT, 0, lsb, shiftedByte);
+            return shiftedByte;
+        }
 
         // Shift LSB into C Flag
         if (lsb == 0) {
@@ -651,6 +716,10 @@ public class Commands {
     public static byte srl(Registers regs, byte value) {
         byte lsb = (byte) (value & 0x1);
         byte shiftedByte = (byte) ((value & 0xFF) >>> 1);
+        if (regs.isLazyFlags()) {
+            regs.deferFlags(Registers.FLAGS_SHIFT, 0, lsb, shiftedByte);
+            return shiftedByte;
+        }
 
         // Shift LSB into C Flag
         if (lsb == 0) {
@@ -882,24 +951,19 @@ public class Commands {
     }
 
     /**
-     * Stops CPU until an interrupt occurs
-     * TODO HALT function
+     * Stops CPU until an interrupt occurs.
+     * HALT needs the CPU's state, so CPU.dispatch executes it (see CPU.halt) and this is never called.
      */
     public static void halt() {
 
-        // Two nop's for GameBoy hardware bug
-        nop();
-        nop();
     }
 
     /**
-     * Halts CPU unitl a button is pressed. GB screen goes white with a single dark horizontal line.
-     * TODO stop function
+     * Halts CPU until a button is pressed. GB screen goes white with a single dark horizontal line.
+     * STOP needs the CPU's state, so CPU.dispatch executes it (see CPU.stop) and this is never called.
      */
     public static void stop() {
-        Scanner scanner = new Scanner(System.in);
-        System.out.println("Stopped... waiting for input.");
-        scanner.nextLine();
+
     }
 
     /**
@@ -907,7 +971,7 @@ public class Commands {
      * @param mmu Memory management unit containing interrupt register
      */
     public static void disableInterrupts(MMU mmu) {
-        Interrupts.masterInterruptSwitch = false;
+        mmu.getInterrupts().masterInterruptSwitch = false;
     }
 
     /**
@@ -916,7 +980,7 @@ public class Commands {
 
      */
     public static void enableInterrupts(MMU mmu) {
-        Interrupts.masterInterruptSwitch = true;
+        mmu.getInterrupts().masterInterruptSwitch = true;
     }
 
 }
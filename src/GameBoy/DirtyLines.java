@@ -0,0 +1,218 @@
+package GameBoy;
+
+import java.util.Arrays;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: DirtyLines
+ * Description: Keeps track of what each scanline in each frame buffer was drawn from, so the GPU can skip drawing a
+ * line which would come out the same as what the buffer already holds. A line is drawn from the LCD registers, the
+ * window's line counter, the rows of the tile maps it shows, the tiles in those rows and, with sprites on, OAM and the
+ * sprites' tiles. Writes to VRAM and OAM are numbered, and each tile, map row and OAM remember the number of their
+ * last write, so a line is unchanged if its registers match and none of what it's drawn from was written since.
+ *
+ * Frame buffers go back and forth between the GPU and the display, so a record is kept for each buffer. A frame
+ * with every line unchanged from the frame presented last isn't presented again.
+ *
+ * Counts are kept from the start, to show how much a game saves.
+ */
+public class DirtyLines {
+    private static final int RECORDS = 4;       // Enough for the buffers held by the GPU and the display together
+    private static final int HEIGHT = GPU.HEIGHT;
+
+    // Number of the last write to VRAM or OAM, and of the last write to each thing a line is drawn from
+    private long writes = 0;
+    private final long[] tileWrites = new long[TileCache.TILES];
+    private final long[] mapRowWrites = new long[64];   // 32 rows of 32 tiles in each of the 2 maps
+    private long oamWrites = 0;
+
+    // What each line in each buffer was drawn from
+    private final int[][] buffers = new int[RECORDS][];
+    private final long[][] registers = new long[RECORDS][HEIGHT];
+    private final int[][] windowLines = new int[RECORDS][HEIGHT];
+    private final long[][] drawnAt = new long[RECORDS][HEIGHT];  // Number of the last write when drawn, -1 if never
+    private int nextRecord = 0;     // Record given to the next buffer not seen before
+    private int current = -1;       // Record of the buffer being drawn
+    private int presented = -1;     // Record of the buffer presented last, -1 if it doesn't match anything any more
+
+    // The frame being drawn
+    private int frameLines = 0;             // Lines drawn or skipped
+    private boolean frameChanged = true;    // Whether any line differs from the frame presented last
+
+    private long linesDrawn = 0;
+    private long linesSkipped = 0;
+    private long framesPresented = 0;
+    private long framesSkipped = 0;
+
+    /**
+     * Records a write to VRAM or OAM. Called on every write.
+     *
+     * @param adr Address written to, 0x8000 - 0x9FFF or 0xFE00 - 0xFEFF
+     */
+    void write(int adr) {
+        writes++;
+        if (adr < 0x9800) {
+            tileWrites[(adr - 0x8000) >> 4] = writes;
+        } else if (adr < 0xA000) {
+            mapRowWrites[(adr - 0x9800) >> 5] = writes;
+        } else {
+            oamWrites = writes;
+        }
+    }
+
+    /**
+     * @param tile Tile number (0 - 383), tile 0 being at 0x8000
+     * @return Number of the last write to the tile
+     */
+    long getTileWrite(int tile) {
+        return tileWrites[tile];
+    }
+
+    /**
+     * @param rowAdr Address of the first tile number in a row of a tile map
+     * @return Number of the last write to the row
+     */
+    long getMapRowWrite(int rowAdr) {
+        return mapRowWrites[(rowAdr - 0x9800) >> 5];
+    }
+
+    /**
+     * @return Number of the last write to OAM
+     */
+    long getOAMWrite() {
+        return oamWrites;
+    }
+
+    /**
+     * Starts a frame, drawn into a buffer. Called at the start of each V-Blank, and when the GPU is created.
+     *
+     * @param frame The buffer the frame is drawn into
+     */
+    void startFrame(int[] frame) {
+        current = -1;
+        for (int i = 0; i < RECORDS; i++) {
+            if (buffers[i] == frame) {
+                current = i;
+            }
+        }
+        if (current < 0) {
+            // Nothing is known about what the buffer holds
+            current = nextRecord;
+            nextRecord = (nextRecord + 1) % RECORDS;
+            buffers[current] = frame;
+            Arrays.fill(drawnAt[current], -1);
+            if (presented == current) {
+                presented = -1;
+            }
+        }
+        frameLines = 0;
+        frameChanged = presented < 0;
+    }
+
+    /**
+     * Checks whether a line in the buffer being drawn already holds what it would be drawn as.
+     *
+     * @param line       Scanline (0 - 143)
+     * @param lineRegs   The LCD registers the line would be drawn with, packed into a long
+     * @param windowLine The window's line counter
+     * @param lastWrite  Number of the last write to anything the line would be drawn from
+     * @return True if the line can be left as it is
+     */
+    boolean isUnchanged(int line, long lineRegs, int windowLine, long lastWrite) {
+        frameLines++;
+        if (!matches(presented, line, lineRegs, windowLine, lastWrite)) {
+            frameChanged = true;
+        }
+        if (matches(current, line, lineRegs, windowLine, lastWrite)) {
+            linesSkipped++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean matches(int record, int line, long lineRegs, int windowLine, long lastWrite) {
+        return record >= 0 && registers[record][line] == lineRegs && windowLines[record][line] == windowLine
+                && drawnAt[record][line] >= lastWrite && drawnAt[record][line] >= 0;
+    }
+
+    /**
+     * Records what a line in the buffer being drawn was drawn from.
+     *
+     * @param line       Scanline (0 - 143)
+     * @param lineRegs   The LCD registers it was drawn with, packed into a long
+     * @param windowLine The window's line counter before it was drawn
+     */
+    void drawn(int line, long lineRegs, int windowLine) {
+        registers[current][line] = lineRegs;
+        windowLines[current][line] = windowLine;
+        drawnAt[current][line] = writes;
+        linesDrawn++;
+    }
+
+    /**
+     * Finishes the frame being drawn. Called at the start of V-Blank.
+     *
+     * @return Whether the frame should be presented, false if it's the same as the frame presented last
+     */
+    boolean endFrame() {
+        if (frameChanged || frameLines < HEIGHT) {
+            presented = current;
+            framesPresented++;
+            return true;
+        }
+        framesSkipped++;
+        return false;
+    }
+
+    /**
+     * Forgets what every buffer holds, so every line is drawn again. Called when the colours change.
+     */
+    void invalidate() {
+        for (long[] lines : drawnAt) {
+            Arrays.fill(lines, -1);
+        }
+        presented = -1;
+        frameChanged = true;
+    }
+
+    /**
+     * @return Scanlines drawn
+     */
+    public long getLinesDrawn() {
+        return linesDrawn;
+    }
+
+    /**
+     * @return Scanlines left as they were, since they would have been drawn the same
+     */
+    public long getLinesSkipped() {
+        return linesSkipped;
+    }
+
+    /**
+     * @return Fraction of scanlines skipped (0 - 1)
+     */
+    public double getSkipRatio() {
+        long lines = linesDrawn + linesSkipped;
+        return lines == 0 ? 0 : (double) linesSkipped / lines;
+    }
+
+    /**
+     * @return Frames handed to the display
+     */
+    public long getFramesPresented() {
+        return framesPresented;
+    }
+
+    /**
+     * @return Frames not handed to the display, being the same as the one before
+     */
+    public long getFramesSkipped() {
+        return framesSkipped;
+    }
+
+    public String toString() {
+        return String.format("Scanlines: %.1f%% skipped (%d drawn, %d skipped), %d frames presented, %d unchanged",
+                getSkipRatio() * 100, linesDrawn, linesSkipped, framesPresented, framesSkipped);
+    }
+}
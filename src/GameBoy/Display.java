@@ -0,0 +1,17 @@
+package GameBoy;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: Display
+ * Description: Destination of the frames drawn by the GPU. Either a window (Screen) or an in-memory
+ * FrameBuffer when running headless.
+ */
+public interface Display {
+    /**
+     * Hands over a completed frame. Called by the GPU at the start of each V-Blank.
+     *
+     * @param frame RGB of every pixel on the screen, 160 per row. The display owns it from now on.
+     * @return Array for the GPU to draw the next frame into, which the display no longer uses
+     */
+    int[] presentFrame(int[] frame);
+}
@@ -3,32 +3,83 @@ package GameBoy;
 import java.util.Scanner;
 
 /**
- * Executes the GameBoy emulator
+ * Executes the GameBoy emulator. Runs a single Machine with a window and debugger, or headless.
  * TODO: Test Interrupts
  * TODO: Audio
  * TODO: Remaining opcodes (DAA, etc)
  * TODO: Break up Commands.java into modular files (LD, ALU, etc).
  */
 public class Emulator {
-    static GPU gpu = new GPU();
-    static CPU cpu = new CPU();
-    static MMU mmu = new MMU();    // memory management unit
-    static Registers regs = new Registers();
+    // Run without a window, as fast as possible, enabled with -Dgameboy.headless=true (or -Djava.awt.headless=true).
+    // No AWT classes are loaded: frames are kept in a FrameBuffer and the debugger is never opened.
+    static boolean headless = Boolean.getBoolean("gameboy.headless") || Boolean.getBoolean("java.awt.headless");
+
+    static Machine machine = new Machine(createDisplay());
+    static MMU mmu = machine.getMMU();    // memory management unit
+    static Registers regs = machine.getRegisters();
+    static CPU cpu = machine.getCPU();
     static boolean inBios = false;
 
-    static Debugger debugger = new Debugger(mmu, regs);
-    static boolean debug = true;
+    static Debugger debugger = headless ? null : new Debugger(mmu, regs);
+    static boolean debug = !headless;
+    static boolean lazyFlags = true;  // Defer Z/N/H/C evaluation until the flags are read
 
+    // Interpreter core, chosen with -Dgameboy.core=switch or -Dgameboy.core=table
+    static int core = "switch".equals(System.getProperty("gameboy.core")) ? CPU.SWITCH_CORE : CPU.TABLE_CORE;
+
+    // Execute cached basic blocks instead of single instructions, enabled with -Dgameboy.blocks=true
+    static boolean blocks = Boolean.getBoolean("gameboy.blocks");
+
+    // Print emulation statistics about once a second, enabled with -Dgameboy.stats=true
+    static boolean stats = Boolean.getBoolean("gameboy.stats");
+
+    // Colours of the 4 shades, chosen with -Dgameboy.colours=grey, green, or 4 hex colours such as
+    // -Dgameboy.colours=E0F8D0,88C070,346856,081820 (lightest first)
+    static ColourScheme colours = ColourScheme.parse(System.getProperty("gameboy.colours", "grey"));
+
+    // Fast forward with -Dgameboy.turbo=true: run as fast as possible, drawing 1 frame in 8
+    static boolean turbo = Boolean.getBoolean("gameboy.turbo");
+
+    // Run at real time, parking between frames, with -Dgameboy.realtime=true. On by default with a window, unless
+    // fast forwarding.
+    static boolean realTime = Boolean.parseBoolean(
+            System.getProperty("gameboy.realtime", String.valueOf(!headless && !turbo)));
+    static FramePacer pacer = new FramePacer();
+
+    // Frames drawn, -Dgameboy.frameskip=N to draw every Nth frame, or -Dgameboy.frameskip=auto to skip frames only
+    // while behind real time. Emulation runs the same whichever frames are drawn.
+    static FrameSkip frameSkip = FrameSkip.parse(System.getProperty("gameboy.frameskip", turbo ? "8" : "1"));
+
+
+    /**
+     * Creates the display for the GPU. Kept in its own method so Screen, and with it Swing, is only loaded when used.
+     *
+     * @return A window, or an in-memory frame buffer when headless
+     */
+    private static Display createDisplay() {
+        if (headless) {
+            return new FrameBuffer();
+        }
+        return Screen.createWindow("SwoleBoy");
+    }
 
     public static void main(String[] args) {
-        String filename = "tetris.gb";
+        String filename = args.length > 0 ? args[0] : "tetris.gb";
 //        String filename = "C:\\Users\\Ben\\Dropbox\\GameBoy\\test-roms\\cpu_instrs\\individual\\03-op sp,hl.gb";
 //        String filename = "/Users/ben/Dropbox/GameBoy/test-roms/cpu_instrs/cpu_instrs.gb";
 //        String filename = "/Users/ben/Dropbox/GameBoy/test-roms/cpu_instrs/individual/01-special.gb";
 
         // Load ROM
-        mmu.load(filename);
+        machine.load(filename);
+        Runtime.getRuntime().addShutdownHook(new Thread(mmu::flushSaveRam));
         regs.setPC((short) 0x0);
+        mmu.setBiosMapped(inBios);
+        cpu.debug = debug;
+        regs.setLazyFlags(lazyFlags);
+        cpu.setCore(core);
+        machine.setBlocks(blocks);
+        machine.setSerialOut(System.out);
+        machine.getGPU().setColourScheme(colours);
 
 
 //        test();
@@ -39,61 +90,86 @@ public class Emulator {
                 step();
                 if (regs.getPC() == (short) 0x100) {
                     inBios = false;
+                    mmu.setBiosMapped(false);
                 }
             }
             cpu.clockCycles = 0;
         }
 
+        int frames = 0;
+        long secondStart = System.nanoTime();
+        int secondFrames = 0;
+        int maxBankSwitches = 0;
+        long totalBankSwitches = 0;
         while (true) {
             while ((cpu.clockCycles < cpu.maxCycles)) {
                 step();
             }
-            cpu.clockCycles = 0;
+            machine.endFrame();
+            long now = realTime ? pacer.pace(machine.getTotalCycles()) : System.nanoTime();
+            machine.getGPU().setRendering(frameSkip.drawNext(now, machine.getTotalCycles()));
+
+            int lastFrameBankSwitches = machine.getLastFrameBankSwitches();
+            maxBankSwitches = Math.max(maxBankSwitches, lastFrameBankSwitches);
+            totalBankSwitches += lastFrameBankSwitches;
+
+            // Unthrottled headless runs report how many frames are emulated per wall clock second
+            secondFrames++;
+            if (headless && !realTime && now - secondStart >= 1_000_000_000L) {
+                double fps = secondFrames * 1e9 / (now - secondStart);
+                System.out.printf("Headless: %.1f frames/s (%.1fx real time)%n", fps, fps / 59.73);
+                secondStart = now;
+                secondFrames = 0;
+            }
+
+            // Report the block cache hit rate, bank switching, skipped scanlines and frames, and frame jitter about once a
+            // second
+            if (++frames % 60 == 0) {
+                if (blocks) {
+                    System.out.println(cpu.getBlockCache());
+                }
+                if (stats) {
+                    System.out.printf("Bank switches: %.1f per frame, %d max%n", totalBankSwitches / 60.0, maxBankSwitches);
+                    System.out.println(machine.getGPU().getDirtyLines());
+                    System.out.println(frameSkip);
+                    if (realTime) {
+                        System.out.println(pacer);
+                    }
+                }
+                maxBankSwitches = 0;
+                totalBankSwitches = 0;
+            }
         }
     }
 
     /**
-     * Performs a single instruction, updating the timers, graphics, and handling any interrupts as needed.
+     * Performs a single instruction on the machine, stopping at the debug line and updating the debugger.
      */
     private static void step() {
-        if (regs.getPC() == (short) 0x100) {
+        if (regs.getPC() == (short) 0x100 && !headless) {
             debug = true;
+            cpu.debug = true;
             Scanner s = new Scanner(System.in);
             System.out.println("Found debug line");
             debugger.draw();
             s.nextLine();
         }
 
-        if (debug && debugger.isDisplayable()) {
+        if (debug && debugger != null && debugger.isDisplayable()) {
             debugger.draw();
         }
 
-        int cycles = cpu.runNextOpCode();
-
-
-        cpu.clockCycles += cycles;
-
-        if (mmu.getMemVal(0xFF02) == (byte) 0x81) {
-            System.out.println(mmu.getMemVal(0xFF01) & 0xFF);
-        }
-
-        // Timer updates
-        mmu.updateTimers(cycles);
-
-        // GPU Operates/Updates
-        gpu.updateGraphics(cycles);
-
-        // Handle Interrupts
-        Interrupts.handleInterrupts(mmu, regs);
+        machine.step();
     }
 
 
     private static void test() {
         // Test interrupts
-        Interrupts.masterInterruptSwitch = true;
+        Interrupts interrupts = mmu.getInterrupts();
+        interrupts.masterInterruptSwitch = true;
 
-        Interrupts.requestInterrupt(mmu, new Interrupt("V-Blank", "test", 0));
-        Interrupts.handleInterrupts(mmu, regs);
+        interrupts.requestInterrupt(mmu, new Interrupt("V-Blank", "test", 0));
+        interrupts.handleInterrupts(mmu, regs);
     }
 }
 
@@ -0,0 +1,192 @@
+package GameBoy;
+
+import java.util.Arrays;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: EventQueue
+ * Description: Keeps the machine's clock, counted in CPU cycles since power on, and the time of the next thing the
+ * hardware does by itself: GPU mode changes and scanlines, timer increments, and serial transfers. The CPU
+ * runs uninterrupted until the earliest of them, rather than the timers and GPU being polled after every instruction.
+ *
+ * Each kind of event is queued at most once, so the queue is a min-heap over a handful of event ids kept in
+ * primitive arrays. Scheduling an event that is already queued moves it.
+ */
+public class EventQueue {
+    // Event ids
+    static final int GPU = 0;       // Next GPU mode change or end of scanline
+    static final int TIMER = 1;     // Next increment of TIMA (0xFF05)
+    static final int SERIAL = 2;    // End of the serial transfer in progress
+    static final int COUNT = 3;
+
+    private long time = 0;                      // Current time in CPU cycles
+    private final long[] when = new long[COUNT];            // Time each queued event is due
+    private final int[] heap = new int[COUNT];              // Queued event ids, earliest first
+    private final int[] position = new int[COUNT];          // Index of each event in heap, -1 if not queued
+    private int size = 0;
+    private final EventHandler[] handlers = new EventHandler[COUNT];
+
+    public EventQueue() {
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * @param id      Event id
+     * @param handler Called when the event is due
+     */
+    void setHandler(int id, EventHandler handler) {
+        handlers[id] = handler;
+    }
+
+    /**
+     * @return Current time in CPU cycles
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Moves the clock forward. Events which become due are only run by runDue.
+     *
+     * @param cycles Number of cycles passed
+     */
+    void advance(long cycles) {
+        time += cycles;
+    }
+
+    /**
+     * @return Time the earliest queued event is due, or Long.MAX_VALUE if nothing is queued
+     */
+    long getNextTime() {
+        return size == 0 ? Long.MAX_VALUE : when[heap[0]];
+    }
+
+    /**
+     * @param except Event id to leave out
+     * @return Time the earliest queued event other than except is due, or Long.MAX_VALUE if there is none
+     */
+    long getNextTime(int except) {
+        long next = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            if (heap[i] != except) {
+                next = Math.min(next, when[heap[i]]);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * @param id Event id
+     * @return Time the event is due, if it's queued
+     */
+    long getTime(int id) {
+        return when[id];
+    }
+
+    /**
+     * Queues an event, or moves it if it's already queued.
+     *
+     * @param id Event id
+     * @param at Time the event is due
+     */
+    void schedule(int id, long at) {
+        when[id] = at;
+        int i = position[id];
+        if (i < 0) {
+            i = size++;
+            heap[i] = id;
+            position[id] = i;
+        }
+        siftDown(siftUp(i));
+    }
+
+    /**
+     * Removes an event from the queue, if it's queued.
+     *
+     * @param id Event id
+     */
+    void cancel(int id) {
+        int i = position[id];
+        if (i < 0) {
+            return;
+        }
+        position[id] = -1;
+        size--;
+        if (i < size) {
+            heap[i] = heap[size];
+            position[heap[i]] = i;
+            siftDown(siftUp(i));
+        }
+    }
+
+    /**
+     * @param id Event id
+     * @return Whether the event is queued
+     */
+    boolean isScheduled(int id) {
+        return position[id] >= 0;
+    }
+
+    /**
+     * Runs every event which is due, earliest first. Handlers are passed the time their event was due, which may be
+     * a few cycles ago, so events they schedule in turn don't drift.
+     */
+    void runDue() {
+        while (size > 0 && when[heap[0]] <= time) {
+            int id = heap[0];
+            cancel(id);
+            handlers[id].handle(when[id]);
+        }
+    }
+
+    private int siftUp(int i) {
+        int id = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (when[heap[parent]] <= when[id]) {
+                break;
+            }
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = id;
+        position[id] = i;
+        return i;
+    }
+
+    private void siftDown(int i) {
+        int id = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && when[heap[child + 1]] < when[heap[child]]) {
+                child++;
+            }
+            if (when[id] <= when[heap[child]]) {
+                break;
+            }
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = id;
+        position[id] = i;
+    }
+}
+
+
+/**
+ * Interface for the hardware run by an event
+ */
+@FunctionalInterface
+interface EventHandler {
+    /**
+     * Performs an event
+     *
+     * @param time Time the event was due, in CPU cycles
+     */
+    void handle(long time);
+}
@@ -0,0 +1,41 @@
+package GameBoy;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: FrameBuffer
+ * Description: Display which keeps the frame in memory instead of drawing it, for running without a screen.
+ * Uses no AWT classes, so it works on machines without a display.
+ */
+public class FrameBuffer implements Display {
+    public static final int WIDTH = 160;
+    public static final int HEIGHT = 144;
+
+    private int[] pixels = new int[WIDTH * HEIGHT];            // RGB of every pixel of the last frame
+    private long frames = 0;                                    // Number of frames completed
+
+    public int[] presentFrame(int[] frame) {
+        // Everything runs on the emulation thread, so the last frame can simply be swapped for the new one
+        int[] previous = pixels;
+        pixels = frame;
+        frames++;
+        return previous;
+    }
+
+    /**
+     * Gets the colour of a pixel in the last completed frame
+     *
+     * @param x Column, 0 - 159
+     * @param y Row, 0 - 143
+     * @return The RGB value of the pixel
+     */
+    public int getRGB(int x, int y) {
+        return pixels[y * WIDTH + x];
+    }
+
+    /**
+     * @return Number of frames completed
+     */
+    public long getFrames() {
+        return frames;
+    }
+}
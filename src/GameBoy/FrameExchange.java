@@ -0,0 +1,104 @@
+package GameBoy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: FrameExchange
+ * Description: Lock free triple buffer handing completed frames from the emulation thread to the thread showing them.
+ * Three frames circulate: the one being drawn, owned by the writer; the one being shown, owned by the reader; and the
+ * latest completed frame, waiting in the middle. Publishing swaps the writer's frame with the middle one and showing
+ * swaps the reader's, each with a single atomic exchange, so neither side ever waits for the other.
+ *
+ * A frame published before the last one was shown replaces it and is counted as dropped. A refresh with no new frame
+ * shows the last one again and is counted as duplicated.
+ */
+public class FrameExchange {
+    private static final int FRESH = 4;     // Set in middle when the frame there hasn't been shown yet
+
+    private final int[][] slots = new int[3][];
+    private final AtomicInteger middle = new AtomicInteger(1);  // Slot of the latest completed frame, and FRESH
+    private int back = 0;       // Slot of the frame being drawn, only used by the writer
+    private int front = 2;      // Slot of the frame being shown, only used by the reader
+
+    // Each is only written by one thread
+    private volatile long published = 0;
+    private volatile long dropped = 0;
+    private volatile long shown = 0;
+    private volatile long duplicated = 0;
+
+    /**
+     * @param size Length of each frame
+     */
+    public FrameExchange(int size) {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new int[size];
+        }
+    }
+
+    /**
+     * Publishes a completed frame. Called by the writer.
+     *
+     * @param frame The completed frame, which the reader owns from now on
+     * @return Frame to draw the next one into, which the reader no longer uses
+     */
+    public int[] publish(int[] frame) {
+        slots[back] = frame;
+        int previous = middle.getAndSet(back | FRESH);
+        if ((previous & FRESH) != 0) {
+            dropped++;
+        }
+        published++;
+        back = previous & 3;
+        return slots[back];
+    }
+
+    /**
+     * Takes the latest completed frame, if there is one that hasn't been taken yet. Called by the reader.
+     *
+     * @return The frame, which stays the reader's until the next call that returns a frame, or null if nothing has
+     * been published since the last call
+     */
+    public int[] acquire() {
+        if ((middle.get() & FRESH) == 0) {
+            duplicated++;
+            return null;
+        }
+        front = middle.getAndSet(front) & 3;
+        shown++;
+        return slots[front];
+    }
+
+    /**
+     * @return Frames published
+     */
+    public long getPublished() {
+        return published;
+    }
+
+    /**
+     * @return Frames replaced by a newer one before they were shown
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return Frames taken to be shown
+     */
+    public long getShown() {
+        return shown;
+    }
+
+    /**
+     * @return Refreshes with no new frame, showing the last one again
+     */
+    public long getDuplicated() {
+        return duplicated;
+    }
+
+    public String toString() {
+        return String.format("Frames: %d published, %d dropped, %d shown, %d duplicated",
+                published, dropped, shown, duplicated);
+    }
+}
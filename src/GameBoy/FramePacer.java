@@ -0,0 +1,155 @@
+package GameBoy;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: FramePacer
+ * Description: Holds the emulation to real time, 4194304 CPU cycles a second (59.73 frames/s). After each frame the
+ * thread parks, using no CPU, until the time the cycles run so far take on a real GameBoy. That time is worked out
+ * from the total cycles rather than added up frame by frame, so a late wake up makes the next wait shorter instead of
+ * building up. After falling well behind, it carries on from the current time rather than rushing to catch up.
+ *
+ * Keeps the time each of the last frames took, to report how far they strayed from their length on a GameBoy.
+ */
+public class FramePacer {
+    public static final int CLOCK_SPEED = 4_194_304;    // CPU cycles per second
+    public static final int FRAME_CYCLES = 70_224;      // CPU cycles in a frame, 154 scanlines of 456
+    public static final long FRAME_NANOS = cyclesToNanos(FRAME_CYCLES);    // Length of a frame, 59.73 frames/s
+    private static final long MAX_LAG = 10 * FRAME_NANOS;   // Behind by more gives up catching up
+    private static final int SAMPLES = 600;             // Frames kept for the jitter percentiles, 10s at real time
+
+    private final LongSupplier clock;   // Current time in nanoseconds
+    private final LongConsumer sleep;   // Waits for up to a number of nanoseconds
+
+    private long startNanos = -1;       // Time pacing started from
+    private long startCycles;           // Cycles run by then
+    private long lastNanos;             // Time the last frame ended
+    private long lastCycles;            // Cycles run by then
+
+    // How far each of the last frames was from its length on a GameBoy, in nanoseconds
+    private final long[] jitter = new long[SAMPLES];
+    private final long[] sorted = new long[SAMPLES];
+    private int samples = 0;
+    private int nextSample = 0;
+
+    private long frames = 0;
+    private long late = 0;          // Frames which ended after they were due
+    private long resyncs = 0;       // Times it fell too far behind to catch up
+
+    /**
+     * Creates a pacer using System.nanoTime, parking the thread to wait.
+     */
+    public FramePacer() {
+        this(System::nanoTime, null);
+    }
+
+    /**
+     * @param clock Current time in nanoseconds
+     * @param sleep Waits for up to a number of nanoseconds. May return early or late. null to park the thread.
+     */
+    public FramePacer(LongSupplier clock, LongConsumer sleep) {
+        this.clock = clock;
+        this.sleep = sleep != null ? sleep : nanos -> LockSupport.parkNanos(this, nanos);
+    }
+
+    /**
+     * Waits until the cycles run so far are due in real time. Called at the end of every frame.
+     *
+     * @param cycles Total CPU cycles run
+     * @return The time, from the clock
+     */
+    public long pace(long cycles) {
+        long now = clock.getAsLong();
+        if (startNanos < 0) {
+            startNanos = now;
+            startCycles = cycles;
+            lastNanos = now;
+            lastCycles = cycles;
+            return now;
+        }
+
+        long due = startNanos + cyclesToNanos(cycles - startCycles);
+        if (now < due) {
+            // Parking may end early, and always ends a little late
+            do {
+                sleep.accept(due - now);
+                now = clock.getAsLong();
+            } while (now < due);
+        } else if (now - due > MAX_LAG) {
+            startNanos = now;
+            startCycles = cycles;
+            resyncs++;
+        } else {
+            late++;
+        }
+
+        jitter[nextSample] = Math.abs((now - lastNanos) - cyclesToNanos(cycles - lastCycles));
+        nextSample = (nextSample + 1) % SAMPLES;
+        samples = Math.min(samples + 1, SAMPLES);
+        frames++;
+        lastNanos = now;
+        lastCycles = cycles;
+        return now;
+    }
+
+    /**
+     * Starts pacing again from the next frame, as after a pause, rather than catching up on the time since the last.
+     */
+    public void reset() {
+        startNanos = -1;
+    }
+
+    /**
+     * @param cycles CPU cycles
+     * @return How long the cycles take on a GameBoy, in nanoseconds
+     */
+    static long cyclesToNanos(long cycles) {
+        // Whole seconds apart from the rest, as cycles * 10^9 would overflow after 36 minutes
+        return cycles / CLOCK_SPEED * 1_000_000_000L + cycles % CLOCK_SPEED * 1_000_000_000L / CLOCK_SPEED;
+    }
+
+    /**
+     * @param percentile Percentile (0 - 100)
+     * @return How far frames were from their length on a GameBoy at the percentile, over the last 600 frames, in
+     * nanoseconds
+     */
+    public long getJitter(double percentile) {
+        if (samples == 0) {
+            return 0;
+        }
+        System.arraycopy(jitter, 0, sorted, 0, samples);
+        Arrays.sort(sorted, 0, samples);
+        int index = (int) Math.ceil(percentile / 100 * samples) - 1;
+        return sorted[Math.max(0, Math.min(index, samples - 1))];
+    }
+
+    /**
+     * @return Frames paced
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return Frames which ended after they were due, with no time to wait
+     */
+    public long getLate() {
+        return late;
+    }
+
+    /**
+     * @return Times it fell too far behind to catch up, and carried on from the current time
+     */
+    public long getResyncs() {
+        return resyncs;
+    }
+
+    public String toString() {
+        return String.format("Frame jitter: %.2f ms median, %.2f ms 99th percentile, %.2f ms max, %d late, %d resyncs",
+                getJitter(50) / 1e6, getJitter(99) / 1e6, getJitter(100) / 1e6, late, resyncs);
+    }
+}
@@ -0,0 +1,120 @@
+package GameBoy;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: FrameSkip
+ * Description: Decides which frames the GPU draws. A frame that isn't drawn isn't presented either, saving the time
+ * spent on both, while the CPU, timers, interrupts and the GPU's timing run exactly as before. Either every Nth frame
+ * is drawn, for fast forwarding, or frames are only skipped while the emulation is behind real time.
+ */
+public class FrameSkip {
+    private static final int MAX_SKIPPED = 8;           // Skipping automatically still draws at least 1 frame in 9
+    private static final int MAX_LAG = 10;              // Frames behind real time before giving up catching up
+
+    private final int interval;     // Draw every Nth frame, 0 to skip automatically
+    private long startNanos = -1;   // Time real time is measured from, in nanoseconds
+    private long startCycles;       // CPU cycles run by then
+    private long frames = 0;        // Frames ended, when drawing every Nth
+    private int sinceDrawn = 0;     // Frames skipped in a row
+
+    private long drawn = 0;
+    private long skipped = 0;
+
+    /**
+     * @param interval Draw every Nth frame (1 draws every frame), or 0 to skip frames only while behind real time
+     */
+    public FrameSkip(int interval) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("Frame skip interval can't be negative: " + interval);
+        }
+        this.interval = interval;
+    }
+
+    /**
+     * Reads a frame skip setting.
+     *
+     * @param text "auto", or N to draw every Nth frame
+     * @return The frame skip
+     */
+    public static FrameSkip parse(String text) {
+        if ("auto".equalsIgnoreCase(text.trim())) {
+            return new FrameSkip(0);
+        }
+        try {
+            int interval = Integer.parseInt(text.trim());
+            if (interval > 0) {
+                return new FrameSkip(interval);
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Not a frame skip setting: " + text);
+    }
+
+    /**
+     * Decides whether to draw the next frame. Called at the end of every frame.
+     *
+     * @param now    Current time in nanoseconds, from System.nanoTime
+     * @param cycles Total CPU cycles run, which say how far the emulation should be in real time
+     * @return true to draw the next frame
+     */
+    public boolean drawNext(long now, long cycles) {
+        boolean draw;
+        if (interval > 0) {
+            draw = ++frames % interval == 0;
+        } else {
+            if (startNanos < 0) {
+                startNanos = now;
+                startCycles = cycles;
+            }
+            long behind = now - (startNanos + FramePacer.cyclesToNanos(cycles - startCycles));
+            if (behind > MAX_LAG * FramePacer.FRAME_NANOS) {
+                // Too far behind to catch up, don't keep skipping to make up for it
+                startNanos = now;
+                startCycles = cycles;
+                behind = 0;
+            } else if (behind < -FramePacer.FRAME_NANOS) {
+                // Running ahead doesn't build up credit against falling behind later
+                startNanos = now + FramePacer.FRAME_NANOS;
+                startCycles = cycles;
+                behind = -FramePacer.FRAME_NANOS;
+            }
+            draw = behind < FramePacer.FRAME_NANOS || sinceDrawn >= MAX_SKIPPED;
+        }
+
+        if (draw) {
+            drawn++;
+            sinceDrawn = 0;
+        } else {
+            skipped++;
+            sinceDrawn++;
+        }
+        return draw;
+    }
+
+    /**
+     * @return Every Nth frame is drawn, or 0 if frames are only skipped while behind real time
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return Frames drawn
+     */
+    public long getDrawn() {
+        return drawn;
+    }
+
+    /**
+     * @return Frames skipped
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public String toString() {
+        return String.format("Frame skip (%s): %d drawn, %d skipped",
+                interval > 0 ? "1 in " + interval : "auto", drawn, skipped);
+    }
+}
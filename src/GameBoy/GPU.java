@@ -1,8 +1,6 @@
 package GameBoy;
 
-import javax.swing.*;
-
-import static GameBoy.Emulator.mmu;
+import java.util.Arrays;
 
 /**
  * Author: Benjamin Baird
@@ -12,12 +10,10 @@ import static GameBoy.Emulator.mmu;
  * Resolution of 160 x 144, with 144 visible scanlines and 8 invisible scanlines used during the V-Blank period.
  * The current scanline is stored in adr 0xFF44.
  * It takes 456 cpu clock cycles to draw one scanline
- * TODO Change Tile/Sprites to load only the needed row of it's bitmap, for better efficiency.
  */
 public class GPU {
-    JFrame window = new JFrame("SwoleBoy");
-
-    Screen screen = new Screen(160, 144);
+    private MMU mmu;
+    Display screen;     // Where finished frames are sent
 
     int lcdc = 0xFF40; /* LCD control register
                     Bit 0:
@@ -93,134 +89,341 @@ public class GPU {
     int bg_data_0 = 0x9800; // ($9800 - $9BFF) for BG map 0
     int bg_data_1 = 0x9C00; // ($9C00 - $9FFF) for Bg map 1
 
-    Pixel[][] mainScreenPixels = new Pixel[144][160];
+    public static final int WIDTH = 160;
+    public static final int HEIGHT = 144;
 
+    private ColourScheme colourScheme = ColourScheme.GREYSCALE;     // RGB of each of the 4 shades
 
-    public GPU() {
-        window.getContentPane().add(screen);
-        window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        window.setSize(160, 144);
-        window.setVisible(true);
+    private int[] frame = new int[WIDTH * HEIGHT];  // Frame being drawn, RGB of every pixel row by row
 
-        for (int i = 0; i < 144; i++) {
-            for (int j = 0; j < 160; j++) {
-                mainScreenPixels[i][j] = new Pixel();
-            }
-        }
+    // RGB of each colour number (0 - 3) under BGP, OBP0 and OBP1. Only rebuilt when the palette register is written
+    // or the colour scheme changes.
+    private final int[] bgColours = new int[4];
+    private final int[] obj0Colours = new int[4];
+    private final int[] obj1Colours = new int[4];
+
+    private final byte[] bgLine = new byte[WIDTH];     // Colour number of each BG/window pixel on the line being drawn
+    private int windowLine = 0;     // Row of the window drawn next. Only counts lines the window was shown on.
+
+    // Frames can be left undrawn, and not presented, to save time. The GPU's timing is the same either way.
+    private boolean rendering = true;       // Whether to draw frames, from the next one
+    private boolean drawingFrame = true;    // Whether the frame in progress is being drawn
+
+    // Sprites on the line being drawn, found by the OAM scan. Hardware shows at most 10 per line.
+    private static final int MAX_LINE_SPRITES = 10;
+    private final int[] lineSprites = new int[MAX_LINE_SPRITES];   // Sort keys, in the order they're drawn
+
+    // Interrupts the GPU requests, shared rather than created for every request
+    private static final Interrupt VBLANK_INTERRUPT = new Interrupt("V-Blank", "GPU", 0);
+    private static final Interrupt HBLANK_STAT_INTERRUPT =
+            new Interrupt("LCD Interrupt", "Switched to mode 0 (H-Blank)", 1);
+    private static final Interrupt VBLANK_STAT_INTERRUPT =
+            new Interrupt("LCD Interrupt", "Switched to mode 1 (V-Blank)", 1);
+    private static final Interrupt OAM_STAT_INTERRUPT = new Interrupt("LCD Interrupt", "Switched to Mode 2 (OAM)", 1);
+    private static final Interrupt COINCIDENCE_INTERRUPT =
+            new Interrupt("LCD Interrupt", "Coincidence (0xFF44 == 0xFF45)", 1);
+
+    private final TileCache tiles;     // Decoded tiles, dropped as VRAM is written to
+    private final DirtyLines dirtyLines = new DirtyLines();    // What each line was drawn from, to skip unchanged ones
+
+
+    /**
+     * @param mmu    Memory holding VRAM, OAM and the LCD registers
+     * @param screen Where finished frames are sent. A FrameBuffer keeps the GPU free of any AWT classes.
+     */
+    public GPU(MMU mmu, Display screen) {
+        this.mmu = mmu;
+        this.screen = screen;
+        this.tiles = new TileCache(mmu);
+        setColourScheme(colourScheme);
+        dirtyLines.startFrame(frame);
+        startTiming();
     }
 
-    int clockCounter = 0; // Keeps track of the number of CPU cycles passed, to keep CPU/GPU in sync
+    /*
+     * Timing. Each scanline takes 456 CPU cycles: mode 2 (OAM search) for 80, mode 3 (transfer to the LCD) for 172
+     * and mode 0 (H-Blank) for the rest. Lines 144 - 153 are the V-Blank period, mode 1 throughout.
+     *
+     * The GPU runs lazily. It only catches up to the CPU's time, performing the mode changes and drawing the scanlines
+     * due since it last ran, when:
+     *
+     *      1. The CPU reads STAT or LY, or writes to a register, VRAM or OAM the GPU draws from. Lines before the
+     *      write are drawn with the old values, so raster effects still work.
+     *
+     *      2. An interrupt it requests is due: V-Blank, and the STAT interrupts enabled in STAT. Its event is only
+     *      scheduled for these, so a game that leaves the GPU alone mid-frame stops the CPU once a frame.
+     */
+    private static final int MODE2_CYCLES = 80;
+    private static final int MODE3_CYCLES = 172;
+    private static final int LINE_CYCLES = 456;
+    private long lineStart = 0;                     // Time the current scanline started, in CPU cycles
+    private long nextChange = Long.MAX_VALUE;       // Time of the next mode change, Long.MAX_VALUE while the LCD is off
 
     public boolean isLCDEnabled() {
-        return BitUtils.testBit(mmu.getMemVal(this.lcdc), 7);
+        return BitUtils.testBit(mmu.loadIO(this.lcdc), 7);
     }
 
     /**
-     * Performs a batch update of the graphics after every 456 CPU cycles.
-     *
-     * @param cycles The number of CPU cycles of the last OP code performed
+     * @return The mode in the LCD status register (0 - 3)
      */
-    public void updateGraphics(int cycles) {
-        updateLCDStatus();
+    private int getLCDMode() {
+        return mmu.loadIO(this.stat) & 0x3;
+    }
 
-        if (isLCDEnabled()) {
-            clockCounter += cycles;
-        } else {
-            // No need to do anything if LCD isn't enabled
-            return;
+    /**
+     * Hooks the GPU up to the machine's events and to accesses to its registers and memory, and starts the LCD if the
+     * registers say it's on.
+     */
+    private void startTiming() {
+        mmu.getEvents().setHandler(EventQueue.GPU, time -> {
+            catchUp(time);
+            scheduleInterrupt();
+        });
+
+        mmu.setIOReadSync(this.stat, this::catchUp);
+        mmu.setIOReadSync(this.ly, this::catchUp);
+
+        mmu.setIOWriteHandler(this.lcdc, (adr, val) -> {
+            catchUp();
+            boolean wasEnabled = isLCDEnabled();
+            mmu.storeIO(this.lcdc, val);
+            if (isLCDEnabled() != wasEnabled) {
+                resetLCD();
+            }
+        });
+        mmu.setIOWriteHandler(this.stat, (adr, val) -> {
+            // The mode and coincidence flag are read only
+            catchUp();
+            mmu.storeIO(this.stat, (byte) ((val & 0xF8) | (mmu.loadIO(this.stat) & 0x07)));
+            scheduleInterrupt();
+        });
+        mmu.setIOWriteHandler(this.lyc, (adr, val) -> {
+            catchUp();
+            mmu.storeIO(this.lyc, val);
+            LCDCoincidenceCheck();
+            scheduleInterrupt();
+        });
+        for (int adr : new int[]{this.scroll_y, this.scroll_x, this.wy, this.wx}) {
+            mmu.setIOWriteHandler(adr, (a, val) -> {
+                catchUp();
+                mmu.storeIO(a, val);
+            });
         }
+        mmu.setIOWriteHandler(this.bgp, (adr, val) -> {
+            catchUp();
+            mmu.storeIO(adr, val);
+            setColours(bgColours, val);
+        });
+        mmu.setIOWriteHandler(this.obp0, (adr, val) -> {
+            catchUp();
+            mmu.storeIO(adr, val);
+            setColours(obj0Colours, val);
+        });
+        mmu.setIOWriteHandler(this.obp1, (adr, val) -> {
+            catchUp();
+            mmu.storeIO(adr, val);
+            setColours(obj1Colours, val);
+        });
+        mmu.setVideoWriteHandler((adr, val) -> {
+            catchUp();
+            mmu.storeVideo(adr, val);
+            tiles.invalidate(adr);
+            dirtyLines.write(adr);
+        });
+
+        resetLCD();
+    }
 
-        // It takes the GPU 456 CPU cycles to draw one scanline. Don't draw anything if "GPU" isn't ready.
-        if (clockCounter >= 456) {
-            clockCounter = 0;
+    /**
+     * Fills in the RGB of each colour number under a palette.
+     *
+     * @param colours Lookup table to fill, indexed by colour number
+     * @param palette Palette register's value, 2 bits of shade per colour number with colour 0 in the lowest bits
+     */
+    private void setColours(int[] colours, byte palette) {
+        for (int i = 0; i < 4; i++) {
+            colours[i] = colourScheme.getRGB((palette >> (i * 2)) & 0x3);
+        }
+    }
 
-            // Scanline increments before drawing a scanline
-            mmu.incScanline();
+    /**
+     * Changes the colours the shades are shown in, from the next pixel drawn.
+     *
+     * @param scheme RGB of each shade
+     */
+    public void setColourScheme(ColourScheme scheme) {
+        colourScheme = scheme;
+        setColours(bgColours, mmu.loadIO(this.bgp));
+        setColours(obj0Colours, mmu.loadIO(this.obp0));
+        setColours(obj1Colours, mmu.loadIO(this.obp1));
+        dirtyLines.invalidate();
+    }
 
-            // Move to next scanline
-            int curScanline = mmu.getMemVal(this.ly) & 0xFF;
+    public ColourScheme getColourScheme() {
+        return colourScheme;
+    }
 
-            // V-Blank period, send interrupt
-            if (curScanline == 144) {
-                Interrupts.requestInterrupt(mmu, new Interrupt("V-Blank", "GPU", 0));
+    /**
+     * Turns drawing on or off, from the next frame. Frames that aren't drawn aren't presented either, so the last one
+     * drawn stays on the screen. LY, STAT and the interrupts are the same either way.
+     *
+     * @param rendering false to skip drawing frames
+     */
+    public void setRendering(boolean rendering) {
+        this.rendering = rendering;
+    }
 
-            } else if (curScanline > 153) {
-                // Finished all scanlines, reset
-                mmu.setMemVal(this.ly, (byte) 0);
+    public boolean isRendering() {
+        return rendering;
+    }
 
-            } else if (curScanline < 144) {
-                // Draw visible scanline
-                drawScanline();
-            }
-        }
+    /**
+     * Brings the GPU up to the current time.
+     */
+    private void catchUp() {
+        catchUp(mmu.getEvents().getTime());
     }
 
     /**
-     * Sets the mode of LCD status register to val, if this changes the mode
-     * an interrupt will be attempted.
+     * Performs every mode change due by a time, drawing each scanline once it has been transferred.
      *
-     * @param mode Mode to change the lcd to ( 0 - 3)
+     * @param time Time in CPU cycles
      */
-    public void setLCDMode(byte mode) {
-        byte lcdStatus = mmu.getMemVal(this.stat);
-        byte lcdMode = (byte) (lcdStatus & 0x3);
-
-        if (lcdMode != mode) {
-            // When LCD status changes to 0, 1, or 2 an LCD interrupt Request can happen, set bits in LCD stat
-            if (mode == 0) {
-                if (BitUtils.testBit(lcdStatus, 3)) {
-                    Interrupts.requestInterrupt(mmu, new Interrupt("LCD Interrupt", "Switched to mode 0 (H-Blank)", 1));
-                }
-                mmu.setMemVal(this.stat, (byte) (((lcdStatus & 0x4) + 0xB)));
-            } else if (mode == 1) {
-                if (BitUtils.testBit(lcdStatus, 4)) {
-                    Interrupts.requestInterrupt(mmu, new Interrupt("LCD Interrupt", "Switched to mode 1 (V-Blank)", 1));
-                }
-                mmu.setMemVal(this.stat, (byte) (((lcdStatus & 0x4) + 0x11)));
-            } else if (mode == 2) {
-                if (BitUtils.testBit(lcdStatus, 5)) {
-                    Interrupts.requestInterrupt(mmu, new Interrupt("LCD Interrupt", "Switched to Mode 2 (OAM)", 1));
-                }
-                mmu.setMemVal(this.stat, (byte) (((lcdStatus & 0x4) + 0x23)));
-            } else if (mode == 3) {
-                mmu.setMemVal(this.stat, (byte) (lcdStatus & 0xFC + 3));
-            }
+    private void catchUp(long time) {
+        while (nextChange <= time) {
+            nextMode();
         }
     }
 
     /**
-     * Updates the LCD status register and requests interrupts if applicable.
-     *
+     * Schedules the GPU's event for the next mode change which requests an interrupt: the start of V-Blank, or sooner
+     * if STAT interrupts are enabled.
      */
-    private void updateLCDStatus() {
-        // If LCD is disabled, mode must be 1, clock cycle counter and current scanline must be reset
-        if (!isLCDEnabled()) {
-            setLCDMode((byte) 1);
-            clockCounter = 0;
-            mmu.setMemVal(this.ly, (byte) 0);
+    private void scheduleInterrupt() {
+        EventQueue events = mmu.getEvents();
+        if (nextChange == Long.MAX_VALUE) {
+            events.cancel(EventQueue.GPU);
             return;
         }
-        int curScanline = (mmu.getMemVal(ly) & 0xFF);
-        if ( curScanline >= 144) {
-            setLCDMode((byte) 1);
+
+        byte lcdStatus = mmu.loadIO(this.stat);
+        long due;
+        if (BitUtils.testBit(lcdStatus, 3) || BitUtils.testBit(lcdStatus, 5)) {
+            // H-Blank or OAM interrupts, every line
+            due = nextChange;
+        } else {
+            due = getLineStart(144);
+            int compare = mmu.loadIO(this.lyc) & 0xFF;
+            if (BitUtils.testBit(lcdStatus, 6) && compare <= 153) {
+                due = Math.min(due, getLineStart(compare));
+            }
         }
+        events.schedule(EventQueue.GPU, due);
+    }
+
+    /**
+     * @param line Scanline (0 - 153)
+     * @return Time the line next starts, after the current one
+     */
+    private long getLineStart(int line) {
+        int lines = (line - (mmu.loadIO(this.ly) & 0xFF) + 154) % 154;
+        return lineStart + (long) (lines == 0 ? 154 : lines) * LINE_CYCLES;
+    }
 
-        // Sets the mode of the LCD status register
-        int mode2Length = 80;
-        int mode3Length = 172;
-        if (clockCounter < mode2Length) {
-            // Searching OAM RAM (OAM being used by LCD controller, inaccessible to CPU) (Mode 2)
+    /**
+     * Called when the LCD is switched on or off. When off the GPU stops, with LY at 0 and the mode at 1. When on it
+     * starts again from the top of the screen.
+     */
+    private void resetLCD() {
+        mmu.storeIO(this.ly, (byte) 0);
+        windowLine = 0;
+        if (isLCDEnabled()) {
+            lineStart = mmu.getEvents().getTime();
+            nextChange = lineStart + MODE2_CYCLES;
             setLCDMode((byte) 2);
-        } else if (clockCounter < (mode2Length + mode3Length)) {
-            // Transferring data to LCD driver. (Mode 3)
-            setLCDMode((byte) 3);
         } else {
-            // Enable CPU access to all display RAM (H-Blank period)
-            setLCDMode((byte) 0);
+            nextChange = Long.MAX_VALUE;
+            setLCDMode((byte) 1);
         }
-
-        // Perform coincidence check (ly = lyc)
         LCDCoincidenceCheck();
+        scheduleInterrupt();
+    }
+
+    /**
+     * Moves the GPU on to its next mode when the current one is over, drawing the scanline once it has been
+     * transferred and moving on to the next scanline at the end of each line.
+     */
+    private void nextMode() {
+        switch (getLCDMode()) {
+            case 2:
+                setLCDMode((byte) 3);
+                nextChange = lineStart + MODE2_CYCLES + MODE3_CYCLES;
+                break;
+            case 3:
+                // The line has been sent to the LCD
+                if (drawingFrame) {
+                    drawScanline();
+                }
+                setLCDMode((byte) 0);
+                nextChange = lineStart + LINE_CYCLES;
+                break;
+            default:
+                // End of a scanline, in H-Blank or V-Blank
+                lineStart += LINE_CYCLES;
+                int curScanline = (mmu.loadIO(this.ly) & 0xFF) + 1;
+                if (curScanline > 153) {
+                    // Finished all scanlines, reset
+                    curScanline = 0;
+                }
+                mmu.storeIO(this.ly, (byte) curScanline);
+
+                if (curScanline == 144) {
+                    // V-Blank period, send interrupt
+                    setLCDMode((byte) 1);
+                    mmu.getInterrupts().requestInterrupt(mmu, VBLANK_INTERRUPT);
+                    tiles.endFrame();
+                    windowLine = 0;
+
+                    // The frame is complete, hand it over and draw the next one into another. A frame the same as
+                    // the last one isn't handed over again, nor is one that wasn't drawn.
+                    if (drawingFrame && dirtyLines.endFrame()) {
+                        frame = screen.presentFrame(frame);
+                    }
+                    dirtyLines.startFrame(frame);
+                    drawingFrame = rendering;
+                    nextChange = lineStart + LINE_CYCLES;
+                } else if (curScanline > 144) {
+                    nextChange = lineStart + LINE_CYCLES;
+                } else {
+                    setLCDMode((byte) 2);
+                    nextChange = lineStart + MODE2_CYCLES;
+                }
+                LCDCoincidenceCheck();
+                break;
+        }
+    }
+
+    /**
+     * Sets the mode of LCD status register to val, if this changes the mode
+     * an interrupt will be attempted.
+     *
+     * @param mode Mode to change the lcd to ( 0 - 3)
+     */
+    public void setLCDMode(byte mode) {
+        byte lcdStatus = mmu.loadIO(this.stat);
+        byte lcdMode = (byte) (lcdStatus & 0x3);
+
+        if (lcdMode != mode) {
+            // When LCD status changes to 0, 1, or 2 an LCD interrupt Request can happen, if selected in bits 3 - 5
+            if (mode == 0 && BitUtils.testBit(lcdStatus, 3)) {
+                mmu.getInterrupts().requestInterrupt(mmu, HBLANK_STAT_INTERRUPT);
+            } else if (mode == 1 && BitUtils.testBit(lcdStatus, 4)) {
+                mmu.getInterrupts().requestInterrupt(mmu, VBLANK_STAT_INTERRUPT);
+            } else if (mode == 2 && BitUtils.testBit(lcdStatus, 5)) {
+                mmu.getInterrupts().requestInterrupt(mmu, OAM_STAT_INTERRUPT);
+            }
+            mmu.storeIO(this.stat, (byte) ((lcdStatus & 0xFC) | mode));
+        }
     }
 
     /**
@@ -233,220 +436,331 @@ public class GPU {
      *
      */
     private void LCDCoincidenceCheck() {
-        byte lcdStatus = mmu.getMemVal(this.stat);
+        byte lcdStatus = mmu.loadIO(this.stat);
 
         // Bit 2 of stat is set to 1 if 0xFF44 == 0xFF45, else set to 0
-        byte curScanline = mmu.getMemVal(this.ly);
+        byte curScanline = mmu.loadIO(this.ly);
         boolean coincidenceFlag = (curScanline == mmu.getMemVal(this.lyc));
 
         if (coincidenceFlag) {
             // Request interrupt
-            mmu.setMemVal(this.stat, (byte) ((lcdStatus & 0xFB) + 4));
+            mmu.storeIO(this.stat, (byte) ((lcdStatus & 0xFB) + 4));
             if (BitUtils.testBit(lcdStatus, 6)) {
-                Interrupts.requestInterrupt(mmu, new Interrupt("LCD Interrupt", "Coincidence (0xFF44 == 0xFF45)", 1));
+                mmu.getInterrupts().requestInterrupt(mmu, COINCIDENCE_INTERRUPT);
             }
         } else {
             // Clear coincidence flag
-            mmu.setMemVal(this.stat, (byte) ((lcdStatus & 0xFB)));
+            mmu.storeIO(this.stat, (byte) ((lcdStatus & 0xFB)));
         }
     }
 
     /**
-     * Draws one row of pixels to the screen.
+     * Draws one row of pixels to the screen, unless the frame buffer already holds the row as it would be drawn.
      *
      */
     public void drawScanline() {
-        byte lcdControl = mmu.getMemVal(this.lcdc);
+        byte lcdControl = mmu.loadIO(this.lcdc);
+        int curScanline = mmu.loadIO(this.ly) & 0xFF;
+        int curWindowLine = windowLine;
+        int spriteHeight = BitUtils.testBit(lcdControl, 2) ? 16 : 8;
+        int spriteCount = BitUtils.testBit(lcdControl, 1) ? scanOAM(curScanline, spriteHeight) : 0;
+        long lineRegs = getLineRegisters(lcdControl);
+        long lastWrite = getLastWrite(lcdControl, spriteHeight, spriteCount);
+        if (dirtyLines.isUnchanged(curScanline, lineRegs, curWindowLine, lastWrite)) {
+            if (BitUtils.testBit(lcdControl, 0) && getWindowStart(lcdControl, curScanline) < WIDTH) {
+                windowLine++;
+            }
+            return;
+        }
 
-        // Draw background/window tiles
+        // Draw background/window tiles, or leave the line blank
         if (BitUtils.testBit(lcdControl, 0)) {
             renderTiles(lcdControl);
+        } else {
+            int start = curScanline * WIDTH;
+            Arrays.fill(frame, start, start + WIDTH, bgColours[0]);
+            Arrays.fill(bgLine, (byte) 0);
         }
 
         // Draw sprites
-        if (BitUtils.testBit(lcdControl, 1)) {
-            renderSprites(lcdControl);
-        }
-        int curScanline = mmu.getMemVal(this.ly) & 0xFF;
-        screen.renderScreen(mainScreenPixels[curScanline], curScanline);
+        drawSprites(curScanline, spriteHeight, spriteCount);
+        dirtyLines.drawn(curScanline, lineRegs, curWindowLine);
     }
 
     /**
-     * Renders the background/window tiles (8x8 pixels).
-     * TODO: Take into account window_y and window_x.
-     *
      * @param lcdControl The LCD control register's value
+     * @return LCDC, SCY, SCX, WY, WX, BGP, OBP0 and OBP1, a byte each from the lowest
      */
-    public void renderTiles(byte lcdControl) {
+    private long getLineRegisters(byte lcdControl) {
+        return (lcdControl & 0xFF)
+                | (mmu.loadIO(this.scroll_y) & 0xFFL) << 8
+                | (mmu.loadIO(this.scroll_x) & 0xFFL) << 16
+                | (mmu.loadIO(this.wy) & 0xFFL) << 24
+                | (mmu.loadIO(this.wx) & 0xFFL) << 32
+                | (mmu.loadIO(this.bgp) & 0xFFL) << 40
+                | (mmu.loadIO(this.obp0) & 0xFFL) << 48
+                | (mmu.loadIO(this.obp1) & 0xFFL) << 56;
+    }
 
-        // Upper left starting position of the background to be displayed
-        byte scrollX = mmu.getMemVal(this.scroll_x);
-        byte scrollY = mmu.getMemVal(this.scroll_y);
-
-        // X,Y positions of the window area to start drawing the window from
-        byte windowY = mmu.getMemVal(this.wy);
-        byte windowX = (byte)(mmu.getMemVal(this.wx) - 7);      // value of wx is offset by 7 to allow scrolling in, 7 <= windowX <=166
-
-        // Grab the colour palette
-        byte bgPalette = mmu.getMemVal(this.bgp);
-        byte[] palette = new byte[4];
-        for (int i = 0; i <= 6; i += 2) {
-            // Shift over i bits and read 2 bits for colour
-            int colourBits = bgPalette >> i;
-            palette[i / 2] = (byte) (colourBits & 0x3);
+    /**
+     * Finds the last write to anything in VRAM or OAM a scanline is drawn from: the map rows it shows, the tiles in
+     * them, and OAM and the tiles of the sprites on the line.
+     *
+     * @param lcdControl   The LCD control register's value
+     * @param spriteHeight Height of every sprite, 8 or 16
+     * @param spriteCount  Number of sprites on the line, found by scanOAM
+     * @return Number of the write, as counted by DirtyLines
+     */
+    private long getLastWrite(byte lcdControl, int spriteHeight, int spriteCount) {
+        int line = mmu.loadIO(this.ly) & 0xFF;
+        long last = 0;
+        if (BitUtils.testBit(lcdControl, 0)) {
+            boolean signed = !BitUtils.testBit(lcdControl, 4);
+            int windowStart = getWindowStart(lcdControl, line);
+            int bgDataAdr = BitUtils.testBit(lcdControl, 3) ? bg_data_1 : bg_data_0;
+            int bgY = line + (mmu.loadIO(this.scroll_y) & 0xFF);
+            int bgX = mmu.loadIO(this.scroll_x) & 0xFF;
+            last = getLastMapWrite(bgDataAdr, bgY, bgX, 0, windowStart, signed);
+            if (windowStart < WIDTH) {
+                int winDataAdr = BitUtils.testBit(lcdControl, 6) ? bg_data_1 : bg_data_0;
+                int windowX = (mmu.loadIO(this.wx) & 0xFF) - 7;
+                last = Math.max(last, getLastMapWrite(winDataAdr, windowLine, -windowX, windowStart, WIDTH, signed));
+            }
         }
-
-        // Check if loading normal Background Tiles or window background tiles
-        int bgDataAdr;
-        int winDataAdr = bg_data_0;
-        boolean usingWindow = false;
-        if (BitUtils.testBit(lcdControl, 5)) {
-            usingWindow = true;
-            // Window tiles needed
-            if (BitUtils.testBit(lcdControl, 6)) {
-                winDataAdr = bg_data_1;
-            } else {
-                winDataAdr = bg_data_0;
+        if (BitUtils.testBit(lcdControl, 1)) {
+            last = Math.max(last, dirtyLines.getOAMWrite());
+            for (int i = 0; i < spriteCount; i++) {
+                int chrCode = mmu.loadVideo(getSpriteAdr(lineSprites[i]) + 2) & 0xFF;
+                if (spriteHeight == 16) {
+                    chrCode &= 0xFE;
+                    last = Math.max(last, dirtyLines.getTileWrite(chrCode + 1));
+                }
+                last = Math.max(last, dirtyLines.getTileWrite(chrCode));
             }
         }
+        return last;
+    }
 
-        // Only Background tiles needed
-        if (BitUtils.testBit(lcdControl, 3)) {
-            bgDataAdr = bg_data_1;
-        } else {
-            bgDataAdr = bg_data_0;
+    /**
+     * Finds the last write to part of a map row and the tiles it shows. Takes the same arguments as drawMapRow.
+     *
+     * @return Number of the write, as counted by DirtyLines
+     */
+    private long getLastMapWrite(int mapAdr, int mapY, int mapX, int start, int end, boolean signed) {
+        if (start >= end) {
+            return 0;
         }
+        int rowAdr = mapAdr + ((mapY & 0xFF) >> 3) * 32;
+        long last = dirtyLines.getMapRowWrite(rowAdr);
+        int x = (mapX + start) & 0xFF;
+        int count = ((x & 0x7) + end - start + 7) >> 3;     // Tiles the part of the row covers
+        for (int i = 0; i < count; i++) {
+            byte chrCode = mmu.loadVideo(rowAdr + (((x >> 3) + i) & 0x1F));
+            int tile = signed ? 256 + chrCode : chrCode & 0xFF;
+            last = Math.max(last, dirtyLines.getTileWrite(tile));
+        }
+        return last;
+    }
 
-        // Check where the Bitmap/tile data is located
-        int tileMapAdr;
-        boolean signed = false;
-        if (BitUtils.testBit(lcdControl, 4)) {
-            tileMapAdr = 0x8000;
-        } else {
-            tileMapAdr = 0x8800;
-            signed = true;
+    /**
+     * @param lcdControl The LCD control register's value
+     * @param line       Scanline (0 - 143)
+     * @return Column the window starts at on the line, WIDTH if it isn't shown on the line
+     */
+    private int getWindowStart(byte lcdControl, int line) {
+        // value of wx is offset by 7 to allow scrolling in, 7 <= wx <= 166
+        int windowX = (mmu.loadIO(this.wx) & 0xFF) - 7;
+        if (BitUtils.testBit(lcdControl, 5) && windowX < WIDTH && line >= (mmu.loadIO(this.wy) & 0xFF)) {
+            return Math.max(windowX, 0);
         }
+        return WIDTH;
+    }
 
-        // Draw tiles at the current scanline (LY)
-        Tile tile;
-        int curScanline = mmu.getMemVal(this.ly) & 0xFF;
-        int curRow = (curScanline) / 8; // Account for the block size of 8 (18 blocks)
-        for (int curCol = 0; curCol < 20; curCol++) {
-            // Find current block/tile
-            int blockX = (scrollX / 8 + curCol) % 32;
-            int blockY = (32 * (scrollY / 8 + curRow));
-
-            // Check if current pixel is for a window
-            int tileDataAdr;
-            if (usingWindow && curScanline >= windowY && (windowX) >= curCol * 8) {
-                // Within window area
-//                blockX = curCol*8 - windowX;
-//                blockY = (curScanline - windowY)/8;
-                tileDataAdr = winDataAdr;
-            } else {
-                tileDataAdr = bgDataAdr;
-            }
+    /**
+     * Renders the background on the current scanline, and the window over it. The background wraps around its 256x256
+     * map and is scrolled to the pixel by SCX and SCY, so the line can start part way into a tile and cross 21 of them.
+     * The window isn't scrolled: it covers the screen right and down from WX - 7, WY.
+     *
+     * @param lcdControl The LCD control register's value
+     */
+    public void renderTiles(byte lcdControl) {
+        int curScanline = mmu.loadIO(this.ly) & 0xFF;
 
-            int blockNum = blockY + blockX;
+        // Check where the Bitmap/tile data is located. From 0x8800 tile numbers are signed, with tile 0 at 0x9000
+        boolean signed = !BitUtils.testBit(lcdControl, 4);
 
-            // Load CHR_CODE
-            int chrCode = mmu.getMemVal(tileDataAdr + blockNum) & 0xFF;
-            tile = new Tile(chrCode);
+        int windowStart = getWindowStart(lcdControl, curScanline);
 
-            // Check if CHR_CODE will be signed
-            if (signed) {
-                chrCode += 128;
-            }
-            int tileAdr = (tileMapAdr + chrCode * 16);
+        // Background, up to where the window starts
+        int bgDataAdr = BitUtils.testBit(lcdControl, 3) ? bg_data_1 : bg_data_0;
+        int bgY = curScanline + (mmu.loadIO(this.scroll_y) & 0xFF);
+        int bgX = mmu.loadIO(this.scroll_x) & 0xFF;
+        drawMapRow(bgDataAdr, bgY, bgX, 0, windowStart, signed, curScanline);
 
-            // Load Bitmap from tile address
-            byte[] bitmap = new byte[16];  // 16 because 2 bytes create 1 row. 16/2 = 8 rows
-            for (int i = 0; i < 16; i++) {
-                bitmap[i] = mmu.getMemVal((tileAdr + i));
-            }
-            tile.setBitmap(bitmap);
+        if (windowStart < WIDTH) {
+            int winDataAdr = BitUtils.testBit(lcdControl, 6) ? bg_data_1 : bg_data_0;
+            int windowX = (mmu.loadIO(this.wx) & 0xFF) - 7;
+            drawMapRow(winDataAdr, windowLine, -windowX, windowStart, WIDTH, signed, curScanline);
+            windowLine++;
+        }
+    }
 
-            // Tile is ready to be drawn in it's 8x8 location
-            drawTile(tile, curScanline, curCol * 8, palette, false);
+    /**
+     * Draws part of a scanline from a background/window map, a tile row at a time from the tile cache.
+     *
+     * @param mapAdr Address of the 32x32 map of tile numbers
+     * @param mapY   Row of pixels in the map, wrapping around at 256
+     * @param mapX   Column of pixels in the map drawn at the left edge of the screen, wrapping around at 256
+     * @param start  First column on the screen to draw
+     * @param end    Column on the screen to stop at
+     * @param signed Whether tile numbers are signed, tile 0 being at 0x9000
+     * @param line   The scanline to draw to
+     */
+    private void drawMapRow(int mapAdr, int mapY, int mapX, int start, int end, boolean signed, int line) {
+        byte[] pixels = tiles.getPixels();
+        int[] frame = this.frame;
+        int[] colours = bgColours;
+        int rowAdr = mapAdr + ((mapY & 0xFF) >> 3) * 32;
+        int tileRow = mapY & 0x7;
+        int index = line * WIDTH;
+
+        int col = start;
+        while (col < end) {
+            int x = (mapX + col) & 0xFF;
+            byte chrCode = mmu.loadVideo(rowAdr + (x >> 3));
+            int tile = signed ? 256 + chrCode : chrCode & 0xFF;
+            int offset = tiles.getRow(tile, tileRow) + (x & 0x7);
+
+            // To the end of the tile, or of the part being drawn
+            int count = Math.min(8 - (x & 0x7), end - col);
+            for (int i = 0; i < count; i++) {
+                byte colour = pixels[offset + i];
+                bgLine[col + i] = colour;
+                frame[index + col + i] = colours[colour];
+            }
+            col += count;
         }
     }
 
     /**
-     * Renders a row of sprites onto the LCD screen.
-     * TODO: Horizontal and Vertical flip flags
+     * Renders a row of sprites onto the LCD screen, from the tile cache.
+     *
      * @param lcdControl The LCDC register's value.
      */
     public void renderSprites(byte lcdControl) {
-        int height = BitUtils.testBit(lcdControl, 2)? 16 : 8;   // LCDC Bit 2 - OBJ (Sprite) Size (0=8x8, 1=8x16)
-        byte curScanline = mmu.getMemVal(this.ly);
-
-        for (int spriteNumber = 0; spriteNumber < 40; spriteNumber++) {
-            // All 40 sprites are stored at 0xFE00 to 0xFE9F and consist of 4 bytes
-            int spriteAdr = 0xFE00 + (spriteNumber * 4);
-
-            // Each sprite consists of 4 bytes
-            byte y_coord = mmu.getMemVal((spriteAdr));                               // Byte 1: LCD y_coordinate
-            byte x_coord = mmu.getMemVal((spriteAdr + 1));                           // Byte 2: LCD x_coordinate
-            byte chr_code = (byte) ((mmu.getMemVal((spriteAdr + 2)) >> 1) << 1);    // Byte 3: CHR_CODE or tile code. Odd CHR_CODES get rounded down. 1->0. 3->2.
-            byte attributes = mmu.getMemVal((spriteAdr + 3));                        // Byte 4: Attribute flag - Palette, Horizontal/Vertical Flip Flag, and Priority
-            int paletteSelection = (BitUtils.testBit(attributes, 4)) ? this.obp1 : this.obp0;
-            // Check for vertical flip
-            boolean yFlip = (BitUtils.testBit(attributes, 6));
-
-            // Check for horizontal flip
-            boolean xFlip = (BitUtils.testBit(attributes, 5));
-
-            // Grab the colour palette
-            byte objPalette = mmu.getMemVal(paletteSelection);
-            byte[] palette = new byte[4];
-            for (int i = 0; i <= 6; i += 2) {
-                // Shift over i bits and read 2 bits for colour
-                int colourBits = objPalette >> i;
-                palette[i / 2] = (byte) (colourBits & 0x3);
-            }
-
-            // Load Bitmap from sprite address, CHR_CODE, and flip flags
-
-            byte [] bitmap = new byte[height * 2];
-            int tileAdr = (0x8000 + chr_code * 16);
-            for (int i = 0; i < (2 * height); i++) { // Account of 8x8 or 8x16 sprites
-                int row = i;
-                if (yFlip) {
-                    row = height - i;
-                }
-
-                bitmap[i] = mmu.getMemVal((tileAdr + row));
+        int height = BitUtils.testBit(lcdControl, 2) ? 16 : 8;   // LCDC Bit 2 - OBJ (Sprite) Size (0=8x8, 1=8x16)
+        int curScanline = mmu.loadIO(this.ly) & 0xFF;
+        drawSprites(curScanline, height, scanOAM(curScanline, height));
+    }
 
-                if (xFlip) {
-                    bitmap[i] = BitUtils.reverseByte(bitmap[i]);
-                }
+    /**
+     * Draws the sprites found by the OAM scan.
+     *
+     * @param curScanline Scanline (0 - 143)
+     * @param height      Height of every sprite, 8 or 16
+     * @param count       Number of sprites in lineSprites
+     */
+    private void drawSprites(int curScanline, int height, int count) {
+        int rowStart = curScanline * WIDTH;
+
+        for (int i = 0; i < count; i++) {
+            // Each sprite consists of 4 bytes: y + 16, x + 8, CHR_CODE and attributes
+            int spriteAdr = getSpriteAdr(lineSprites[i]);
+            int y = (mmu.loadVideo(spriteAdr) & 0xFF) - 16;
+            int x = (mmu.loadVideo(spriteAdr + 1) & 0xFF) - 8;
+            int chrCode = mmu.loadVideo(spriteAdr + 2) & 0xFF;
+            byte attributes = mmu.loadVideo(spriteAdr + 3);     // Priority, flips and palette
+
+            int row = curScanline - y;
+            if (BitUtils.testBit(attributes, 6)) {
+                row = height - 1 - row;     // Vertical flip
             }
-
-            Sprite sprite = new Sprite(height, y_coord, x_coord, chr_code, attributes);
-            sprite.setBitmap(bitmap);
-
-            // Draw sprite
-            if (y_coord <= curScanline && (y_coord + height) > curScanline) {
-                drawTile(sprite, curScanline, x_coord, palette, true);
+            if (height == 16) {
+                // 8x16 sprites are an even tile and the odd one after it
+                chrCode = (chrCode & 0xFE) | (row >> 3);
+            }
+            byte[] pixels = BitUtils.testBit(attributes, 5) ? tiles.getFlippedPixels() : tiles.getPixels();
+            int offset = tiles.getRow(chrCode, row & 0x7);
+            int[] colours = BitUtils.testBit(attributes, 4) ? obj1Colours : obj0Colours;
+            boolean behindBG = BitUtils.testBit(attributes, 7);   // Only shows over BG colour 0
+
+            for (int p = 0; p < 8; p++) {
+                int col = x + p;
+                int colour = pixels[offset + p];
+                if (colour == 0 || col < 0 || col >= WIDTH || (behindBG && bgLine[col] != 0)) {
+                    continue;
+                }
+                frame[rowStart + col] = colours[colour];
             }
         }
     }
 
     /**
-     * Draws a tile to specified row.
+     * OAM scan. Finds the first 10 sprites in OAM which cover a line, as the hardware does, and orders them so those
+     * with priority are drawn last, over the others: the sprite with the lower x wins, then the one earlier in OAM.
      *
-     * @param t The tile to draw a row from.
-     * @param row The row to draw to
-     * @param col The position of the tile within the row.
+     * @param line   Scanline (0 - 143)
+     * @param height Height of every sprite, 8 or 16
+     * @return Number of sprites put in lineSprites, by their sort keys
      */
-    public void drawTile(Tile t, int row, int col, byte[] palette, boolean isSprite) {
-        for (int i = 0; i < 8; i++) {
-            byte colour = palette[t.getPixel(row % t.height, i)];
-            if (isSprite && colour == 0) {
-                continue;
+    private int scanOAM(int line, int height) {
+        int count = 0;
+        for (int adr = 0xFE00; adr < 0xFEA0 && count < MAX_LINE_SPRITES; adr += 4) {
+            int y = (mmu.loadVideo(adr) & 0xFF) - 16;
+            if (line >= y && line < y + height) {
+                lineSprites[count++] = getSpriteOrder(adr);
             }
-            mainScreenPixels[row][col + i].colour = colour;
         }
+
+        // Insertion sort, by descending x then descending OAM address
+        for (int i = 1; i < count; i++) {
+            int key = lineSprites[i];
+            int j = i - 1;
+            while (j >= 0 && lineSprites[j] < key) {
+                lineSprites[j + 1] = lineSprites[j];
+                j--;
+            }
+            lineSprites[j + 1] = key;
+        }
+        return count;
+    }
+
+    /**
+     * @param spriteAdr OAM address of a sprite
+     * @return Sort key of the sprite, lower for sprites with priority
+     */
+    private int getSpriteOrder(int spriteAdr) {
+        return ((mmu.loadVideo(spriteAdr + 1) & 0xFF) << 8) | (spriteAdr & 0xFF);
+    }
+
+    /**
+     * @param order Sort key of a sprite
+     * @return OAM address of the sprite
+     */
+    private static int getSpriteAdr(int order) {
+        return 0xFE00 | (order & 0xFF);
+    }
+
+    /**
+     * @return Decoded tiles and the cache's counters
+     */
+    public TileCache getTileCache() {
+        return tiles;
+    }
+
+    /**
+     * @return What each scanline was drawn from, and how many were skipped
+     */
+    public DirtyLines getDirtyLines() {
+        return dirtyLines;
+    }
+
+    /**
+     * @return The frame being drawn, RGB of every pixel row by row. Scanlines are drawn into it as they're
+     * transferred, and it's handed to the display at V-Blank.
+     */
+    public int[] getFrame() {
+        return frame;
     }
 
 }
@@ -10,6 +10,7 @@ package GameBoy;
  * Bit 0: V-Blank Interupt
  * Bit 1: LCD Interupt
  * Bit 2: Timer Interupt
+ * Bit 3: Serial Interupt
  * Bit 4: Joypad Interupt
  */
 public class Interrupt {
@@ -40,6 +41,10 @@ public class Interrupt {
                 serviceAdr = 0x50;
                 break;
             case 3:
+                // Serial Interrupt
+                serviceAdr = 0x58;
+                break;
+            case 4:
                 // Joypad Interrupt
                 serviceAdr = 0x60;
                 break;
@@ -19,10 +19,18 @@ import java.util.PriorityQueue;
  *      3. If the above two conditions are true and their is no other interupt with a higher priority
  *      awaiting to be serviced then it checks the Interupt Enabled Register(0xFFFF) to see if its
  *      corresponding interrupt bit is set to 1 to allow servicing of this particular interrupt.
+ *
+ * Each MMU owns its own Interrupts, so machines running side by side never see each other's interrupts.
  */
 public class Interrupts {
-    static boolean masterInterruptSwitch = false; // Tool used by GameBoy to enable servicing of an interrupt.
-    static Interrupt[] interrupts = new Interrupt[4];
+    boolean masterInterruptSwitch = false; // Tool used by GameBoy to enable servicing of an interrupt.
+    private Interrupt[] interrupts = new Interrupt[5];
+
+    public Interrupts() {
+        for (int i = 0; i < interrupts.length; i++) {
+            interrupts[i] = new Interrupt();
+        }
+    }
 
     /**
      * Add an interrupt to the queue if not already in and
@@ -31,7 +39,7 @@ public class Interrupts {
      * @param mmu The memory management unit with access to the interrupt request register
      * @param ir An interrupt
      */
-    static public void requestInterrupt(MMU mmu, Interrupt ir) {
+    public void requestInterrupt(MMU mmu, Interrupt ir) {
         int priority = ir.getPriority();
         byte interruptRequestFlag = BitUtils.setBit(mmu.getMemVal(0xFF0F), priority); // Sets the interrupt's flag in register
         interrupts[priority] = ir;
@@ -44,22 +52,23 @@ public class Interrupts {
      * @param mmu Memory management unit
      * @param regs Contains the stack pointer and program counter
      */
-    static void handleInterrupts(MMU mmu, Registers regs) {
+    void handleInterrupts(MMU mmu, Registers regs) {
         // Make sure the system is allowing interrupts
-        if (Interrupts.masterInterruptSwitch) {
+        if (masterInterruptSwitch) {
             byte irEnabled = mmu.getMemVal(0xFFFF);
 
             if (irEnabled != 0) {
                 byte irRequest = mmu.getMemVal(0xFF0F);
 
                 // Remove interrupt from queue
-                for (int i = 0; i < 4; i++) {
+                for (int i = 0; i < interrupts.length; i++) {
                     // Check if the interruptEnable register has enabled servicing for this interrupt
                     int priority = interrupts[i].getPriority();
                     if (priority != -1) {
                         if (BitUtils.testBit(irRequest, priority) && BitUtils.testBit(irEnabled, priority)) {
                             serviceInterrupt(interrupts[i], mmu, regs);
                             interrupts[i] = new Interrupt();
+                            return;     // Interrupts are off again until RETI or EI
                         }
                     }
                 }
@@ -74,9 +83,9 @@ public class Interrupts {
      * @param mmu Memory management unit
      * @param regs Contains the stack pointer and program counter
      */
-    static private void serviceInterrupt(Interrupt ir, MMU mmu, Registers regs) {
-        Interrupts.masterInterruptSwitch = false;   // Need to set to true once interrupts are done
-        byte interruptRequest = (byte) (mmu.getMemVal(0xFF0F) | ir.getPriority());  // Clear interrupt request bit
+    private void serviceInterrupt(Interrupt ir, MMU mmu, Registers regs) {
+        masterInterruptSwitch = false;   // Stays off until the handler's RETI, or an EI
+        byte interruptRequest = (byte) (mmu.getMemVal(0xFF0F) & ~(1 << ir.getPriority()));  // Clear interrupt request bit
         mmu.setMemVal(0xFF0F, interruptRequest);
 
         // Push PC to stack
@@ -87,10 +96,9 @@ public class Interrupts {
         regs.setPC(ir.getServiceAdr());
 
         interrupts[ir.getPriority()] = new Interrupt(); // Clears interrupt
-        Interrupts.masterInterruptSwitch = true;
     }
 
-    static public boolean isMasterEnabled() {
+    public boolean isMasterEnabled() {
         return masterInterruptSwitch;
     }
 }
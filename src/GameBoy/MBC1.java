@@ -0,0 +1,49 @@
+package GameBoy;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: MBC1
+ * Description: MBC1 memory bank controller. Up to 2MB of ROM (125 usable banks) and 32k of RAM.
+ * 0x0000 - 0x1FFF: RAM enable (0x0A enables)
+ * 0x2000 - 0x3FFF: Lower 5 bits of the ROM bank. 0 selects 1.
+ * 0x4000 - 0x5FFF: 2 bit register, upper bits of the ROM bank or the RAM bank
+ * 0x6000 - 0x7FFF: Banking mode. In mode 1 the 2 bit register also selects the RAM bank and the bank at 0x0000.
+ */
+class MBC1 implements Mapper {
+    private boolean ramEnabled = false;
+    private int lowBits = 1;    // Lower 5 bits of the ROM bank
+    private int highBits = 0;   // 2 bit register
+    private int mode = 0;
+
+    public void write(int adr, byte val) {
+        if (adr < 0x2000) {
+            ramEnabled = (val & 0xF) == 0xA;
+        } else if (adr < 0x4000) {
+            lowBits = val & 0x1F;
+            if (lowBits == 0) {
+                // Bank 0 is always at 0x0000, trying to select it selects bank 1
+                lowBits = 1;
+            }
+        } else if (adr < 0x6000) {
+            highBits = val & 0x3;
+        } else {
+            mode = val & 0x1;
+        }
+    }
+
+    public int getLowRomBank() {
+        return (mode == 1) ? highBits << 5 : 0;
+    }
+
+    public int getRomBank() {
+        return (highBits << 5) | lowBits;
+    }
+
+    public int getRamBank() {
+        return (mode == 1) ? highBits : 0;
+    }
+
+    public boolean isRamEnabled() {
+        return ramEnabled;
+    }
+}
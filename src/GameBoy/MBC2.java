@@ -0,0 +1,34 @@
+package GameBoy;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: MBC2
+ * Description: MBC2 memory bank controller. Up to 256k of ROM and 512 x 4 bits of RAM built into the controller.
+ * 0x0000 - 0x3FFF: Bit 8 of the address clear: RAM enable (0x0A enables). Set: lower 4 bits of the ROM bank.
+ */
+class MBC2 implements Mapper {
+    private boolean ramEnabled = false;
+    private int romBank = 1;
+
+    public void write(int adr, byte val) {
+        if (adr >= 0x4000) {
+            return;
+        }
+        if (BitUtils.testBit(adr, 8)) {
+            romBank = val & 0xF;
+            if (romBank == 0) {
+                romBank = 1;
+            }
+        } else {
+            ramEnabled = (val & 0xF) == 0xA;
+        }
+    }
+
+    public int getRomBank() {
+        return romBank;
+    }
+
+    public boolean isRamEnabled() {
+        return ramEnabled;
+    }
+}
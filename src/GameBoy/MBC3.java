@@ -0,0 +1,199 @@
+package GameBoy;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: MBC3
+ * Description: MBC3 memory bank controller with an optional real time clock (RTC). Up to 2MB of ROM and 32k of RAM.
+ * 0x0000 - 0x1FFF: RAM and RTC enable (0x0A enables)
+ * 0x2000 - 0x3FFF: ROM bank (7 bits). 0 selects 1.
+ * 0x4000 - 0x5FFF: 0x00 - 0x03 selects a RAM bank, 0x08 - 0x0C selects an RTC register
+ * 0x6000 - 0x7FFF: Writing 0 then 1 latches the current time into the RTC registers
+ *
+ * RTC registers: 0x08 seconds, 0x09 minutes, 0x0A hours, 0x0B lower 8 bits of the day counter,
+ * 0x0C bit 0: bit 8 of the day counter, bit 6: halt, bit 7: day counter overflow.
+ * The clock follows the host's wall clock, so it keeps counting while the emulator isn't running the game. Saves keep
+ * it in 48 bytes after the cartridge RAM: the 5 registers as they are and as last latched, 4 bytes each, then the time
+ * they were saved in seconds since 1970, 8 bytes, all little endian.
+ */
+class MBC3 implements Mapper {
+    private static final long MAX_SECONDS = 512L * 24 * 60 * 60;    // The day counter is 9 bits
+
+    private boolean hasRtc;
+    private boolean ramEnabled = false;
+    private int romBank = 1;
+    private int ramBank = 0;                // RAM bank, or RTC register when 0x08 - 0x0C
+
+    private long baseMillis = System.currentTimeMillis();   // Wall clock time at which the counter was 0
+    private boolean halted = false;
+    private long haltedSeconds = 0;         // Counter value while halted
+    private boolean dayCarry = false;
+    private byte[] latched = new byte[5];   // Registers 0x08 - 0x0C as of the last latch
+    private int lastLatchWrite = -1;
+
+    MBC3(boolean hasRtc) {
+        this.hasRtc = hasRtc;
+    }
+
+    public void write(int adr, byte val) {
+        if (adr < 0x2000) {
+            ramEnabled = (val & 0xF) == 0xA;
+        } else if (adr < 0x4000) {
+            romBank = val & 0x7F;
+            if (romBank == 0) {
+                romBank = 1;
+            }
+        } else if (adr < 0x6000) {
+            ramBank = val & 0xF;
+        } else {
+            if (hasRtc && lastLatchWrite == 0 && val == 1) {
+                latch();
+            }
+            lastLatchWrite = val;
+        }
+    }
+
+    public int getRomBank() {
+        return romBank;
+    }
+
+    public int getRamBank() {
+        return isRtcSelected() ? 0 : ramBank & 0x3;
+    }
+
+    public boolean isRamEnabled() {
+        return ramEnabled;
+    }
+
+    public boolean isRtcSelected() {
+        return hasRtc && ramBank >= 0x08 && ramBank <= 0x0C;
+    }
+
+    public byte readRtc() {
+        return latched[ramBank - 0x08];
+    }
+
+    public void writeRtc(byte val) {
+        long seconds = getSeconds();
+        long days = seconds / 86400;
+        long s = seconds % 60;
+        long m = (seconds / 60) % 60;
+        long h = (seconds / 3600) % 24;
+
+        switch (ramBank) {
+            case 0x08:
+                s = (val & 0xFF) % 60;
+                break;
+            case 0x09:
+                m = (val & 0xFF) % 60;
+                break;
+            case 0x0A:
+                h = (val & 0xFF) % 24;
+                break;
+            case 0x0B:
+                days = (days & 0x100) | (val & 0xFF);
+                break;
+            case 0x0C:
+                days = ((val & 0x1) << 8) | (days & 0xFF);
+                dayCarry = BitUtils.testBit(val, 7);
+                break;
+        }
+        setSeconds(((days * 24 + h) * 60 + m) * 60 + s);
+
+        if (ramBank == 0x0C) {
+            boolean halt = BitUtils.testBit(val, 6);
+            if (halt && !halted) {
+                haltedSeconds = getSeconds();
+            } else if (!halt && halted) {
+                baseMillis = System.currentTimeMillis() - haltedSeconds * 1000;
+            }
+            halted = halt;
+        }
+        latched[ramBank - 0x08] = val;
+    }
+
+    public boolean hasRtc() {
+        return hasRtc;
+    }
+
+    public void saveRtc(ByteBuffer footer) {
+        for (byte register : toRegisters(getSeconds())) {
+            footer.putInt(register & 0xFF);
+        }
+        for (byte register : latched) {
+            footer.putInt(register & 0xFF);
+        }
+        footer.putLong(System.currentTimeMillis() / 1000);
+    }
+
+    public void loadRtc(ByteBuffer footer) {
+        int[] registers = new int[5];
+        for (int i = 0; i < 5; i++) {
+            registers[i] = footer.getInt();
+        }
+        for (int i = 0; i < 5; i++) {
+            latched[i] = (byte) footer.getInt();
+        }
+        long savedSeconds = footer.getLong();
+
+        long days = ((registers[4] & 0x1) << 8) | (registers[3] & 0xFF);
+        long seconds = ((days * 24 + registers[2] % 24) * 60 + registers[1] % 60) * 60 + registers[0] % 60;
+        halted = BitUtils.testBit(registers[4], 6);
+        dayCarry = BitUtils.testBit(registers[4], 7);
+        if (halted) {
+            haltedSeconds = seconds;
+        } else {
+            // Counts on from when it was saved
+            baseMillis = (savedSeconds - seconds) * 1000;
+        }
+    }
+
+    /**
+     * @return Seconds counted by the clock, wrapping when the day counter overflows
+     */
+    private long getSeconds() {
+        if (halted) {
+            return haltedSeconds;
+        }
+        long seconds = (System.currentTimeMillis() - baseMillis) / 1000;
+        if (seconds >= MAX_SECONDS) {
+            dayCarry = true;
+            seconds %= MAX_SECONDS;
+            setSeconds(seconds);
+        }
+        return seconds;
+    }
+
+    /**
+     * @param seconds New value of the clock counter
+     */
+    private void setSeconds(long seconds) {
+        if (halted) {
+            haltedSeconds = seconds;
+        } else {
+            baseMillis = System.currentTimeMillis() - seconds * 1000;
+        }
+    }
+
+    /**
+     * Copies the current time into the readable RTC registers
+     */
+    private void latch() {
+        latched = toRegisters(getSeconds());
+    }
+
+    /**
+     * @param seconds Clock counter
+     * @return Registers 0x08 - 0x0C holding the counter
+     */
+    private byte[] toRegisters(long seconds) {
+        long days = seconds / 86400;
+        return new byte[]{
+                (byte) (seconds % 60),
+                (byte) ((seconds / 60) % 60),
+                (byte) ((seconds / 3600) % 24),
+                (byte) days,
+                (byte) (((days >> 8) & 0x1) | (halted ? 0x40 : 0) | (dayCarry ? 0x80 : 0))};
+    }
+}
@@ -0,0 +1,40 @@
+package GameBoy;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: MBC5
+ * Description: MBC5 memory bank controller. Up to 8MB of ROM and 128k of RAM.
+ * 0x0000 - 0x1FFF: RAM enable (0x0A enables)
+ * 0x2000 - 0x2FFF: Lower 8 bits of the ROM bank. Unlike the other MBCs bank 0 can be selected.
+ * 0x3000 - 0x3FFF: Bit 8 of the ROM bank
+ * 0x4000 - 0x5FFF: RAM bank (0 - 0xF)
+ */
+class MBC5 implements Mapper {
+    private boolean ramEnabled = false;
+    private int romBank = 1;
+    private int ramBank = 0;
+
+    public void write(int adr, byte val) {
+        if (adr < 0x2000) {
+            ramEnabled = (val & 0xF) == 0xA;
+        } else if (adr < 0x3000) {
+            romBank = (romBank & 0x100) | (val & 0xFF);
+        } else if (adr < 0x4000) {
+            romBank = ((val & 0x1) << 8) | (romBank & 0xFF);
+        } else if (adr < 0x6000) {
+            ramBank = val & 0xF;
+        }
+    }
+
+    public int getRomBank() {
+        return romBank;
+    }
+
+    public int getRamBank() {
+        return ramBank;
+    }
+
+    public boolean isRamEnabled() {
+        return ramEnabled;
+    }
+}
@@ -2,16 +2,27 @@ package GameBoy;
 
 
 import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.function.IntConsumer;
 
 
 /**
  * Author: Benjamin Baird
  * Created on: 2018-08-30
  * Filename: MMU
- * Description: Holds memory and methods required by the opcodes. Compatible with MBC1 and MBC2.
+ * Description: Holds memory and methods required by the opcodes. Banking is delegated to a Mapper chosen from the
+ * cartridge header (ROM only, MBC1, MBC2, MBC3 and MBC5).
+ * Memory is accessed through a table of 256 byte pages, each backed by its own array. Reads are a single
+ * indexed load. Writes to pages without a writable mapping (ROM banking, disabled ERAM and the I/O registers) go
+ * through the slower special cases.
  * TODO: Handle read only and write only memory addresses
  * TODO: Verify ROM1 - n is being switched. (HandleBanking() testing)
  */
@@ -31,23 +42,65 @@ public class MMU {
      * $FFFF is a single memory-mapped I/O register.
      */
     private byte[] bios = new byte[0x100];
-    private byte[] mem = new byte[0x10000];
-    private byte[] ramBanks = new byte[0x8000]; // Max of 4 RAM banks, 0x2000 each
+    private byte[][] mem = new byte[0x100][0x100];       // One array per 256 byte page
+    // Cartridge RAM in 8k banks of 0x20 pages. One bank until load sizes it from the header, up to 16 banks (128k).
+    private byte[][] ramBanks = new byte[0x20][0x100];
+    private byte[][] rom = new byte[0x80][0x100];        // Whole cartridge, loaded once. Banks are 0x40 pages each
+    private final byte[] io = mem[0xFF];                 // I/O registers and HRAM, 0xFF00 - 0xFFFF
+
+    /*
+     * Page tables. Page n covers 0xnn00 - 0xnnFF and holds the array backing it.
+     * A null write page means writes to it need special handling. Every page can be read directly, apart from the I/O
+     * registers in 0xFF00 - 0xFF7F, which getMemVal may bring up to date first.
+     */
+    private final byte[][] readPages = new byte[0x100][];
+    private final byte[][] writePages = new byte[0x100][];
+
+    // Handlers for the I/O registers in 0xFF00 - 0xFFFF that do more than store the value. Null means plain store.
+    private final IOWriteHandler[] ioWriteHandlers = new IOWriteHandler[0x100];
+    // Called before an I/O register is read, to bring it up to date. Null means the stored value is current.
+    private final Runnable[] ioReadSyncs = new Runnable[0x100];
+    // Handles writes to VRAM (0x8000 - 0x9FFF) and OAM (0xFE00 - 0xFE9F), so the GPU can catch up first
+    private IOWriteHandler videoWriteHandler = null;
+    private boolean biosMapped = false;     // Whether the bios covers 0x0000 - 0x00FF
 
     private String filename; // Game cartridge file pointer
 
-    // Interrupt Register Toggle @ $FFFF
-    private byte interruptEnabled = 0;
+    // Receives each byte sent over the serial port (0xFF01/0xFF02). Null when nothing is listening.
+    private IntConsumer serialListener = null;
+    private byte serialByte = 0;            // Byte being sent by the transfer in progress
+    private static final int SERIAL_TRANSFER_CYCLES = 4096;     // 8 bits at 8192hz
+    private static final int RTC_FOOTER = 48;                   // Clock bytes after the cartridge RAM in .sav files
+
+    // Machine clock and the hardware events scheduled on it
+    private final EventQueue events = new EventQueue();
+
+    // Interrupt Register Toggle @ $FFFF is stored in io[0xFF]
+    private final Interrupts interrupts = new Interrupts();
 
     /*
      *  RAM/ROM banking
      */
+    private Mapper mapper = new RomOnly(false);
+    private int cartridgeType = 0;      // Header byte 0x147
+    // Banks currently mapped in the page tables, updated from the mapper after every write to its registers
     private boolean enableERAM = false;
-    private boolean usesMBC1 = false;
-    private boolean usesMBC2 = false;
-    private byte currentRomBank = 1;    // Which ROM bank is currently loaded
+    private int currentLowRomBank = 0;  // ROM bank mapped to 0x0000 - 0x3FFF
+    private int currentRomBank = 1;     // ROM bank mapped to 0x4000 - 0x7FFF
     private int currentRAMBank = 0;
-    private boolean romBanking = true;
+    private boolean rtcMapped = false;  // Whether an MBC3 clock register is mapped to 0xA000 - 0xBFFF
+    private final byte[] rtcPage = new byte[0x100];     // Mapped to every ERAM page while a clock register is selected
+    private int bankSwitches = 0;       // ROM bank switches since the counter was last reset
+
+    /*
+     *  Battery backed RAM
+     */
+    // .sav file mapped over the cartridge RAM. Writes to ERAM go to both ramBanks and this buffer, and the OS writes
+    // the dirty pages back to disk. Null when the cartridge has no battery.
+    private MappedByteBuffer saveRam = null;
+    private int saveRamSize = 0;            // Bytes of saveRam holding cartridge RAM. The clock, if any, follows them.
+    private boolean saveRamDirty = false;   // Whether saveRam has been written to since it was last forced to disk
+    private boolean saveRamPersisted = true; // Whether load opens a .sav file at all
 
     /*
      *   Timer/Divider
@@ -58,11 +111,71 @@ public class MMU {
     private final int timerModulatorAdr = 0xFF06;
     private final int timerControllerAdr = 0xFF07;
     private final int dividerAdr = 0xFF04;
-    private int timerCounter = 1024;// CLOCKSPEED(4194304) / frequency(4096)
-    private int dividerCounter = 0;
+    private long dividerStart = 0;      // Time DIV was last reset. It counts up every 256 cycles from then.
+
+    // Pre-decoded blocks that must be dropped when the memory under them changes. Null when blocks aren't used.
+    private BlockCache blockCache = null;
 
 
     public MMU() {
+        // Everything starts out mapped straight onto mem
+        mapPages(0x00, 0x100, mem, 0, true);
+        mapPages(0x00, 0x80, rom, 0, false);
+        mapERAM();
+        for (int page = 0; page < 0x80; page++) {
+            writePages[page] = null;    // ROM writes are bank controls
+        }
+        for (int page = 0x80; page < 0xA0; page++) {
+            writePages[page] = null;    // VRAM writes go through videoWriteHandler
+        }
+        writePages[0xFE] = null;        // As do OAM writes
+        writePages[0xFF] = null;        // I/O writes go through ioWriteHandlers
+
+        events.setHandler(EventQueue.TIMER, this::incTimer);
+        events.setHandler(EventQueue.SERIAL, this::finishSerialTransfer);
+
+        // DIV is worked out from the time when it's read, rather than counted by an event every 256 cycles.
+        // Writing any value resets it.
+        ioReadSyncs[0x04] = () -> io[dividerAdr & 0xFF] = (byte) ((events.getTime() - dividerStart) >> 8);
+        ioWriteHandlers[0x04] = (adr, val) -> {
+            dividerStart = events.getTime();
+            io[dividerAdr & 0xFF] = 0;
+        };
+
+        ioWriteHandlers[0x02] = (adr, val) -> {
+            // Serial Transfer Control. Setting bit 7 with the internal clock (bit 0) starts sending the byte in 0xFF01.
+            // With no link cable attached 0xFF is shifted in, and the transfer ends after 8 bits at 8192hz.
+            if ((val & 0x81) == 0x81) {
+                byte next = io[0x01];
+                if (events.isScheduled(EventQueue.SERIAL)) {
+                    // A new transfer started before the last one finished, let the last one finish first
+                    events.cancel(EventQueue.SERIAL);
+                    finishSerialTransfer(events.getTime());
+                }
+                serialByte = next;
+                events.schedule(EventQueue.SERIAL, events.getTime() + SERIAL_TRANSFER_CYCLES);
+            }
+            io[0x02] = val;
+        };
+        ioWriteHandlers[0x07] = (adr, val) -> {
+            // Timer Controller. The timer restarts its count when it is started or its frequency changes.
+            boolean wasEnabled = isClockEnabled();
+            byte oldFreq = getClockFreq();
+            io[adr & 0xFF] = val;
+            if (!isClockEnabled()) {
+                events.cancel(EventQueue.TIMER);
+            } else if (!wasEnabled || getClockFreq() != oldFreq) {
+                events.schedule(EventQueue.TIMER, events.getTime() + getTimerPeriod());
+            }
+        };
+        // Reset scanline if tried to write to it
+        ioWriteHandlers[0x44] = (adr, val) -> io[0x44] = 0;
+        ioWriteHandlers[0x46] = (adr, val) -> {
+            // Direct Memory Access (DMA)
+            io[0x46] = val;
+            DMATransfer(val);
+        };
+
 //        try {
 //            RandomAccessFile fp = new RandomAccessFile("res/DMG_ROM.bin", "r");
 //            // First 16k is always stored in memory $0000 - $3FFF after booting
@@ -121,19 +234,111 @@ public class MMU {
      */
     public byte getMemVal(int adr) {
         adr &= 0xFFFF;
-        if (Emulator.inBios && adr < 0x100) {
-            return bios[adr];
-        }
-
-        if ((adr >= 0xA000) && (adr < 0xC000)) {
-            return ramBanks[(adr - 0xA000) + (currentRAMBank * 0x2000)];
-        } else {
-            if (adr == (short) 0xFFFF) {
-                return interruptEnabled;
-            } else {
-                return mem[adr];
+        if ((adr & 0xFF80) == 0xFF00) {
+            // I/O registers may need bringing up to date first. HRAM and IE are read straight from the page.
+            Runnable sync = ioReadSyncs[adr & 0xFF];
+            if (sync != null) {
+                sync.run();
             }
         }
+        return readPages[adr >> 8][adr & 0xFF];
+    }
+
+    /**
+     * Chooses whether battery backed RAM is kept in a .sav file. Must be called before load.
+     *
+     * @param persisted false to keep cartridge RAM in memory only, so every run starts from the same state
+     */
+    public void setSaveRamPersisted(boolean persisted) {
+        saveRamPersisted = persisted;
+    }
+
+    /**
+     * @param listener Called with each byte sent over the serial port, or null to drop them
+     */
+    public void setSerialListener(IntConsumer listener) {
+        serialListener = listener;
+    }
+
+    /**
+     * @return The clock and hardware events of the machine this memory belongs to
+     */
+    public EventQueue getEvents() {
+        return events;
+    }
+
+    /**
+     * Sets the handler for writes to an I/O register, replacing any handler already set.
+     *
+     * @param adr     Address of the register, 0xFF00 - 0xFFFF
+     * @param handler Performs the write
+     */
+    void setIOWriteHandler(int adr, IOWriteHandler handler) {
+        ioWriteHandlers[adr & 0xFF] = handler;
+    }
+
+    /**
+     * Sets what brings an I/O register up to date before it is read, replacing any already set.
+     *
+     * @param adr  Address of the register, 0xFF00 - 0xFF7F
+     * @param sync Called before each read, or null if the stored value is always current
+     */
+    void setIOReadSync(int adr, Runnable sync) {
+        ioReadSyncs[adr & 0xFF] = sync;
+    }
+
+    /**
+     * @param handler Performs writes to VRAM and OAM, or null to store them directly
+     */
+    void setVideoWriteHandler(IOWriteHandler handler) {
+        videoWriteHandler = handler;
+    }
+
+    /**
+     * Stores a value in VRAM or OAM without going through the video write handler, for use by the handler itself.
+     *
+     * @param adr Address in 0x8000 - 0x9FFF or 0xFE00 - 0xFEFF
+     * @param val Value to store
+     */
+    void storeVideo(int adr, byte val) {
+        mem[(adr >> 8) & 0xFF][adr & 0xFF] = val;
+    }
+
+    /**
+     * Reads VRAM or OAM directly, for the GPU drawing from them.
+     *
+     * @param adr Address in 0x8000 - 0x9FFF or 0xFE00 - 0xFEFF
+     * @return The stored value
+     */
+    byte loadVideo(int adr) {
+        return mem[(adr >> 8) & 0xFF][adr & 0xFF];
+    }
+
+    /**
+     * Reads an I/O register without bringing it up to date first, for use by whatever keeps it up to date.
+     *
+     * @param adr Address of the register, 0xFF00 - 0xFFFF
+     * @return The stored value
+     */
+    byte loadIO(int adr) {
+        return io[adr & 0xFF];
+    }
+
+    /**
+     * Stores a value in an I/O register without going through its write handler, for use by the handler itself.
+     *
+     * @param adr Address of the register, 0xFF00 - 0xFFFF
+     * @param val Value to store
+     */
+    void storeIO(int adr, byte val) {
+        io[adr & 0xFF] = val;
+    }
+
+    /**
+     * @return The interrupt state of the machine this memory belongs to
+     */
+    public Interrupts getInterrupts() {
+        return interrupts;
     }
 
     /**
@@ -144,38 +349,128 @@ public class MMU {
      */
     public void setMemVal(int adr, byte val) {
         adr &= 0xFFFF;
-        if (Emulator.inBios && adr < 0x100) {
-            return;
+        int page = adr >> 8;
+        byte[] target = writePages[page];
+        if (target != null) {
+            if (blockCache != null) {
+                blockCache.invalidate(adr);
+            }
+            target[adr & 0xFF] = val;
+        } else if (page == 0xFF) {
+            IOWriteHandler handler = ioWriteHandlers[adr & 0xFF];
+            if (blockCache != null) {
+                blockCache.invalidate(adr);
+            }
+            if (handler == null) {
+                io[adr & 0xFF] = val;
+            } else {
+                handler.write(adr, val);
+            }
+        } else if (page >= 0x80 && page < 0xA0 || page == 0xFE) {
+            if (blockCache != null) {
+                blockCache.invalidate(adr);
+            }
+            if (videoWriteHandler == null) {
+                storeVideo(adr, val);
+            } else {
+                videoWriteHandler.write(adr, val);
+            }
+        } else if (adr < 0x8000 && !(biosMapped && adr < 0x100)) {
+            handleBanking(adr, val);
+        } else if (enableERAM && adr >= 0xA000 && adr < 0xC000) {
+            if (rtcMapped) {
+                mapper.writeRtc(val);
+                Arrays.fill(rtcPage, mapper.readRtc());
+                saveRtc();
+            } else {
+                writeERAM(adr, val);
+            }
         }
+        // Otherwise the write is to disabled ERAM and is dropped
+    }
 
-        if (adr < 0x8000) {
-            handleBanking(adr, val);
-        } else if ((adr >= 0xA000 && adr < 0xC000)) {
-            if (enableERAM) {
-                ramBanks[adr - 0xA000 + (currentRAMBank * 0x2000)] = val;
+    /**
+     * Writes to ERAM which isn't mapped for writes: battery backed RAM, stored in both the RAM bank and the mapped save
+     * file, or the MBC2's RAM.
+     *
+     * @param adr Address in 0xA000 - 0xBFFF
+     * @param val Value to store
+     */
+    private void writeERAM(int adr, byte val) {
+        int page = (adr >> 8) - 0xA0 + getRamBankPage();
+        if (mapper instanceof MBC2) {
+            // 512 x 4 bits, repeated through 0xA000 - 0xBFFF. The upper 4 bits always read as 1.
+            invalidateBlocks(0xA000, 0xC000);
+            page = (adr >> 8) & 0x1;
+            val |= 0xF0;
+        } else if (blockCache != null) {
+            blockCache.invalidate(adr);
+        }
+        ramBanks[page][adr & 0xFF] = val;
+        int index = (page << 8) + (adr & 0xFF);
+        if (saveRam != null && index < saveRamSize) {
+            saveRam.put(index, val);
+            saveRamDirty = true;
+        }
+    }
+
+    /**
+     * Maps the pages [startPage, endPage) onto consecutive pages of a bank for reads, and optionally writes.
+     *
+     * @param startPage First page to map (address >> 8)
+     * @param endPage   Page after the last page to map
+     * @param backing   Pages to map
+     * @param first     Index in backing of the page mapped to startPage
+     * @param writable  Whether writes are stored to backing, otherwise the write pages are left untouched
+     */
+    private void mapPages(int startPage, int endPage, byte[][] backing, int first, boolean writable) {
+        for (int page = startPage; page < endPage; page++) {
+            readPages[page] = backing[first + page - startPage];
+            if (writable) {
+                writePages[page] = readPages[page];
             }
-        } else {
-            if (adr == 0xFF07) {
-                // Timer Controller
-                if (val != getClockFreq()) {
-                    mem[adr] = val;
-                    setClockFreq();
-                }
-            } else if (adr == 0xFF44) {
-                // Reset scanline if tried to write to it
-                mem[0xFF44] = 0;
+        }
+    }
 
-            } else if (adr == 0xFF46) {
-                // Direct Memory Access (DMA)
-                mem[0xFF46] = val;
-                DMATransfer(val);
+    /**
+     * @return Index in ramBanks of the first page of the current RAM bank. Banks past the end of the RAM wrap around.
+     */
+    private int getRamBankPage() {
+        return (currentRAMBank % (ramBanks.length / 0x20)) * 0x20;
+    }
 
-            } else if (adr == 0xFFFF) {
-                interruptEnabled = val;
-            } else {
-                mem[adr] = val;
+    /**
+     * Maps 0xA000 - 0xBFFF to the current RAM bank or clock register. Writes are only mapped while ERAM is enabled.
+     */
+    private void mapERAM() {
+        // Battery backed RAM, the MBC2's RAM and the clock are only mapped for reads, writes take the special path
+        boolean writable = enableERAM && saveRam == null && !rtcMapped && !(mapper instanceof MBC2);
+        if (rtcMapped) {
+            Arrays.fill(readPages, 0xA0, 0xC0, rtcPage);
+        } else if (mapper instanceof MBC2) {
+            for (int page = 0xA0; page < 0xC0; page++) {
+                readPages[page] = ramBanks[page & 0x1];
             }
+        } else {
+            mapPages(0xA0, 0xC0, ramBanks, getRamBankPage(), writable);
         }
+        if (!writable) {
+            for (int page = 0xA0; page < 0xC0; page++) {
+                writePages[page] = null;
+            }
+        }
+        invalidateBlocks(0xA000, 0xC000);
+    }
+
+    /**
+     * Maps the bios over 0x0000 - 0x00FF, or unmaps it to reveal the cartridge.
+     *
+     * @param mapped true while the bios is running
+     */
+    public void setBiosMapped(boolean mapped) {
+        biosMapped = mapped;
+        readPages[0] = mapped ? bios : mem[0];
+        invalidateBlocks(0x0000, 0x0100);
     }
 
     /**
@@ -213,14 +508,6 @@ public class MMU {
         return BitUtils.mergeBytes(valUpper, valLower);
     }
 
-    /**
-     * Increment the scanline register
-     */
-    void incScanline() {
-        mem[0xFF44]++;
-//        zram[0xFF44]++;
-    }
-
     /**
      * Load a GameBoy Application into memory
      *
@@ -230,227 +517,365 @@ public class MMU {
         this.filename = filename;
         System.out.println("Loading ROM: " + filename);
 
-        // Load homebank
-        loadHomeRom();
+        // Read the whole cartridge and pick the mapper for the type of MBC used
+        loadCartridge();
+        cartridgeType = rom[1][0x47] & 0xFF;
+        mapper = createMapper(cartridgeType);
+        ramBanks = new byte[Math.max(0x2000, getRamSize()) >> 8][0x100];
+
+        // Map the banks the mapper starts with
+        currentLowRomBank = -1;
+        currentRomBank = -1;
+        enableERAM = false;
+        currentRAMBank = 0;
+        rtcMapped = false;
+        if (mapper instanceof MBC2) {
+            Arrays.fill(ramBanks[0], (byte) 0xF0);
+            Arrays.fill(ramBanks[1], (byte) 0xF0);
+        }
+        mapERAM();
+        updateBanks();
+
+        // Battery backed RAM and the clock are kept in a .sav file next to the ROM
+        saveRam = null;
+        saveRamSize = 0;
+        if (saveRamPersisted && hasBattery() && (getRamSize() > 0 || mapper.hasRtc())) {
+            openSaveRam(filename.replaceFirst("\\.[^.\\\\/]*$", "") + ".sav", getRamSize());
+        }
 
-        // Load bank1 to store at 0x4000 - 0x7FFF
-        loadBank(currentRomBank);
+        System.out.println("Loaded ROM: " + filename);
+    }
+
+    /**
+     * Creates the mapper for a cartridge type
+     *
+     * @param type Cartridge type, header byte 0x147
+     * @return The matching mapper. Unknown types are treated as ROM only.
+     */
+    private Mapper createMapper(int type) {
+        switch (type) {
+            case 0x01:
+            case 0x02:
+            case 0x03:
+                return new MBC1();
+            case 0x05:
+            case 0x06:
+                return new MBC2();
+            case 0x0F:
+            case 0x10:
+                return new MBC3(true);
+            case 0x11:
+            case 0x12:
+            case 0x13:
+                return new MBC3(false);
+            case 0x19:
+            case 0x1A:
+            case 0x1B:
+            case 0x1C:
+            case 0x1D:
+            case 0x1E:
+                return new MBC5();
+            case 0x00:
+                return new RomOnly(false);
+            case 0x08:
+            case 0x09:
+                return new RomOnly(true);
+            default:
+                System.err.println("Unsupported cartridge type: " + String.format("0x%02X", type));
+                return new RomOnly(false);
+        }
+    }
+
+    /**
+     * Checks the cartridge type in the header for a battery.
+     *
+     * @return true if the cartridge RAM is battery backed
+     */
+    private boolean hasBattery() {
+        switch (cartridgeType) {
+            case 0x03:
+            case 0x06:
+            case 0x09:
+            case 0x0D:
+            case 0x0F:
+            case 0x10:
+            case 0x13:
+            case 0x1B:
+            case 0x1E:
+            case 0xFF:
+                return true;
+            default:
+                return false;
+        }
+    }
 
-        // State the type of MBC used
-        switch (getMemVal(0x147)) {
+    /**
+     * Reads the size of the cartridge RAM from the header.
+     *
+     * @return Size of the cartridge RAM in bytes
+     */
+    private int getRamSize() {
+        if (mapper instanceof MBC2) {
+            // 512 x 4 bits built into the MBC2
+            return 0x200;
+        }
+        switch (rom[1][0x49]) {
             case 1:
+                return 0x800;
             case 2:
+                return 0x2000;
             case 3:
-                usesMBC1 = true;
-                break;
+                return 0x8000;
+            case 4:
+                return 0x20000;
             case 5:
-            case 6:
-                usesMBC2 = true;
-                break;
+                return 0x10000;
             default:
-                break;
+                return 0;
         }
-
-        System.out.println("Loaded ROM: " + filename);
     }
 
     /**
-     * Loads the home rom bank (rom0) into 0x0000 - 0x3FFF
+     * Maps a save file over the cartridge RAM, creating it if it doesn't exist, and loads its contents into ramBanks.
+     * If the cartridge has a clock, it's loaded from the 48 bytes after the RAM, or saved there if they're missing.
      *
+     * @param savename Path of the .sav file
+     * @param size     Size of the cartridge RAM in bytes
      */
-    private void loadHomeRom() {
-        // First 16k is always stored in memory $0000 - $3FFF after booting
-        byte b;
+    private void openSaveRam(String savename, int size) {
         try {
-            RandomAccessFile fp = new RandomAccessFile(filename, "r");
-            for (int i = 0x00; i < 0x4000; i++) {
-                b = fp.readByte();
-                mem[i] = b;
-            }
+            RandomAccessFile fp = new RandomAccessFile(savename, "rw");
+            boolean hasClock = fp.length() >= size + RTC_FOOTER;
+            // Mapping past the end of the file grows it. The mapping stays valid once the file is closed.
+            saveRam = fp.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size + (mapper.hasRtc() ? RTC_FOOTER : 0));
+            saveRamSize = size;
             fp.close();
-        } catch (EOFException eof) {
-            System.err.println("End of file reached before loading home bank.");
+
+            for (int i = 0; i < size; i += 0x100) {
+                saveRam.position(i);
+                saveRam.get(ramBanks[i >> 8], 0, Math.min(0x100, size - i));
+            }
+            saveRam.position(0);
+            if (mapper instanceof MBC2) {
+                for (int i = 0; i < size; i++) {
+                    ramBanks[i >> 8][i & 0xFF] |= 0xF0;
+                }
+            }
+            if (mapper.hasRtc()) {
+                if (hasClock) {
+                    mapper.loadRtc(getRtcFooter());
+                } else {
+                    saveRtc();
+                }
+            }
+            System.out.println("Loaded save: " + new File(savename).getPath());
         } catch (IOException ioe) {
-            System.err.println("Error reading file");
+            System.err.println("Error opening save file");
+            saveRam = null;
+            saveRamSize = 0;
         }
+        mapERAM();
     }
 
+    /**
+     * @return The clock's 48 bytes after the cartridge RAM in saveRam, little endian
+     */
+    private ByteBuffer getRtcFooter() {
+        ByteBuffer footer = saveRam.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        footer.position(saveRamSize);
+        return footer;
+    }
 
     /**
-     * Loads a new rom bank into paged memory 0x4000 - 0x7FFF.
-     *
-     * @param bank The rom bank to load. Bank=0 will not be loaded.
+     * Writes the cartridge's clock after the cartridge RAM in the save file, if it has both.
      */
-    private void loadBank(int bank) {
-        if (bank == 0) {
-            return;
+    private void saveRtc() {
+        if (saveRam != null && mapper.hasRtc()) {
+            mapper.saveRtc(getRtcFooter());
+            saveRamDirty = true;
         }
-        byte b;
+    }
+
+    /**
+     * Forces any writes to battery backed RAM out to the save file, along with the clock if the cartridge has one.
+     * Without a clock, does nothing if nothing was written since the last flush, so it is cheap to call whenever a game
+     * disables ERAM.
+     */
+    public void flushSaveRam() {
+        saveRtc();
+        if (saveRam != null && saveRamDirty) {
+            saveRam.force();
+            saveRamDirty = false;
+        }
+    }
+
+    /**
+     * Reads the whole cartridge into rom, once. The image is padded to a whole number of 16k banks, and at least two.
+     */
+    private void loadCartridge() {
         try {
             RandomAccessFile fp = new RandomAccessFile(filename, "r");
-            fp.seek(0x4000 * bank);
-            for (int i = 0x4000 * bank; i < 0x4000 * (bank + 1); i++) {
-                b = fp.readByte();
-                mem[i] = b;
-            }
+            long length = fp.length();
+            int banks = (int) Math.max(2, (length + 0x3FFF) / 0x4000);
+            byte[] image = new byte[banks * 0x4000];
+            fp.readFully(image, 0, (int) length);
             fp.close();
+
+            rom = new byte[banks * 0x40][0x100];
+            for (int page = 0; page < rom.length; page++) {
+                System.arraycopy(image, page << 8, rom[page], 0, 0x100);
+            }
         } catch (EOFException eof) {
             System.err.println("End of file reached before loading home bank.");
         } catch (IOException ioe) {
             System.err.println("Error reading file");
         }
     }
+
     /**
-     * Handles requests to change ROM/RAM banks.
-     *
-     * @param adr Requested address to write to.
-     * @param val Value to write to address.
+     * Maps the banks selected by the mapper's registers, remapping only what changed.
      */
-    private void handleBanking(int adr, byte val) {
-        adr &= 0xFFFF;
-        // Handles RAM/ROM bank selections
-        if (adr < 0x2000) {
-            if (usesMBC2 || usesMBC1) {
-                enableERAMCheck(adr, val);
-            }
-        } else if (adr < 0x4000) {
-            // ROM Bank change
-            if (usesMBC2 || usesMBC1) {
-                // LowRom Bank
-                romBankChange(adr, val);
-            }
-        } else if (adr < 0x6000) {
-            // No RAM bank in mbc2. Always use ram bank 0
-            if (usesMBC1) {
-                if (romBanking) {
-                    // HiRom Bank
-                    romBankChange(adr, val);
-                } else {
-                    ramBankChange(val);
-                }
+    private void updateBanks() {
+        int banks = rom.length / 0x40;
+        if (mapper.getLowRomBank() != currentLowRomBank) {
+            currentLowRomBank = mapper.getLowRomBank();
+            mapPages(0x00, 0x40, rom, (currentLowRomBank % banks) * 0x40, false);
+            if (biosMapped) {
+                readPages[0] = bios;
             }
-        } else if (adr < 0x8000) {
-            romRamModeSwitch(val);
+            bankSwitches++;
+            invalidateBlocks(0x0000, 0x4000);
+        }
+        if (mapper.getRomBank() != currentRomBank) {
+            // Banks past the end of the cartridge wrap around
+            currentRomBank = mapper.getRomBank();
+            mapPages(0x40, 0x80, rom, (currentRomBank % banks) * 0x40, false);
+            bankSwitches++;
+            invalidateBlocks(0x4000, 0x8000);
+        }
+
+        boolean wasEnabled = enableERAM;
+        if (mapper.isRamEnabled() != enableERAM || mapper.getRamBank() != currentRAMBank
+                || mapper.isRtcSelected() != rtcMapped) {
+            enableERAM = mapper.isRamEnabled();
+            currentRAMBank = mapper.getRamBank();
+            rtcMapped = mapper.isRtcSelected();
+            mapERAM();
+        }
+        if (rtcMapped) {
+            Arrays.fill(rtcPage, mapper.readRtc());
+        }
+        if (wasEnabled && !enableERAM) {
+            // Games disable ERAM once they are done saving
+            flushSaveRam();
         }
     }
 
     /**
-     * When 0xA is written to to 0xA000 - 0xBFFF, the ERAM can be enabled.
-     * If MBC2 is enabled bit 4 must be 0 to enable
-     *
-     * @param adr Address of memory being written to
-     * @param val Value of byte being written to
+     * @return Number of ROM bank switches since the last call to resetBankSwitches
      */
-    private void enableERAMCheck(int adr, byte val) {
-        if (usesMBC2) {
-            // When using mbc2, bit 4 of address must be 0 to enable
-            if (BitUtils.testBit(adr, 4)) return;
-        }
+    public int getBankSwitches() {
+        return bankSwitches;
+    }
 
-        // Data must be 0xA to enable ERAM
-        switch (val & 0xF) {
-            case 0xA:
-                enableERAM = true;
-                break;
-            case 0x0:
-                enableERAM = false;
-        }
+    /**
+     * Starts counting ROM bank switches from zero, e.g. at the start of a frame.
+     */
+    public void resetBankSwitches() {
+        bankSwitches = 0;
     }
 
     /**
-     * Handles ROM bank changing for when the game writes data to address 0x2000 - 0x3FFF and 0x4000 - 0x5FFF
+     * Sets the cache of decoded blocks that is notified when memory is written to or banks are switched.
      *
-     * @param val Byte value of data to be written to an address
+     * @param blockCache The cache, or null to stop notifying.
      */
-    private void romBankChange(int adr, byte val) {
-        adr &= 0xFFFF;
-        if (adr >= 0x2000 && adr < 0x4000) {
-            // ROM bank changing
-            if (usesMBC2) {
-                currentRomBank = (byte) (val & 0xF);
-                if (currentRomBank == 0) {
-                    // Bank 0 never changes, trying to change it results in changing bank 1
-                    currentRomBank++;
-                }
-                loadBank(currentRomBank);
-            } else if (usesMBC1) {
-                // mbc1 means the lower 5bits of current rom bank is set to lower 5 bits of val
-                byte lowerFiveBits = (byte) (val & 0x1F);
-                currentRomBank = (byte) ((currentRomBank & 0xE0) + lowerFiveBits);
-                if (currentRomBank == 0) {
-                    currentRomBank++;
-                }
-                loadBank(currentRomBank);
-            }
-        } else if (adr >= 0x4000 && adr < 0x6000) {
-            // ROM/RAM bank change
-            if (usesMBC1 || usesMBC2) {
-                // Turn off lower 5 bits of data and combine with upper 3 bits of current ROM bank
-                currentRomBank &= 0xE0;
-                currentRomBank |= (val & 0xE0);
-                if (currentRomBank == 0) {
-                    currentRomBank++;
-                }
-                loadBank(currentRomBank);
-            }
-        }
+    void setBlockCache(BlockCache blockCache) {
+        this.blockCache = blockCache;
     }
 
     /**
-     * Changes the RAM bank. Only mbc1 can change RAM banks. The game must write to address 0x4000 - 0x5FFF, romBanking must be false.
+     * Drops every decoded block starting in [start, end), as the memory mapped there has changed.
      *
-     * @param val A byte value of data to be written to address 0x4000 - 0x5FFF
+     * @param start First address of the remapped region
+     * @param end   Address after the remapped region
      */
-    private void ramBankChange(byte val) {
-        // currentRAMBank gets set to the lower 2 bits of val
-        if (!usesMBC2 && usesMBC1) {
-            currentRAMBank = val & 0x3;
+    private void invalidateBlocks(int start, int end) {
+        if (blockCache != null) {
+            blockCache.invalidateRange(start, end);
         }
     }
 
     /**
-     * Changes between ROM/RAM modes. If LSB of val == 0 then rom banking is enabled.
+     * Handles requests to change ROM/RAM banks.
      *
-     * @param val A byte value written to an address in memory
+     * @param adr Requested address to write to.
+     * @param val Value to write to address.
      */
-    private void romRamModeSwitch(byte val) {
-        romBanking = !BitUtils.testBit(val, 0);
-        if (romBanking) {
-            currentRAMBank = 0;
-        }
+    private void handleBanking(int adr, byte val) {
+        mapper.write(adr, val);
+        updateBanks();
     }
 
     /**
-     * Update the timer and divider registers
-     * @param cycles Number of cpu cycles passed
+     * Increments the timer (0xFF05). When it overflows it is reloaded from the timer modulator (0xFF06) and a timer
+     * interrupt is requested.
+     *
+     * @param time Time the increment was due, in CPU cycles
      */
-    void updateTimers(int cycles) {
-        // Update the divider register
-        dividerCounter += cycles;
-        if (dividerCounter >= 255) {
-            dividerCounter = 0;
-            incDividerRegister();
+    private void incTimer(long time) {
+        if (getMemVal(timerAdr) == (byte) 0xFF) {
+            // Timer overflow handling
+            setMemVal(timerAdr, getMemVal(timerModulatorAdr));
+            interrupts.requestInterrupt(this, new Interrupt("Timer Overflow", "MMU - incTimer()", 2));
+        } else {
+            setMemVal(timerAdr, (byte) (getMemVal(timerAdr) + 1));
         }
+        events.schedule(EventQueue.TIMER, time + getTimerPeriod());
+    }
 
-        if (isClockEnabled()) {
-            timerCounter -= cycles;
-
-            // Enough CPU cycles passed to update the timer
-            if (timerCounter <= 0) {
-                // reset timerCounter
-                setClockFreq();
+    /**
+     * @return Time the timer will next overflow and request an interrupt, or Long.MAX_VALUE if it is stopped
+     */
+    long getTimerOverflowTime() {
+        if (!events.isScheduled(EventQueue.TIMER)) {
+            return Long.MAX_VALUE;
+        }
+        return events.getTime(EventQueue.TIMER) + (long) (0xFF - (getMemVal(timerAdr) & 0xFF)) * getTimerPeriod();
+    }
 
+    /**
+     * Performs every timer increment due before a time in one go, without an event for each. Only for when nothing
+     * can read the timer in the meantime (the CPU is halted), and until must not be past the next overflow.
+     *
+     * @param until Time in CPU cycles
+     */
+    void skipTimer(long until) {
+        if (!events.isScheduled(EventQueue.TIMER)) {
+            return;
+        }
+        long next = events.getTime(EventQueue.TIMER);
+        if (next < until) {
+            int period = getTimerPeriod();
+            long increments = (until - next + period - 1) / period;
+            setMemVal(timerAdr, (byte) (getMemVal(timerAdr) + increments));
+            events.schedule(EventQueue.TIMER, next + increments * period);
+        }
+    }
 
-                // Updating timer
-                if (getMemVal(timerAdr) == (byte) 0xFF) {
-                    // Timer overflow handling
-                    setMemVal(timerAdr, getMemVal(timerModulatorAdr));
-                    Interrupts.requestInterrupt(this, new Interrupt("Timer Overflow", "MMU - updateTimers()", 2));
-                } else {
-                    setMemVal(timerAdr, (byte) (getMemVal(timerAdr) + 1));
-                }
-            }
+    /**
+     * Ends a serial transfer: the byte sent goes to the listener, 0xFF has been received in its place, and a serial
+     * interrupt is requested.
+     *
+     * @param time Time the transfer ended, in CPU cycles
+     */
+    private void finishSerialTransfer(long time) {
+        if (serialListener != null) {
+            serialListener.accept(serialByte & 0xFF);
         }
+        io[0x01] = (byte) 0xFF;
+        io[0x02] &= 0x7F;
+        interrupts.requestInterrupt(this, new Interrupt("Serial", "Transfer complete", 3));
     }
 
     /**
@@ -466,36 +891,25 @@ public class MMU {
      * @return a byte representing the number of CPU cycles performed before the timer is incremented
      */
     private byte getClockFreq() {
-        return (byte) (mem[timerControllerAdr] & 0x3);
+        return (byte) (io[timerControllerAdr & 0xFF] & 0x3);
     }
 
     /**
-     * Changes the frequency of timer updates, to be the value stored in the timer modulator register
+     * @return Number of CPU cycles between timer increments, from the frequency selected in 0xFF07
      */
-    private void setClockFreq() {
+    private int getTimerPeriod() {
         switch (getClockFreq() & 0x3) {
             case 0:
-                timerCounter = (byte) 1024; // 4096hz
-                break;
+                return 1024; // 4096hz
             case 1:
-                timerCounter = (byte) 16; // 262144hz
-                break;
+                return 16; // 262144hz
             case 2:
-                timerCounter = (byte) 64; // 65536hz
-                break;
-            case 3:
-                timerCounter = (byte) 256; // 16382hz
-                break;
+                return 64; // 65536hz
+            default:
+                return 256; // 16384hz
         }
     }
 
-    /**
-     * Increments the divider register, so it doesn't get reset
-     */
-    private void incDividerRegister() {
-        mem[dividerAdr]++;
-    }
-
     /**
      * Transfer 0xA0 worth of memory from RAM/ROM ($0000-$F100) to OAM memory starting at 0xFE00.
      *
@@ -516,9 +930,9 @@ public class MMU {
      * @return String containing values of important registers
      */
     public String toString() {
-        return "LCDC:" + String.format("0x%02X", this.mem[0xFF40]) + " " +
-                "stat:" + String.format("0x%02X", this.mem[0xFF41]) + " " +
-                "ly:" + String.format("0x%02X", this.mem[0xFF44]) + " ";
+        return "LCDC:" + String.format("0x%02X", this.io[0x40]) + " " +
+                "stat:" + String.format("0x%02X", this.io[0x41]) + " " +
+                "ly:" + String.format("0x%02X", this.io[0x44]) + " ";
     }
 
     /**
@@ -555,4 +969,19 @@ public class MMU {
         }
         return sb.toString();
     }
-}
\ No newline at end of file
+}
+
+
+/**
+ * Interface for I/O registers and memory which do more than store the written value
+ */
+@FunctionalInterface
+interface IOWriteHandler {
+    /**
+     * Performs a write to an I/O register
+     *
+     * @param adr Address of the register, 0xFF00 - 0xFFFF
+     * @param val Value being written
+     */
+    void write(int adr, byte val);
+}
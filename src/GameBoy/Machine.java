@@ -0,0 +1,199 @@
+package GameBoy;
+
+import java.io.PrintStream;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: Machine
+ * Description: A complete GameBoy: registers, CPU, memory (with the cartridge mapper, timers and interrupt state) and
+ * GPU. Machines share no state with each other, so any number of them can run in one JVM, each on its own thread.
+ * A machine must only be used by one thread at a time.
+ */
+public class Machine {
+    private final Registers regs = new Registers();
+    private final MMU mmu = new MMU();
+    private final CPU cpu = new CPU(mmu, regs);
+    private final GPU gpu;
+    private final Display display;
+
+    private boolean blocks = false;         // Execute cached basic blocks instead of single instructions
+    private long frames = 0;                // Frames completed
+    private long totalCycles = 0;           // CPU cycles executed
+    private long haltedCycles = 0;          // Cycles skipped over while the CPU was halted
+    private long instructions = 0;          // Instructions executed
+    private int lastFrameBankSwitches = 0;  // ROM bank switches during the last complete frame
+
+    /**
+     * Creates a machine drawing to display
+     *
+     * @param display Where the GPU sends finished frames
+     */
+    public Machine(Display display) {
+        this.display = display;
+        this.gpu = new GPU(mmu, display);
+    }
+
+    /**
+     * Creates a headless machine, drawing into a FrameBuffer.
+     */
+    public Machine() {
+        this(new FrameBuffer());
+    }
+
+    /**
+     * Loads a ROM and sets the program counter to the cartridge entry point (0x100).
+     *
+     * @param filename Path of the ROM
+     */
+    public void load(String filename) {
+        mmu.load(filename);
+        regs.setPC((short) 0x100);
+    }
+
+    /**
+     * Turns block execution on or off. See CPU.runNextBlock.
+     *
+     * @param enabled true to execute cached blocks
+     */
+    public void setBlocks(boolean enabled) {
+        blocks = enabled;
+        cpu.setBlockCacheEnabled(enabled);
+    }
+
+    /**
+     * @param serialOut Stream to print bytes sent over the serial port to, or null to drop them
+     */
+    public void setSerialOut(PrintStream serialOut) {
+        mmu.setSerialListener(serialOut == null ? null : b -> serialOut.print((char) b));
+    }
+
+    /**
+     * Runs instructions (or blocks) until the next event is due, then performs the events: GPU modes and scanlines,
+     * timer increments and serial transfers, and handles any interrupts they request.
+     * While the CPU is halted, skips straight to the next event instead. Never runs past the end of the frame.
+     *
+     * @return The number of cycles executed
+     */
+    public int step() {
+        EventQueue events = mmu.getEvents();
+        Interrupts interrupts = mmu.getInterrupts();
+        long start = events.getTime();
+        long frameEnd = start + cpu.maxCycles - cpu.clockCycles;
+
+        if (cpu.isHalted()) {
+            // Nothing can read the timer while halted, so its increments up to the next interrupt are done at once
+            long until = Math.max(start, Math.min(getWakeTime(), frameEnd));
+            mmu.skipTimer(until);
+            events.advance(until - start);
+            haltedCycles += until - start;
+        } else {
+            do {
+                events.advance(blocks ? cpu.runNextBlock() : cpu.runNextOpCode());
+                instructions += blocks ? cpu.getLastBlockLength() : 1;
+
+                // Instructions can enable interrupts or request them by writing to 0xFF0F
+                if (interrupts.isMasterEnabled() && cpu.isInterruptPending()) {
+                    interrupts.handleInterrupts(mmu, regs);
+                }
+            } while (events.getTime() < Math.min(events.getNextTime(), frameEnd) && !cpu.isHalted());
+        }
+
+        events.runDue();
+
+        // Handle Interrupts, waking the CPU first if one it is waiting for has been requested
+        cpu.updateHalted();
+        interrupts.handleInterrupts(mmu, regs);
+
+        int cycles = (int) (events.getTime() - start);
+        cpu.clockCycles += cycles;
+        totalCycles += cycles;
+        return cycles;
+    }
+
+    /**
+     * @return When the halted CPU may next be woken: the next event other than a timer increment, or the timer
+     * overflowing. Long.MAX_VALUE if nothing is scheduled that could wake it. The current time if it isn't halted.
+     */
+    public long getWakeTime() {
+        EventQueue events = mmu.getEvents();
+        if (!cpu.isHalted()) {
+            return events.getTime();
+        }
+        return Math.min(events.getNextTime(EventQueue.TIMER), mmu.getTimerOverflowTime());
+    }
+
+    /**
+     * Runs until a frame's worth of cycles (CPU.maxCycles) has been executed.
+     */
+    public void runFrame() {
+        while (cpu.clockCycles < cpu.maxCycles) {
+            step();
+        }
+        endFrame();
+    }
+
+    /**
+     * Finishes the current frame. Called by runFrame, or by callers stepping through a frame themselves.
+     */
+    public void endFrame() {
+        cpu.clockCycles = 0;
+        frames++;
+        lastFrameBankSwitches = mmu.getBankSwitches();
+        mmu.resetBankSwitches();
+    }
+
+    public Registers getRegisters() {
+        return regs;
+    }
+
+    public MMU getMMU() {
+        return mmu;
+    }
+
+    public CPU getCPU() {
+        return cpu;
+    }
+
+    public GPU getGPU() {
+        return gpu;
+    }
+
+    public Display getDisplay() {
+        return display;
+    }
+
+    /**
+     * @return Number of frames completed
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return Number of CPU cycles executed
+     */
+    public long getTotalCycles() {
+        return totalCycles;
+    }
+
+    /**
+     * @return Number of instructions executed
+     */
+    public long getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * @return Number of CPU cycles skipped over while halted
+     */
+    public long getHaltedCycles() {
+        return haltedCycles;
+    }
+
+    /**
+     * @return ROM bank switches during the last complete frame
+     */
+    public int getLastFrameBankSwitches() {
+        return lastFrameBankSwitches;
+    }
+}
@@ -0,0 +1,261 @@
+package GameBoy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: MachineScheduler
+ * Description: Hosts many machines in one process, running each machine's frame loop on its own thread. Threads come
+ * from a virtual thread factory when the JVM has one (Java 21+), so thousands of mostly idle machines cost no
+ * platform thread each; older JVMs fall back to daemon platform threads.
+ *
+ * A machine's thread parks, using no CPU, while:
+ *
+ *      1. The machine is paused, until it is resumed.
+ *
+ *      2. The machine is throttled to real time and is ahead of schedule, until its FramePacer says the cycles run
+ *      so far are due.
+ *
+ *      3. The machine's CPU is halted with nothing scheduled that could wake it, until it is stopped.
+ */
+public class MachineScheduler {
+    private final ThreadFactory threadFactory;
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+    private final LongAdder frames = new LongAdder();   // Frames completed by every machine
+
+    // Last sample taken by getFramesPerSecond
+    private long sampleNanos = System.nanoTime();
+    private long sampleFrames = 0;
+
+    /**
+     * A machine's frame loop and its scheduling state.
+     */
+    public class Session implements Runnable {
+        private final Machine machine;
+        private final boolean throttled;        // Run at real time rather than as fast as possible
+        private Thread thread;
+        private volatile boolean paused = false;
+        private volatile boolean parked = false;
+        private volatile boolean stopped = false;
+        private volatile RuntimeException error = null;  // What ended the loop, if the machine crashed
+        private final FramePacer pacer;         // Holds the machine to real time, if throttled
+
+        private Session(Machine machine, boolean throttled) {
+            this.machine = machine;
+            this.throttled = throttled;
+            this.pacer = throttled ? new FramePacer(System::nanoTime, this::park) : null;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!stopped) {
+                    if (paused || machine.getWakeTime() == Long.MAX_VALUE) {
+                        // Paused, or halted with no event or timer overflow due that could ever wake it
+                        park(0);
+                        if (throttled) {
+                            pacer.reset();
+                        }
+                        continue;
+                    }
+
+                    machine.runFrame();
+                    frames.increment();
+
+                    if (throttled) {
+                        pacer.pace(machine.getTotalCycles());
+                    }
+                }
+            } catch (RuntimeException e) {
+                error = e;
+            } finally {
+                sessions.remove(this);
+            }
+        }
+
+        /**
+         * Parks the session's thread.
+         *
+         * @param nanos How long to park for, or 0 to park until unparked
+         */
+        private void park(long nanos) {
+            parked = true;
+            if (nanos > 0) {
+                LockSupport.parkNanos(this, nanos);
+            } else {
+                LockSupport.park(this);
+            }
+            parked = false;
+        }
+
+        /**
+         * Stops running frames after the current one. The thread parks until resume is called.
+         */
+        public void pause() {
+            paused = true;
+        }
+
+        public void resume() {
+            paused = false;
+            LockSupport.unpark(thread);
+        }
+
+        /**
+         * Ends the frame loop after the current frame.
+         */
+        public void stop() {
+            stopped = true;
+            LockSupport.unpark(thread);
+        }
+
+        public Machine getMachine() {
+            return machine;
+        }
+
+        public Thread getThread() {
+            return thread;
+        }
+
+        public boolean isPaused() {
+            return paused;
+        }
+
+        /**
+         * @return Whether the thread is currently parked, paused or waiting for its next frame
+         */
+        public boolean isParked() {
+            return parked;
+        }
+
+        /**
+         * @return The exception that ended the machine's loop, or null
+         */
+        public RuntimeException getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Creates a scheduler using virtual threads if the JVM has them.
+     */
+    public MachineScheduler() {
+        this(createThreadFactory());
+    }
+
+    /**
+     * @param threadFactory Creates the thread each machine runs on
+     */
+    public MachineScheduler(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Looks up Thread.ofVirtual().factory() by reflection, so this still compiles and runs on JVMs without it.
+     *
+     * @return A virtual thread factory, or one making daemon platform threads
+     */
+    public static ThreadFactory createThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return r -> {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                return t;
+            };
+        }
+    }
+
+    /**
+     * @return Whether machines run on virtual threads
+     */
+    public boolean isVirtual() {
+        Thread t = threadFactory.newThread(() -> {
+        });
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(t);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts running a machine's frame loop.
+     *
+     * @param machine   A loaded machine
+     * @param throttled true to run at real time (59.73 frames/s), false to run as fast as possible
+     * @param paused    true to start paused
+     * @return The machine's session
+     */
+    public Session start(Machine machine, boolean throttled, boolean paused) {
+        Session session = new Session(machine, throttled);
+        session.paused = paused;
+        session.thread = threadFactory.newThread(session);
+        sessions.add(session);
+        session.thread.start();
+        return session;
+    }
+
+    /**
+     * Stops every machine and waits for their threads to finish.
+     */
+    public void shutdown() throws InterruptedException {
+        List<Session> running = new ArrayList<>(sessions);
+        for (Session session : running) {
+            session.stop();
+        }
+        for (Session session : running) {
+            session.thread.join();
+        }
+    }
+
+    /**
+     * @return Number of machines running or paused
+     */
+    public int getInstances() {
+        return sessions.size();
+    }
+
+    /**
+     * @return Number of machines whose thread is parked
+     */
+    public int getParked() {
+        int parked = 0;
+        for (Session session : sessions) {
+            if (session.parked) {
+                parked++;
+            }
+        }
+        return parked;
+    }
+
+    /**
+     * @return Frames completed by all machines
+     */
+    public long getTotalFrames() {
+        return frames.sum();
+    }
+
+    /**
+     * @return Frames per second completed by all machines since the last call
+     */
+    public synchronized double getFramesPerSecond() {
+        long now = System.nanoTime();
+        long total = frames.sum();
+        double fps = (total - sampleFrames) * 1e9 / Math.max(1, now - sampleNanos);
+        sampleNanos = now;
+        sampleFrames = total;
+        return fps;
+    }
+
+    public String toString() {
+        return String.format("Machines: %d, parked: %d, %d frames total", getInstances(), getParked(),
+                getTotalFrames());
+    }
+}
@@ -0,0 +1,89 @@
+package GameBoy;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: Mapper
+ * Description: Memory bank controller (MBC) of a cartridge. A mapper only keeps track of the registers games write
+ * to 0x0000 - 0x7FFF. The MMU reads the selected banks back and maps them out of the single loaded ROM image and the
+ * cartridge RAM into its page tables.
+ */
+interface Mapper {
+    /**
+     * Handles a write to the mapper's registers
+     *
+     * @param adr Address being written to, 0x0000 - 0x7FFF
+     * @param val Value being written
+     */
+    void write(int adr, byte val);
+
+    /**
+     * @return ROM bank mapped to 0x0000 - 0x3FFF
+     */
+    default int getLowRomBank() {
+        return 0;
+    }
+
+    /**
+     * @return ROM bank mapped to 0x4000 - 0x7FFF
+     */
+    int getRomBank();
+
+    /**
+     * @return RAM bank mapped to 0xA000 - 0xBFFF
+     */
+    default int getRamBank() {
+        return 0;
+    }
+
+    /**
+     * @return true if 0xA000 - 0xBFFF can be written to
+     */
+    boolean isRamEnabled();
+
+    /**
+     * @return true if a clock register is mapped to 0xA000 - 0xBFFF instead of RAM
+     */
+    default boolean isRtcSelected() {
+        return false;
+    }
+
+    /**
+     * @return Value of the selected clock register
+     */
+    default byte readRtc() {
+        return 0;
+    }
+
+    /**
+     * Sets the selected clock register
+     *
+     * @param val New value of the register
+     */
+    default void writeRtc(byte val) {
+    }
+
+    /**
+     * @return true if the cartridge has a clock, kept in .sav files after the cartridge RAM
+     */
+    default boolean hasRtc() {
+        return false;
+    }
+
+    /**
+     * Writes the clock's state, in the 48 byte format other emulators put after the cartridge RAM in .sav files.
+     *
+     * @param footer Buffer to write to, little endian, positioned at the start of the 48 bytes
+     */
+    default void saveRtc(ByteBuffer footer) {
+    }
+
+    /**
+     * Restores the clock's state from the 48 bytes written by saveRtc, counting the time since they were saved.
+     *
+     * @param footer Buffer to read from, little endian, positioned at the start of the 48 bytes
+     */
+    default void loadRtc(ByteBuffer footer) {
+    }
+}
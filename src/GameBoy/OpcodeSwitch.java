@@ -0,0 +1,1584 @@
+package GameBoy;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: OpcodeSwitch
+ * Description: Switch based interpreter core. Performs the same operations as the lambda table in Opcodes, but
+ * dispatches with a dense switch over the opcode byte so the JIT can inline the calls into Commands instead of
+ * going through the megamorphic Operation.cmd call.
+ *
+ * The cases are generated from the Opcodes constructor. When an opcode is added or changed there, the matching case
+ * here must be updated too (CPUTest runs both cores side by side to catch any drift).
+ * Cycle counts and argument counts still come from the Opcodes table.
+ */
+class OpcodeSwitch {
+
+    /**
+     * Executes an opcode.
+     * @param opcode An integer opcode. CB prefixed opcodes are given as 0xCBnn.
+     * @param regs Registers.
+     * @param mmu Memory management unit.
+     * @param args Arguments for the opcode.
+     */
+    static void execute(int opcode, Registers regs, MMU mmu, byte[] args) {
+        // Split into several methods to stay below the JIT's huge method limit
+        if (opcode < 0x80) {
+            executeLow(opcode, regs, mmu, args);
+        } else if (opcode < 0x100) {
+            executeHigh(opcode, regs, mmu, args);
+        } else {
+            executeCB(opcode & 0xFF, regs, mmu, args);
+        }
+    }
+
+    /**
+     * Opcodes 0x00 - 0x7F. Loads, 16 bit arithmetic, INC/DEC and relative jumps.
+     */
+    private static void executeLow(int opcode, Registers regs, MMU mmu, byte[] args) {
+        switch (opcode) {
+            case 0x00: // NOP
+                Commands.nop();
+                break;
+            case 0x01: // LD BC,nn
+                regs.setBC(BitUtils.mergeBytes(args[1], args[0]));
+                break;
+            case 0x02: // LD (BC),A
+                mmu.setMemVal(regs.getBC(), regs.getA());
+                break;
+            case 0x03: // INC BC
+                regs.setBC((short) (regs.getBC() + 1));
+                break;
+            case 0x04: // INC B
+                regs.setB(Commands.inc(regs, regs.getB()));
+                break;
+            case 0x05: // DEC B
+                regs.setB(Commands.dec(regs, regs.getB()));
+                break;
+            case 0x06: // LD B,n
+                regs.setB(args[0]);
+                break;
+            case 0x07: // RLCA
+                regs.setA(Commands.rlc(regs, regs.getA()));
+                regs.clearZFlag();
+                regs.clearNFlag();
+                regs.clearHFlag();
+                break;
+            case 0x08: // LD (NN),SP
+                mmu.setMemVal(BitUtils.mergeBytes(args[1], args[0]), regs.getSP());
+                break;
+            case 0x09: // ADD HL,BC
+                regs.setHL(Commands.addShorts(regs, regs.getHL(), regs.getBC()));
+                break;
+            case 0x0A: // LD A,(BC)
+                regs.setA(mmu.getMemVal(regs.getBC()));
+                break;
+            case 0x0B: // DEC BC
+                regs.setBC((short) (regs.getBC() - 1));
+                break;
+            case 0x0C: // INC C
+                regs.setC(Commands.inc(regs, regs.getC()));
+                break;
+            case 0x0D: // DEC C
+                regs.setC(Commands.dec(regs, regs.getC()));
+                break;
+            case 0x0E: // LD C,n
+                regs.setC(args[0]);
+                break;
+            case 0x0F: // RRCA
+                regs.setA(Commands.rrc(regs, regs.getA()));
+                regs.clearZFlag();
+                regs.clearNFlag();
+                regs.clearHFlag();
+                break;
+            case 0x10: // STOP
+                Commands.stop();
+                break;
+            case 0x11: // LD DE,nn
+                regs.setDE(BitUtils.mergeBytes(args[1], args[0]));
+                break;
+            case 0x12: // LD (DE),A
+                mmu.setMemVal(regs.getDE(), regs.getA());
+                break;
+            case 0x13: // INC DE
+                regs.setDE((short) (regs.getDE() + 1));
+                break;
+            case 0x14: // INC D
+                regs.setD(Commands.inc(regs, regs.getD()));
+                break;
+            case 0x15: // DEC D
+                regs.setD(Commands.dec(regs, regs.getD()));
+                break;
+            case 0x16: // LD D,n
+                regs.setD(args[0]);
+                break;
+            case 0x17: // RLA
+                regs.setA(Commands.rl(regs, regs.getA()));
+                regs.clearZFlag();
+                regs.clearNFlag();
+                regs.clearHFlag();
+                break;
+            case 0x18: // JR n
+                Commands.jr(regs, args[0]);
+                break;
+            case 0x19: // ADD HL,DE
+                regs.setHL(Commands.addShorts(regs, regs.getHL(), regs.getDE()));
+                break;
+            case 0x1A: // LD A,(DE)
+                regs.setA(mmu.getMemVal(regs.getDE()));
+                break;
+            case 0x1B: // DEC DE
+                regs.setDE((short) (regs.getDE() - 1));
+                break;
+            case 0x1C: // INC E
+                regs.setE(Commands.inc(regs, regs.getE()));
+                break;
+            case 0x1D: // DEC E
+                regs.setE(Commands.dec(regs, regs.getE()));
+                break;
+            case 0x1E: // LD E,n
+                regs.setE(args[0]);
+                break;
+            case 0x1F: // RRA
+                regs.setA(Commands.rr(regs, regs.getA()));
+                regs.clearZFlag();
+                regs.clearNFlag();
+                regs.clearHFlag();
+                break;
+            case 0x20: // JR NZ, PC+n
+                Commands.jrIf(regs, args[0], "NZ");
+                break;
+            case 0x21: // LD HL,nn
+                regs.setHL(BitUtils.mergeBytes(args[1], args[0]));
+                break;
+            case 0x22: // LD (HL+),A
+                mmu.setMemVal(regs.getHL() & 0xFFFF, regs.getA());
+                regs.setHL((short) (regs.getHL() + 1));
+                break;
+            case 0x23: // INC HL
+                regs.setHL((short) (regs.getHL() + 1));
+                break;
+            case 0x24: // INC H
+                regs.setH(Commands.inc(regs, regs.getH()));
+                break;
+            case 0x25: // DEC H
+                regs.setH(Commands.dec(regs, regs.getH()));
+                break;
+            case 0x26: // LD H,n
+                regs.setH(args[0]);
+                break;
+            case 0x27: // DAA
+                Commands.daa();
+                break;
+            case 0x28: // JR Z, PC+n
+                Commands.jrIf(regs, args[0], "Z");
+                break;
+            case 0x29: // ADD HL,HL
+                regs.setHL(Commands.addShorts(regs, regs.getHL(), regs.getHL()));
+                break;
+            case 0x2A: // LD A,(HL+)
+                regs.setA(mmu.getMemVal(regs.getHL()));
+                regs.setHL((short) (regs.getHL() + 1));
+                break;
+            case 0x2B: // DEC HL
+                regs.setHL((short) (regs.getHL() - 1));
+                break;
+            case 0x2C: // INC L
+                regs.setL(Commands.inc(regs, regs.getL()));
+                break;
+            case 0x2D: // DEC L
+                regs.setL(Commands.dec(regs, regs.getL()));
+                break;
+            case 0x2E: // LD L,n
+                regs.setL(args[0]);
+                break;
+            case 0x2F: // CPL
+                Commands.cpl(regs);
+                break;
+            case 0x30: // JR NC, PC+n
+                Commands.jrIf(regs, args[0], "NC");
+                break;
+            case 0x31: // LD SP,nn
+                regs.setSP(BitUtils.mergeBytes(args[1], args[0]));
+                break;
+            case 0x32: // LD (HL-),A
+                mmu.setMemVal(regs.getHL(), regs.getA());
+                regs.setHL((short) (regs.getHL() - 1));
+                break;
+            case 0x33: // INC SP
+                regs.setSP((short) (regs.getSP() + 1));
+                break;
+            case 0x34: // INC (HL)
+                mmu.setMemVal(regs.getHL(), Commands.inc(regs, mmu.getMemVal(regs.getHL())));
+                break;
+            case 0x35: // DEC (HL)
+                mmu.setMemVal(regs.getHL(), Commands.dec(regs, mmu.getMemVal(regs.getHL())));
+                break;
+            case 0x36: // LD (HL),n
+                mmu.setMemVal(regs.getHL(), args[0]);
+                break;
+            case 0x37: // SCF
+                regs.setCFlag();
+                regs.clearNFlag();
+                regs.clearHFlag();
+                break;
+            case 0x38: // JR C,PC+n
+                Commands.jrIf(regs, args[0], "C");
+                break;
+            case 0x39: // ADD HL,SP
+                regs.setHL(Commands.addShorts(regs, regs.getHL(), regs.getSP()));
+                break;
+            case 0x3A: // LD A,(HL-)
+                regs.setA(mmu.getMemVal(regs.getHL()));
+                regs.setHL((short) (regs.getHL() - 1));
+                break;
+            case 0x3B: // DEC SP
+                regs.setSP((short) (regs.getSP() - 1));
+                break;
+            case 0x3C: // INC A
+                regs.setA(Commands.inc(regs, regs.getA()));
+                break;
+            case 0x3D: // DEC A
+                regs.setA(Commands.dec(regs, regs.getA()));
+                break;
+            case 0x3E: // LD A,n
+                regs.setA(args[0]);
+                break;
+            case 0x3F: // CCF
+                Commands.ccf(regs);
+                break;
+            case 0x40: // LD B,B
+                regs.setB(regs.getB());
+                break;
+            case 0x41: // LD B,C
+                regs.setB(regs.getC());
+                break;
+            case 0x42: // LD B,D
+                regs.setB(regs.getD());
+                break;
+            case 0x43: // LD B,E
+                regs.setB(regs.getE());
+                break;
+            case 0x44: // LD B,H
+                regs.setB(regs.getH());
+                break;
+            case 0x45: // LD B,L
+                regs.setB(regs.getL());
+                break;
+            case 0x46: // LD B,(HL)
+                regs.setB(mmu.getMemVal(regs.getHL()));
+                break;
+            case 0x47: // LD B,A
+                regs.setB(regs.getA());
+                break;
+            case 0x48: // LD C,B
+                regs.setC(regs.getB());
+                break;
+            case 0x49: // LD C,C
+                regs.setC(regs.getC());
+                break;
+            case 0x4A: // LD C,D
+                regs.setC(regs.getD());
+                break;
+            case 0x4B: // LD C,E
+                regs.setC(regs.getE());
+                break;
+            case 0x4C: // LD C,H
+                regs.setC(regs.getH());
+                break;
+            case 0x4D: // LD C,L
+                regs.setC(regs.getL());
+                break;
+            case 0x4E: // LD C,(HL)
+                regs.setC(mmu.getMemVal(regs.getHL()));
+                break;
+            case 0x4F: // LD C,A
+                regs.setC(regs.getA());
+                break;
+            case 0x50: // LD D,B
+                regs.setD(regs.getB());
+                break;
+            case 0x51: // LD D,C
+                regs.setD(regs.getC());
+                break;
+            case 0x52: // LD D,D
+                regs.setD(regs.getD());
+                break;
+            case 0x53: // LD D,E
+                regs.setD(regs.getE());
+                break;
+            case 0x54: // LD D,H
+                regs.setD(regs.getH());
+                break;
+            case 0x55: // LD D,L
+                regs.setD(regs.getL());
+                break;
+            case 0x56: // LD D,(HL)
+                regs.setD(mmu.getMemVal(regs.getHL()));
+                break;
+            case 0x57: // LD D,A
+                regs.setD(regs.getA());
+                break;
+            case 0x58: // LD E,B
+                regs.setE(regs.getB());
+                break;
+            case 0x59: // LD E,C
+                regs.setE(regs.getC());
+                break;
+            case 0x5A: // LD E,D
+                regs.setE(regs.getD());
+                break;
+            case 0x5B: // LD E,E
+                regs.setE(regs.getE());
+                break;
+            case 0x5C: // LD E,H
+                regs.setE(regs.getH());
+                break;
+            case 0x5D: // LD E,L
+                regs.setE(regs.getL());
+                break;
+            case 0x5E: // LD E,(HL)
+                regs.setE(mmu.getMemVal(regs.getHL()));
+                break;
+            case 0x5F: // LD E,A
+                regs.setE(regs.getA());
+                break;
+            case 0x60: // LD H,B
+                regs.setH(regs.getB());
+                break;
+            case 0x61: // LD H,C
+                regs.setH(regs.getC());
+                break;
+            case 0x62: // LD H,D
+                regs.setH(regs.getD());
+                break;
+            case 0x63: // LD H,E
+                regs.setH(regs.getE());
+                break;
+            case 0x64: // LD H,H
+                regs.setH(regs.getH());
+                break;
+            case 0x65: // LD H,L
+                regs.setH(regs.getL());
+                break;
+            case 0x66: // LD H,(HL)
+                regs.setH(mmu.getMemVal(regs.getHL()));
+                break;
+            case 0x67: // LD H,A
+                regs.setH(regs.getA());
+                break;
+            case 0x68: // LD L,B
+                regs.setL(regs.getB());
+                break;
+            case 0x69: // LD L,C
+                regs.setL(regs.getC());
+                break;
+            case 0x6A: // LD L,D
+                regs.setL(regs.getD());
+                break;
+            case 0x6B: // LD L,E
+                regs.setL(regs.getE());
+                break;
+            case 0x6C: // LD L,H
+                regs.setL(regs.getH());
+                break;
+            case 0x6D: // LD L,L
+                regs.setL(regs.getL());
+                break;
+            case 0x6E: // LD L,(HL)
+                regs.setL(mmu.getMemVal(regs.getHL()));
+                break;
+            case 0x6F: // LD L,A
+                regs.setL(regs.getA());
+                break;
+            case 0x70: // LD (HL),B
+                mmu.setMemVal(regs.getHL(), regs.getB());
+                break;
+            case 0x71: // LD (HL),C
+                mmu.setMemVal(regs.getHL(), regs.getC());
+                break;
+            case 0x72: // LD (HL),D
+                mmu.setMemVal(regs.getHL(), regs.getD());
+                break;
+            case 0x73: // LD (HL),E
+                mmu.setMemVal(regs.getHL(), regs.getE());
+                break;
+            case 0x74: // LD (HL),H
+                mmu.setMemVal(regs.getHL(), regs.getH());
+                break;
+            case 0x75: // LD (HL),L
+                mmu.setMemVal(regs.getHL(), regs.getL());
+                break;
+            case 0x76: // HALT
+                Commands.halt();
+                break;
+            case 0x77: // LD (HL),A
+                mmu.setMemVal(regs.getHL(), regs.getA());
+                break;
+            case 0x78: // LD A,B
+                regs.setA(regs.getB());
+                break;
+            case 0x79: // LD A,C
+                regs.setA(regs.getC());
+                break;
+            case 0x7A: // LD A,D
+                regs.setA(regs.getD());
+                break;
+            case 0x7B: // LD A,E
+                regs.setA(regs.getE());
+                break;
+            case 0x7C: // LD A,H
+                regs.setA(regs.getH());
+                break;
+            case 0x7D: // LD A,L
+                regs.setA(regs.getL());
+                break;
+            case 0x7E: // LD A,(HL)
+                regs.setA(mmu.getMemVal(regs.getHL()));
+                break;
+            case 0x7F: // LD A,A
+                regs.setA(regs.getA());
+                break;
+            default:
+                throw Opcodes.unknownOpcode(opcode);
+        }
+    }
+
+    /**
+     * Opcodes 0x80 - 0xFF. 8 bit ALU, jumps, calls, returns and stack operations.
+     */
+    private static void executeHigh(int opcode, Registers regs, MMU mmu, byte[] args) {
+        switch (opcode) {
+            case 0x80: // ADD A,B
+                Commands.addToA(regs, regs.getB());
+                break;
+            case 0x81: // ADD A,C
+                Commands.addToA(regs, regs.getC());
+                break;
+            case 0x82: // ADD A,D
+                Commands.addToA(regs, regs.getD());
+                break;
+            case 0x83: // ADD A,E
+                Commands.addToA(regs, regs.getE());
+                break;
+            case 0x84: // ADD A,H
+                Commands.addToA(regs, regs.getH());
+                break;
+            case 0x85: // ADD A,L
+                Commands.addToA(regs, regs.getL());
+                break;
+            case 0x86: // ADD A,(HL)
+                Commands.addToA(regs, mmu.getMemVal(regs.getHL()));
+                break;
+            case 0x87: // ADD A,A
+                Commands.addToA(regs, regs.getA());
+                break;
+            case 0x88: // ADD A,B
+                Commands.addToA(regs, (byte) (regs.getB() + (regs.getCFlag() & 0b1)));
+                break;
+            case 0x89: // ADD A,C
+                Commands.addToA(regs, (byte) (regs.getC() + (regs.getCFlag() & 0b1)));
+                break;
+            case 0x8A: // ADD A,D
+                Commands.addToA(regs, (byte) (regs.getD() + (regs.getCFlag() & 0b1)));
+                break;
+            case 0x8B: // ADD A,E
+                Commands.addToA(regs, (byte) (regs.getE() + (regs.getCFlag() & 0b1)));
+                break;
+            case 0x8C: // ADD A,H
+                Commands.addToA(regs, (byte) (regs.getH() + (regs.getCFlag() & 0b1)));
+                break;
+            case 0x8D: // ADD A,L
+                Commands.addToA(regs, (byte) (regs.getL() + (regs.getCFlag() & 0b1)));
+                break;
+            case 0x8E: // ADD A,(HL)
+                Commands.addToA(regs, (byte) (mmu.getMemVal(regs.getHL()) + (regs.getCFlag() & 0b1)));
+                break;
+            case 0x8F: // ADD A,A
+                Commands.addToA(regs, (byte) (regs.getA() + (regs.getCFlag() & 0b1)));
+                break;
+            case 0x90: // SUB B
+                Commands.sub(regs, regs.getB());
+                break;
+            case 0x91: // SUB C
+                Commands.sub(regs, regs.getC());
+                break;
+            case 0x92: // SUB D
+                Commands.sub(regs, regs.getD());
+                break;
+            case 0x93: // SUB E
+                Commands.sub(regs, regs.getE());
+                break;
+            case 0x94: // SUB H
+                Commands.sub(regs, regs.getH());
+                break;
+            case 0x95: // SUB L
+                Commands.sub(regs, regs.getL());
+                break;
+            case 0x96: // SUB (HL)
+                Commands.sub(regs, mmu.getMemVal(regs.getHL()));
+                break;
+            case 0x97: // SUB A
+                Commands.sub(regs, regs.getA());
+                break;
+            case 0x98: // SBC A,B
+                Commands.sub(regs, (byte) (regs.getB() - (regs.getCFlag() & 0b1)));
+                break;
+            case 0x99: // SBC A,C
+                Commands.sub(regs, (byte) (regs.getC() - (regs.getCFlag() & 0b1)));
+                break;
+            case 0x9A: // SBC A,D
+                Commands.sub(regs, (byte) (regs.getD() - (regs.getCFlag() & 0b1)));
+                break;
+            case 0x9B: // SBC A,E
+                Commands.sub(regs, (byte) (regs.getE() - (regs.getCFlag() & 0b1)));
+                break;
+            case 0x9C: // SBC A,H
+                Commands.sub(regs, (byte) (regs.getH() - (regs.getCFlag() & 0b1)));
+                break;
+            case 0x9D: // SBC A,L
+                Commands.sub(regs, (byte) (regs.getL() - (regs.getCFlag() & 0b1)));
+                break;
+            case 0x9E: // SBC A,(HL)
+                Commands.sub(regs, (byte) (mmu.getMemVal(regs.getHL()) - (regs.getCFlag() & 0b1)));
+                break;
+            case 0x9F: // SBC A,A
+                Commands.sub(regs, (byte) (regs.getA() - (regs.getCFlag() & 0b1)));
+                break;
+            case 0xA0: // AND B
+                Commands.AND(regs, regs.getB());
+                break;
+            case 0xA1: // AND C
+                Commands.AND(regs, regs.getC());
+                break;
+            case 0xA2: // AND D
+                Commands.AND(regs, regs.getD());
+                break;
+            case 0xA3: // AND E
+                Commands.AND(regs, regs.getE());
+                break;
+            case 0xA4: // AND H
+                Commands.AND(regs, regs.getH());
+                break;
+            case 0xA5: // AND L
+                Commands.AND(regs, regs.getL());
+                break;
+            case 0xA6: // AND (HL)
+                Commands.AND(regs, mmu.getMemVal(regs.getHL()));
+                break;
+            case 0xA7: // AND A
+                Commands.AND(regs, regs.getA());
+                break;
+            case 0xA8: // XOR B
+                Commands.XOR(regs, regs.getB());
+                break;
+            case 0xA9: // XOR C
+                Commands.XOR(regs, regs.getC());
+                break;
+            case 0xAA: // XOR D
+                Commands.XOR(regs, regs.getD());
+                break;
+            case 0xAB: // XOR E
+                Commands.XOR(regs, regs.getE());
+                break;
+            case 0xAC: // XOR H
+                Commands.XOR(regs, regs.getH());
+                break;
+            case 0xAD: // XOR L
+                Commands.XOR(regs, regs.getL());
+                break;
+            case 0xAE: // XOR n
+                Commands.XOR(regs, args[0]);
+                break;
+            case 0xAF: // XOR A
+                Commands.XOR(regs, regs.getA());
+                break;
+            case 0xB0: // OR B
+                Commands.OR(regs, regs.getB());
+                break;
+            case 0xB1: // OR C
+                Commands.OR(regs, regs.getC());
+                break;
+            case 0xB2: // OR D
+                Commands.OR(regs, regs.getD());
+                break;
+            case 0xB3: // OR E
+                Commands.OR(regs, regs.getE());
+                break;
+            case 0xB4: // OR H
+                Commands.OR(regs, regs.getH());
+                break;
+            case 0xB5: // OR L
+                Commands.OR(regs, regs.getL());
+                break;
+            case 0xB6: // OR (HL)
+                Commands.OR(regs, mmu.getMemVal(regs.getHL()));
+                break;
+            case 0xB7: // OR A
+                Commands.OR(regs, regs.getA());
+                break;
+            case 0xB8: // CP B
+                Commands.cp(regs, regs.getB());
+                break;
+            case 0xB9: // CP C
+                Commands.cp(regs, regs.getC());
+                break;
+            case 0xBA: // CP D
+                Commands.cp(regs, regs.getD());
+                break;
+            case 0xBB: // CP E
+                Commands.cp(regs, regs.getE());
+                break;
+            case 0xBC: // CP H
+                Commands.cp(regs, regs.getH());
+                break;
+            case 0xBD: // CP L
+                Commands.cp(regs, regs.getL());
+                break;
+            case 0xBE: // CP (HL)
+                Commands.cp(regs, mmu.getMemVal(regs.getHL()));
+                break;
+            case 0xBF: // CP A
+                Commands.cp(regs, regs.getA());
+                break;
+            case 0xC0: // RET NZ
+                Commands.retIf(regs, mmu, "NZ");
+                break;
+            case 0xC1: // POP BC
+                regs.setBC(mmu.pop(regs.getSP()));
+                regs.setSP((short) (regs.getSP() + 2));
+                break;
+            case 0xC2: // JP NZ,NN
+                Commands.jpIf(regs, BitUtils.mergeBytes(args[1], args[0]), "NZ");
+                break;
+            case 0xC3: // JP NN
+                regs.setPC(BitUtils.mergeBytes(args[1], args[0]));
+                break;
+            case 0xC4: // CALL NZ,nn
+                Commands.callIf(regs, mmu, BitUtils.mergeBytes(args[1], args[0]), "NZ");
+                break;
+            case 0xC5: // PUSH BC
+                mmu.push(regs.getSP(), regs.getBC());
+                regs.setSP((short) (regs.getSP() - 2));
+                break;
+            case 0xC6: // ADD A,n
+                Commands.addToA(regs, args[0]);
+                break;
+            case 0xC7: // RST 0x00
+                Commands.restart(regs, mmu, (byte) 0x00);
+                break;
+            case 0xC8: // RET Z
+                Commands.retIf(regs, mmu, "Z");
+                break;
+            case 0xC9: // RET
+                Commands.ret(regs, mmu);
+                break;
+            case 0xCA: // JP Z,NN
+                Commands.jpIf(regs, BitUtils.mergeBytes(args[1], args[0]), "Z");
+                break;
+            case 0xCC: // CALL Z,nn
+                Commands.callIf(regs, mmu, BitUtils.mergeBytes(args[1], args[0]), "Z");
+                break;
+            case 0xCD: // CALL nn
+                Commands.call(regs, mmu, BitUtils.mergeBytes(args[1], args[0]));
+                break;
+            case 0xCE: // ADD A,n
+                Commands.addToA(regs, (byte) (args[0] + (regs.getCFlag() & 0b1)));
+                break;
+            case 0xCF: // RST 0x08
+                Commands.restart(regs, mmu, (byte) 0x08);
+                break;
+            case 0xD0: // RET NC
+                Commands.retIf(regs, mmu, "NC");
+                break;
+            case 0xD1: // POP DE
+                regs.setDE(mmu.pop(regs.getSP()));
+                regs.setSP((short) (regs.getSP() + 2));
+                break;
+            case 0xD2: // JP NC,NN
+                Commands.jpIf(regs, BitUtils.mergeBytes(args[1], args[0]), "NC");
+                break;
+            case 0xD4: // CALL NC,nn
+                Commands.callIf(regs, mmu, BitUtils.mergeBytes(args[1], args[0]), "NC");
+                break;
+            case 0xD5: // PUSH DE
+                mmu.push(regs.getSP(), regs.getDE());
+                regs.setSP((short) (regs.getSP() - 2));
+                break;
+            case 0xD6: // SUB n
+                Commands.sub(regs, args[0]);
+                break;
+            case 0xD7: // RST 0x10
+                Commands.restart(regs, mmu, (byte) 0x10);
+                break;
+            case 0xD8: // RET C
+                Commands.retIf(regs, mmu, "C");
+                break;
+            case 0xD9: // RETI
+                Commands.ret(regs, mmu);
+                Commands.enableInterrupts(mmu);
+                break;
+            case 0xDA: // JP C,NN
+                Commands.jpIf(regs, BitUtils.mergeBytes(args[1], args[0]), "C");
+                break;
+            case 0xDC: // CALL C,nn
+                Commands.callIf(regs, mmu, BitUtils.mergeBytes(args[1], args[0]), "C");
+                break;
+            case 0xDF: // RST 0x18
+                Commands.restart(regs, mmu, (byte) 0x18);
+                break;
+            case 0xE0: // LD ($FF00+n),A
+                mmu.setMemVal((0xFF00 + (args[0] & 0xFF)), regs.getA());
+                break;
+            case 0xE1: // POP HL
+                regs.setHL(mmu.pop(regs.getSP()));
+                regs.setSP((short) (regs.getSP() + 2));
+                break;
+            case 0xE2: // LD ($FF00 + C),A
+                mmu.setMemVal(0xFF00 + (regs.getC() & 0xFF), regs.getA());
+                break;
+            case 0xE5: // PUSH HL
+                mmu.push(regs.getSP(), regs.getHL());
+                regs.setSP((short) (regs.getSP() - 2));
+                break;
+            case 0xE6: // AND n
+                Commands.AND(regs, args[0]);
+                break;
+            case 0xE7: // RST 0x20
+                Commands.restart(regs, mmu, (byte) 0x20);
+                break;
+            case 0xE8: // ADD SP,n
+                Commands.addToSP(regs, regs.getSP(), args[0]);
+                break;
+            case 0xE9: // JP HL
+                regs.setPC(regs.getHL());
+                break;
+            case 0xEA: // LD (NN),A
+                mmu.setMemVal(BitUtils.mergeBytes(args[1], args[0]), regs.getA());
+                break;
+            case 0xEF: // RST 0x28
+                Commands.restart(regs, mmu, (byte) 0x28);
+                break;
+            case 0xF0: // LDH A,(n)
+                regs.setA(mmu.getMemVal((0xFF00 + (args[0] & 0xFF))));
+                break;
+            case 0xF1: // POP AF
+                regs.setAF(mmu.pop(regs.getSP()));
+                regs.setSP((short) (regs.getSP() + 2));
+                break;
+            case 0xF2: // LD A,($FF00 + (C))
+                regs.setA(mmu.getMemVal((0xFF00 + regs.getC())));
+                break;
+            case 0xF3: // DI
+                Commands.disableInterrupts(mmu);
+                break;
+            case 0xF5: // PUSH AF
+                mmu.push(regs.getSP(), regs.getAF());
+                regs.setSP((short) (regs.getSP() - 2));
+                break;
+            case 0xF6: // OR n
+                Commands.OR(regs, args[0]);
+                break;
+            case 0xF7: // RST 0x30
+                Commands.restart(regs, mmu, (byte) 0x30);
+                break;
+            case 0xF8: // LDHL SP,n
+                Commands.ldhl(regs, args[0]);
+                break;
+            case 0xF9: // LD SP,HL
+                regs.setSP(regs.getHL());
+                break;
+            case 0xFA: // LD A,(nn)
+                regs.setA(mmu.getMemVal(BitUtils.mergeBytes(args[1], args[0])));
+                break;
+            case 0xFB: // EI
+                Commands.enableInterrupts(mmu);
+                break;
+            case 0xFE: // CP n
+                Commands.cp(regs, args[0]);
+                break;
+            case 0xFF: // RST 0x38
+                Commands.restart(regs, mmu, (byte) 0x38);
+                break;
+            default:
+                throw Opcodes.unknownOpcode(opcode);
+        }
+    }
+
+    /**
+     * CB prefixed opcodes. Rotates, shifts, swaps and bit operations.
+     */
+    private static void executeCB(int opcode, Registers regs, MMU mmu, byte[] args) {
+        switch (opcode) {
+            case 0x00: // RLC B
+                regs.setB(Commands.rlc(regs, regs.getB()));
+                break;
+            case 0x01: // RLC C
+                regs.setC(Commands.rlc(regs, regs.getC()));
+                break;
+            case 0x02: // RLC D
+                regs.setD(Commands.rlc(regs, regs.getD()));
+                break;
+            case 0x03: // RLC E
+                regs.setE(Commands.rlc(regs, regs.getE()));
+                break;
+            case 0x04: // RLC H
+                regs.setH(Commands.rlc(regs, regs.getH()));
+                break;
+            case 0x05: // RLC L
+                regs.setL(Commands.rlc(regs, regs.getL()));
+                break;
+            case 0x06: // RLC (HL)
+                mmu.setMemVal(regs.getHL(), Commands.rlc(regs, mmu.getMemVal(regs.getHL())));
+                break;
+            case 0x07: // RLC A
+                regs.setA(Commands.rlc(regs, regs.getA()));
+                break;
+            case 0x08: // RRC B
+                regs.setB(Commands.rrc(regs, regs.getB()));
+                break;
+            case 0x09: // RRC C
+                regs.setC(Commands.rrc(regs, regs.getC()));
+                break;
+            case 0x0A: // RRC D
+                regs.setD(Commands.rrc(regs, regs.getD()));
+                break;
+            case 0x0B: // RRC E
+                regs.setE(Commands.rrc(regs, regs.getE()));
+                break;
+            case 0x0C: // RRC H
+                regs.setH(Commands.rrc(regs, regs.getH()));
+                break;
+            case 0x0D: // RRC L
+                regs.setL(Commands.rrc(regs, regs.getL()));
+                break;
+            case 0x0E: // RRC (HL)
+                mmu.setMemVal(regs.getHL(), Commands.rrc(regs, mmu.getMemVal(regs.getHL())));
+                break;
+            case 0x0F: // RRC A
+                regs.setA(Commands.rrc(regs, regs.getA()));
+                break;
+            case 0x10: // RL B
+                regs.setB(Commands.rl(regs, regs.getB()));
+                break;
+            case 0x11: // RL C
+                regs.setC(Commands.rl(regs, regs.getC()));
+                break;
+            case 0x12: // RL D
+                regs.setD(Commands.rl(regs, regs.getD()));
+                break;
+            case 0x13: // RL E
+                regs.setE(Commands.rl(regs, regs.getE()));
+                break;
+            case 0x14: // RL H
+                regs.setH(Commands.rl(regs, regs.getH()));
+                break;
+            case 0x15: // RL L
+                regs.setL(Commands.rl(regs, regs.getL()));
+                break;
+            case 0x16: // RL (HL)
+                mmu.setMemVal(regs.getHL(), Commands.rl(regs, mmu.getMemVal(regs.getHL())));
+                break;
+            case 0x17: // RL A
+                regs.setA(Commands.rl(regs, regs.getA()));
+                break;
+            case 0x18: // RR B
+                regs.setB(Commands.rr(regs, regs.getB()));
+                break;
+            case 0x19: // RR C
+                regs.setC(Commands.rr(regs, regs.getC()));
+                break;
+            case 0x1A: // RR D
+                regs.setD(Commands.rr(regs, regs.getD()));
+                break;
+            case 0x1B: // RR E
+                regs.setE(Commands.rr(regs, regs.getE()));
+                break;
+            case 0x1C: // RR H
+                regs.setH(Commands.rr(regs, regs.getH()));
+                break;
+            case 0x1D: // RR L
+                regs.setL(Commands.rr(regs, regs.getL()));
+                break;
+            case 0x1E: // RR (HL)
+                mmu.setMemVal(regs.getHL(), Commands.rr(regs, mmu.getMemVal(regs.getHL())));
+                break;
+            case 0x1F: // RR A
+                regs.setA(Commands.rr(regs, regs.getA()));
+                break;
+            case 0x20: // SLA B
+                regs.setB(Commands.sla(regs, regs.getB()));
+                break;
+            case 0x21: // SLA C
+                regs.setC(Commands.sla(regs, regs.getC()));
+                break;
+            case 0x22: // SLA D
+                regs.setD(Commands.sla(regs, regs.getD()));
+                break;
+            case 0x23: // SLA E
+                regs.setE(Commands.sla(regs, regs.getE()));
+                break;
+            case 0x24: // SLA H
+                regs.setH(Commands.sla(regs, regs.getH()));
+                break;
+            case 0x25: // SLA L
+                regs.setL(Commands.sla(regs, regs.getL()));
+                break;
+            case 0x26: // SLA (HL)
+                mmu.setMemVal(regs.getHL(), Commands.sla(regs, mmu.getMemVal(regs.getHL())));
+                break;
+            case 0x27: // SLA A
+                regs.setA(Commands.sla(regs, regs.getA()));
+                break;
+            case 0x28: // SRA B
+                regs.setB(Commands.sra(regs, regs.getB()));
+                break;
+            case 0x29: // SRA C
+                regs.setC(Commands.sra(regs, regs.getC()));
+                break;
+            case 0x2A: // SRA D
+                regs.setD(Commands.sra(regs, regs.getD()));
+                break;
+            case 0x2B: // SRA E
+                regs.setE(Commands.sra(regs, regs.getE()));
+                break;
+            case 0x2C: // SRA H
+                regs.setH(Commands.sra(regs, regs.getH()));
+                break;
+            case 0x2D: // SRA L
+                regs.setL(Commands.sra(regs, regs.getL()));
+                break;
+            case 0x2E: // SRA (HL)
+                mmu.setMemVal(regs.getHL(), Commands.sra(regs, mmu.getMemVal(regs.getHL())));
+                break;
+            case 0x2F: // SRA A
+                regs.setA(Commands.sra(regs, regs.getA()));
+                break;
+            case 0x30: // SWAP B
+                regs.setB(Commands.swap(regs, regs.getB()));
+                break;
+            case 0x31: // SWAP C
+                regs.setC(Commands.swap(regs, regs.getC()));
+                break;
+            case 0x32: // SWAP D
+                regs.setD(Commands.swap(regs, regs.getD()));
+                break;
+            case 0x33: // SWAP E
+                regs.setE(Commands.swap(regs, regs.getE()));
+                break;
+            case 0x34: // SWAP H
+                regs.setH(Commands.swap(regs, regs.getH()));
+                break;
+            case 0x35: // SWAP L
+                regs.setL(Commands.swap(regs, regs.getL()));
+                break;
+            case 0x36: // SWAP (HL)
+                mmu.setMemVal(regs.getHL(), Commands.swap(regs, mmu.getMemVal(regs.getHL())));
+                break;
+            case 0x37: // SWAP A
+                regs.setA(Commands.swap(regs, regs.getA()));
+                break;
+            case 0x38: // SRL B
+                regs.setB(Commands.srl(regs, regs.getB()));
+                break;
+            case 0x39: // SRL C
+                regs.setC(Commands.srl(regs, regs.getC()));
+                break;
+            case 0x3A: // SRL D
+                regs.setD(Commands.srl(regs, regs.getD()));
+                break;
+            case 0x3B: // SRL E
+                regs.setE(Commands.srl(regs, regs.getE()));
+                break;
+            case 0x3C: // SRL H
+                regs.setH(Commands.srl(regs, regs.getH()));
+                break;
+            case 0x3D: // SRL L
+                regs.setL(Commands.srl(regs, regs.getL()));
+                break;
+            case 0x3E: // SRL (HL)
+                mmu.setMemVal(regs.getHL(), Commands.srl(regs, mmu.getMemVal(regs.getHL())));
+                break;
+            case 0x3F: // SRL A
+                regs.setA(Commands.srl(regs, regs.getA()));
+                break;
+            case 0x40: // BIT 0,B
+                Commands.testBit(regs, regs.getB(), (byte) 0);
+                break;
+            case 0x41: // BIT 0,C
+                Commands.testBit(regs, regs.getC(), (byte) 0);
+                break;
+            case 0x42: // BIT 0,D
+                Commands.testBit(regs, regs.getD(), (byte) 0);
+                break;
+            case 0x43: // BIT 0,E
+                Commands.testBit(regs, regs.getE(), (byte) 0);
+                break;
+            case 0x44: // BIT 0,H
+                Commands.testBit(regs, regs.getH(), (byte) 0);
+                break;
+            case 0x45: // BIT 0,L
+                Commands.testBit(regs, regs.getL(), (byte) 0);
+                break;
+            case 0x46: // BIT 0,(HL)
+                Commands.testBit(regs, mmu.getMemVal(regs.getHL()), (byte) 0);
+                break;
+            case 0x47: // BIT 0,A
+                Commands.testBit(regs, regs.getA(), (byte) 0);
+                break;
+            case 0x48: // BIT 1,B
+                Commands.testBit(regs, regs.getB(), (byte) 1);
+                break;
+            case 0x49: // BIT 1,C
+                Commands.testBit(regs, regs.getC(), (byte) 1);
+                break;
+            case 0x4A: // BIT 1,D
+                Commands.testBit(regs, regs.getD(), (byte) 1);
+                break;
+            case 0x4B: // BIT 1,E
+                Commands.testBit(regs, regs.getE(), (byte) 1);
+                break;
+            case 0x4C: // BIT 1,H
+                Commands.testBit(regs, regs.getH(), (byte) 1);
+                break;
+            case 0x4D: // BIT 1,L
+                Commands.testBit(regs, regs.getL(), (byte) 1);
+                break;
+            case 0x4E: // BIT 1,(HL)
+                Commands.testBit(regs, mmu.getMemVal(regs.getHL()), (byte) 1);
+                break;
+            case 0x4F: // BIT 1,A
+                Commands.testBit(regs, regs.getA(), (byte) 1);
+                break;
+            case 0x50: // BIT 2,B
+                Commands.testBit(regs, regs.getB(), (byte) 2);
+                break;
+            case 0x51: // BIT 2,C
+                Commands.testBit(regs, regs.getC(), (byte) 2);
+                break;
+            case 0x52: // BIT 2,D
+                Commands.testBit(regs, regs.getD(), (byte) 2);
+                break;
+            case 0x53: // BIT 2,E
+                Commands.testBit(regs, regs.getE(), (byte) 2);
+                break;
+            case 0x54: // BIT 2,H
+                Commands.testBit(regs, regs.getH(), (byte) 2);
+                break;
+            case 0x55: // BIT 2,L
+                Commands.testBit(regs, regs.getL(), (byte) 2);
+                break;
+            case 0x56: // BIT 2,(HL)
+                Commands.testBit(regs, mmu.getMemVal(regs.getHL()), (byte) 2);
+                break;
+            case 0x57: // BIT 2,A
+                Commands.testBit(regs, regs.getA(), (byte) 2);
+                break;
+            case 0x58: // BIT 3,B
+                Commands.testBit(regs, regs.getB(), (byte) 3);
+                break;
+            case 0x59: // BIT 3,C
+                Commands.testBit(regs, regs.getC(), (byte) 3);
+                break;
+            case 0x5A: // BIT 3,D
+                Commands.testBit(regs, regs.getD(), (byte) 3);
+                break;
+            case 0x5B: // BIT 3,E
+                Commands.testBit(regs, regs.getE(), (byte) 3);
+                break;
+            case 0x5C: // BIT 3,H
+                Commands.testBit(regs, regs.getH(), (byte) 3);
+                break;
+            case 0x5D: // BIT 3,L
+                Commands.testBit(regs, regs.getL(), (byte) 3);
+                break;
+            case 0x5E: // BIT 3,(HL)
+                Commands.testBit(regs, mmu.getMemVal(regs.getHL()), (byte) 3);
+                break;
+            case 0x5F: // BIT 3,A
+                Commands.testBit(regs, regs.getA(), (byte) 3);
+                break;
+            case 0x60: // BIT 4,B
+                Commands.testBit(regs, regs.getB(), (byte) 4);
+                break;
+            case 0x61: // BIT 4,C
+                Commands.testBit(regs, regs.getC(), (byte) 4);
+                break;
+            case 0x62: // BIT 4,D
+                Commands.testBit(regs, regs.getD(), (byte) 4);
+                break;
+            case 0x63: // BIT 4,E
+                Commands.testBit(regs, regs.getE(), (byte) 4);
+                break;
+            case 0x64: // BIT 4,H
+                Commands.testBit(regs, regs.getH(), (byte) 4);
+                break;
+            case 0x65: // BIT 4,L
+                Commands.testBit(regs, regs.getL(), (byte) 4);
+                break;
+            case 0x66: // BIT 4,(HL)
+                Commands.testBit(regs, mmu.getMemVal(regs.getHL()), (byte) 4);
+                break;
+            case 0x67: // BIT 4,A
+                Commands.testBit(regs, regs.getA(), (byte) 4);
+                break;
+            case 0x68: // BIT 5,B
+                Commands.testBit(regs, regs.getB(), (byte) 5);
+                break;
+            case 0x69: // BIT 5,C
+                Commands.testBit(regs, regs.getC(), (byte) 5);
+                break;
+            case 0x6A: // BIT 5,D
+                Commands.testBit(regs, regs.getD(), (byte) 5);
+                break;
+            case 0x6B: // BIT 5,E
+                Commands.testBit(regs, regs.getE(), (byte) 5);
+                break;
+            case 0x6C: // BIT 5,H
+                Commands.testBit(regs, regs.getH(), (byte) 5);
+                break;
+            case 0x6D: // BIT 5,L
+                Commands.testBit(regs, regs.getL(), (byte) 5);
+                break;
+            case 0x6E: // BIT 5,(HL)
+                Commands.testBit(regs, mmu.getMemVal(regs.getHL()), (byte) 5);
+                break;
+            case 0x6F: // BIT 5,A
+                Commands.testBit(regs, regs.getA(), (byte) 5);
+                break;
+            case 0x70: // BIT 6,B
+                Commands.testBit(regs, regs.getB(), (byte) 6);
+                break;
+            case 0x71: // BIT 6,C
+                Commands.testBit(regs, regs.getC(), (byte) 6);
+                break;
+            case 0x72: // BIT 6,D
+                Commands.testBit(regs, regs.getD(), (byte) 6);
+                break;
+            case 0x73: // BIT 6,E
+                Commands.testBit(regs, regs.getE(), (byte) 6);
+                break;
+            case 0x74: // BIT 6,H
+                Commands.testBit(regs, regs.getH(), (byte) 6);
+                break;
+            case 0x75: // BIT 6,L
+                Commands.testBit(regs, regs.getL(), (byte) 6);
+                break;
+            case 0x76: // BIT 6,(HL)
+                Commands.testBit(regs, mmu.getMemVal(regs.getHL()), (byte) 6);
+                break;
+            case 0x77: // BIT 6,A
+                Commands.testBit(regs, regs.getA(), (byte) 6);
+                break;
+            case 0x78: // BIT 7,B
+                Commands.testBit(regs, regs.getB(), (byte) 7);
+                break;
+            case 0x79: // BIT 7,C
+                Commands.testBit(regs, regs.getC(), (byte) 7);
+                break;
+            case 0x7A: // BIT 7,D
+                Commands.testBit(regs, regs.getD(), (byte) 7);
+                break;
+            case 0x7B: // BIT 7,E
+                Commands.testBit(regs, regs.getE(), (byte) 7);
+                break;
+            case 0x7C: // BIT 7,H
+                Commands.testBit(regs, regs.getH(), (byte) 7);
+                break;
+            case 0x7D: // BIT 7,L
+                Commands.testBit(regs, regs.getL(), (byte) 7);
+                break;
+            case 0x7E: // BIT 7,(HL)
+                Commands.testBit(regs, mmu.getMemVal(regs.getHL()), (byte) 7);
+                break;
+            case 0x7F: // BIT 7,A
+                Commands.testBit(regs, regs.getA(), (byte) 7);
+                break;
+            case 0x80: // RES 0,B
+                regs.setB(BitUtils.clearBit(regs.getB(), (byte) 0));
+                break;
+            case 0x81: // RES 0,C
+                regs.setC(BitUtils.clearBit(regs.getC(), (byte) 0));
+                break;
+            case 0x82: // RES 0,D
+                regs.setD(BitUtils.clearBit(regs.getD(), (byte) 0));
+                break;
+            case 0x83: // RES 0,E
+                regs.setE(BitUtils.clearBit(regs.getE(), (byte) 0));
+                break;
+            case 0x84: // RES 0,H
+                regs.setH(BitUtils.clearBit(regs.getH(), (byte) 0));
+                break;
+            case 0x85: // RES 0,L
+                regs.setL(BitUtils.clearBit(regs.getL(), (byte) 0));
+                break;
+            case 0x86: // RES b,(HL)
+                mmu.setMemVal(regs.getHL(), BitUtils.clearBit(mmu.getMemVal(regs.getHL()), (byte) 0));
+                break;
+            case 0x87: // RES 0,A
+                regs.setA(BitUtils.clearBit(regs.getA(), (byte) 0));
+                break;
+            case 0x88: // RES 1,B
+                regs.setB(BitUtils.clearBit(regs.getB(), (byte) 1));
+                break;
+            case 0x89: // RES 1,C
+                regs.setC(BitUtils.clearBit(regs.getC(), (byte) 1));
+                break;
+            case 0x8A: // RES 1,D
+                regs.setD(BitUtils.clearBit(regs.getD(), (byte) 1));
+                break;
+            case 0x8B: // RES 1,E
+                regs.setE(BitUtils.clearBit(regs.getE(), (byte) 1));
+                break;
+            case 0x8C: // RES 1,H
+                regs.setH(BitUtils.clearBit(regs.getH(), (byte) 1));
+                break;
+            case 0x8D: // RES 1,L
+                regs.setL(BitUtils.clearBit(regs.getL(), (byte) 1));
+                break;
+            case 0x8E: // RES b,(HL)
+                mmu.setMemVal(regs.getHL(), BitUtils.clearBit(mmu.getMemVal(regs.getHL()), (byte) 1));
+                break;
+            case 0x8F: // RES 1,A
+                regs.setA(BitUtils.clearBit(regs.getA(), (byte) 1));
+                break;
+            case 0x90: // RES 2,B
+                regs.setB(BitUtils.clearBit(regs.getB(), (byte) 2));
+                break;
+            case 0x91: // RES 2,C
+                regs.setC(BitUtils.clearBit(regs.getC(), (byte) 2));
+                break;
+            case 0x92: // RES 2,D
+                regs.setD(BitUtils.clearBit(regs.getD(), (byte) 2));
+                break;
+            case 0x93: // RES 2,E
+                regs.setE(BitUtils.clearBit(regs.getE(), (byte) 2));
+                break;
+            case 0x94: // RES 2,H
+                regs.setH(BitUtils.clearBit(regs.getH(), (byte) 2));
+                break;
+            case 0x95: // RES 2,L
+                regs.setL(BitUtils.clearBit(regs.getL(), (byte) 2));
+                break;
+            case 0x96: // RES b,(HL)
+                mmu.setMemVal(regs.getHL(), BitUtils.clearBit(mmu.getMemVal(regs.getHL()), (byte) 2));
+                break;
+            case 0x97: // RES 2,A
+                regs.setA(BitUtils.clearBit(regs.getA(), (byte) 2));
+                break;
+            case 0x98: // RES 3,B
+                regs.setB(BitUtils.clearBit(regs.getB(), (byte) 3));
+                break;
+            case 0x99: // RES 3,C
+                regs.setC(BitUtils.clearBit(regs.getC(), (byte) 3));
+                break;
+            case 0x9A: // RES 3,D
+                regs.setD(BitUtils.clearBit(regs.getD(), (byte) 3));
+                break;
+            case 0x9B: // RES 3,E
+                regs.setE(BitUtils.clearBit(regs.getE(), (byte) 3));
+                break;
+            case 0x9C: // RES 3,H
+                regs.setH(BitUtils.clearBit(regs.getH(), (byte) 3));
+                break;
+            case 0x9D: // RES 3,L
+                regs.setL(BitUtils.clearBit(regs.getL(), (byte) 3));
+                break;
+            case 0x9E: // RES b,(HL)
+                mmu.setMemVal(regs.getHL(), BitUtils.clearBit(mmu.getMemVal(regs.getHL()), (byte) 3));
+                break;
+            case 0x9F: // RES 3,A
+                regs.setA(BitUtils.clearBit(regs.getA(), (byte) 3));
+                break;
+            case 0xA0: // RES 4,B
+                regs.setB(BitUtils.clearBit(regs.getB(), (byte) 4));
+                break;
+            case 0xA1: // RES 4,C
+                regs.setC(BitUtils.clearBit(regs.getC(), (byte) 4));
+                break;
+            case 0xA2: // RES 4,D
+                regs.setD(BitUtils.clearBit(regs.getD(), (byte) 4));
+                break;
+            case 0xA3: // RES 4,E
+                regs.setE(BitUtils.clearBit(regs.getE(), (byte) 4));
+                break;
+            case 0xA4: // RES 4,H
+                regs.setH(BitUtils.clearBit(regs.getH(), (byte) 4));
+                break;
+            case 0xA5: // RES 4,L
+                regs.setL(BitUtils.clearBit(regs.getL(), (byte) 4));
+                break;
+            case 0xA6: // RES b,(HL)
+                mmu.setMemVal(regs.getHL(), BitUtils.clearBit(mmu.getMemVal(regs.getHL()), (byte) 4));
+                break;
+            case 0xA7: // RES 4,A
+                regs.setA(BitUtils.clearBit(regs.getA(), (byte) 4));
+                break;
+            case 0xA8: // RES 5,B
+                regs.setB(BitUtils.clearBit(regs.getB(), (byte) 5));
+                break;
+            case 0xA9: // RES 5,C
+                regs.setC(BitUtils.clearBit(regs.getC(), (byte) 5));
+                break;
+            case 0xAA: // RES 5,D
+                regs.setD(BitUtils.clearBit(regs.getD(), (byte) 5));
+                break;
+            case 0xAB: // RES 5,E
+                regs.setE(BitUtils.clearBit(regs.getE(), (byte) 5));
+                break;
+            case 0xAC: // RES 5,H
+                regs.setH(BitUtils.clearBit(regs.getH(), (byte) 5));
+                break;
+            case 0xAD: // RES 5,L
+                regs.setL(BitUtils.clearBit(regs.getL(), (byte) 5));
+                break;
+            case 0xAE: // RES b,(HL)
+                mmu.setMemVal(regs.getHL(), BitUtils.clearBit(mmu.getMemVal(regs.getHL()), (byte) 5));
+                break;
+            case 0xAF: // RES 5,A
+                regs.setA(BitUtils.clearBit(regs.getA(), (byte) 5));
+                break;
+            case 0xB0: // RES 6,B
+                regs.setB(BitUtils.clearBit(regs.getB(), (byte) 6));
+                break;
+            case 0xB1: // RES 6,C
+                regs.setC(BitUtils.clearBit(regs.getC(), (byte) 6));
+                break;
+            case 0xB2: // RES 6,D
+                regs.setD(BitUtils.clearBit(regs.getD(), (byte) 6));
+                break;
+            case 0xB3: // RES 6,E
+                regs.setE(BitUtils.clearBit(regs.getE(), (byte) 6));
+                break;
+            case 0xB4: // RES 6,H
+                regs.setH(BitUtils.clearBit(regs.getH(), (byte) 6));
+                break;
+            case 0xB5: // RES 6,L
+                regs.setL(BitUtils.clearBit(regs.getL(), (byte) 6));
+                break;
+            case 0xB6: // RES b,(HL)
+                mmu.setMemVal(regs.getHL(), BitUtils.clearBit(mmu.getMemVal(regs.getHL()), (byte) 6));
+                break;
+            case 0xB7: // RES 6,A
+                regs.setA(BitUtils.clearBit(regs.getA(), (byte) 6));
+                break;
+            case 0xB8: // RES 7,B
+                regs.setB(BitUtils.clearBit(regs.getB(), (byte) 7));
+                break;
+            case 0xB9: // RES 7,C
+                regs.setC(BitUtils.clearBit(regs.getC(), (byte) 7));
+                break;
+            case 0xBA: // RES 7,D
+                regs.setD(BitUtils.clearBit(regs.getD(), (byte) 7));
+                break;
+            case 0xBB: // RES 7,E
+                regs.setE(BitUtils.clearBit(regs.getE(), (byte) 7));
+                break;
+            case 0xBC: // RES 7,H
+                regs.setH(BitUtils.clearBit(regs.getH(), (byte) 7));
+                break;
+            case 0xBD: // RES 7,L
+                regs.setL(BitUtils.clearBit(regs.getL(), (byte) 7));
+                break;
+            case 0xBE: // RES b,(HL)
+                mmu.setMemVal(regs.getHL(), BitUtils.clearBit(mmu.getMemVal(regs.getHL()), (byte) 7));
+                break;
+            case 0xBF: // RES 7,A
+                regs.setA(BitUtils.clearBit(regs.getA(), (byte) 7));
+                break;
+            case 0xC0: // SET 0,B
+                regs.setB(BitUtils.setBit(regs.getB(), (byte) 0));
+                break;
+            case 0xC1: // SET 0,C
+                regs.setC(BitUtils.setBit(regs.getC(), (byte) 0));
+                break;
+            case 0xC2: // SET 0,D
+                regs.setD(BitUtils.setBit(regs.getD(), (byte) 0));
+                break;
+            case 0xC3: // SET 0,E
+                regs.setE(BitUtils.setBit(regs.getE(), (byte) 0));
+                break;
+            case 0xC4: // SET 0,H
+                regs.setH(BitUtils.setBit(regs.getH(), (byte) 0));
+                break;
+            case 0xC5: // SET 0,L
+                regs.setL(BitUtils.setBit(regs.getL(), (byte) 0));
+                break;
+            case 0xC6: // SET 0,(HL)
+                mmu.setMemVal(regs.getHL(), BitUtils.setBit(mmu.getMemVal(regs.getHL()), (byte) 0));
+                break;
+            case 0xC7: // SET 0,A
+                regs.setA(BitUtils.setBit(regs.getA(), (byte) 0));
+                break;
+            case 0xC8: // SET 1,B
+                regs.setB(BitUtils.setBit(regs.getB(), (byte) 1));
+                break;
+            case 0xC9: // SET 1,C
+                regs.setC(BitUtils.setBit(regs.getC(), (byte) 1));
+                break;
+            case 0xCA: // SET 1,D
+                regs.setD(BitUtils.setBit(regs.getD(), (byte) 1));
+                break;
+            case 0xCB: // SET 1,E
+                regs.setE(BitUtils.setBit(regs.getE(), (byte) 1));
+                break;
+            case 0xCC: // SET 1,H
+                regs.setH(BitUtils.setBit(regs.getH(), (byte) 1));
+                break;
+            case 0xCD: // SET 1,L
+                regs.setL(BitUtils.setBit(regs.getL(), (byte) 1));
+                break;
+            case 0xCE: // SET 1,(HL)
+                mmu.setMemVal(regs.getHL(), BitUtils.setBit(mmu.getMemVal(regs.getHL()), (byte) 1));
+                break;
+            case 0xCF: // SET 1,A
+                regs.setA(BitUtils.setBit(regs.getA(), (byte) 1));
+                break;
+            case 0xD0: // SET 2,B
+                regs.setB(BitUtils.setBit(regs.getB(), (byte) 2));
+                break;
+            case 0xD1: // SET 2,C
+                regs.setC(BitUtils.setBit(regs.getC(), (byte) 2));
+                break;
+            case 0xD2: // SET 2,D
+                regs.setD(BitUtils.setBit(regs.getD(), (byte) 2));
+                break;
+            case 0xD3: // SET 2,E
+                regs.setE(BitUtils.setBit(regs.getE(), (byte) 2));
+                break;
+            case 0xD4: // SET 2,H
+                regs.setH(BitUtils.setBit(regs.getH(), (byte) 2));
+                break;
+            case 0xD5: // SET 2,L
+                regs.setL(BitUtils.setBit(regs.getL(), (byte) 2));
+                break;
+            case 0xD6: // SET 2,(HL)
+                mmu.setMemVal(regs.getHL(), BitUtils.setBit(mmu.getMemVal(regs.getHL()), (byte) 2));
+                break;
+            case 0xD7: // SET 2,A
+                regs.setA(BitUtils.setBit(regs.getA(), (byte) 2));
+                break;
+            case 0xD8: // SET 3,B
+                regs.setB(BitUtils.setBit(regs.getB(), (byte) 3));
+                break;
+            case 0xD9: // SET 3,C
+                regs.setC(BitUtils.setBit(regs.getC(), (byte) 3));
+                break;
+            case 0xDA: // SET 3,D
+                regs.setD(BitUtils.setBit(regs.getD(), (byte) 3));
+                break;
+            case 0xDB: // SET 3,E
+                regs.setE(BitUtils.setBit(regs.getE(), (byte) 3));
+                break;
+            case 0xDC: // SET 3,H
+                regs.setH(BitUtils.setBit(regs.getH(), (byte) 3));
+                break;
+            case 0xDD: // SET 3,L
+                regs.setL(BitUtils.setBit(regs.getL(), (byte) 3));
+                break;
+            case 0xDE: // SET 3,(HL)
+                mmu.setMemVal(regs.getHL(), BitUtils.setBit(mmu.getMemVal(regs.getHL()), (byte) 3));
+                break;
+            case 0xDF: // SET 3,A
+                regs.setA(BitUtils.setBit(regs.getA(), (byte) 3));
+                break;
+            case 0xE0: // SET 4,B
+                regs.setB(BitUtils.setBit(regs.getB(), (byte) 4));
+                break;
+            case 0xE1: // SET 4,C
+                regs.setC(BitUtils.setBit(regs.getC(), (byte) 4));
+                break;
+            case 0xE2: // SET 4,D
+                regs.setD(BitUtils.setBit(regs.getD(), (byte) 4));
+                break;
+            case 0xE3: // SET 4,E
+                regs.setE(BitUtils.setBit(regs.getE(), (byte) 4));
+                break;
+            case 0xE4: // SET 4,H
+                regs.setH(BitUtils.setBit(regs.getH(), (byte) 4));
+                break;
+            case 0xE5: // SET 4,L
+                regs.setL(BitUtils.setBit(regs.getL(), (byte) 4));
+                break;
+            case 0xE6: // SET 4,(HL)
+                mmu.setMemVal(regs.getHL(), BitUtils.setBit(mmu.getMemVal(regs.getHL()), (byte) 4));
+                break;
+            case 0xE7: // SET 4,A
+                regs.setA(BitUtils.setBit(regs.getA(), (byte) 4));
+                break;
+            case 0xE8: // SET 5,B
+                regs.setB(BitUtils.setBit(regs.getB(), (byte) 5));
+                break;
+            case 0xE9: // SET 5,C
+                regs.setC(BitUtils.setBit(regs.getC(), (byte) 5));
+                break;
+            case 0xEA: // SET 5,D
+                regs.setD(BitUtils.setBit(regs.getD(), (byte) 5));
+                break;
+            case 0xEB: // SET 5,E
+                regs.setE(BitUtils.setBit(regs.getE(), (byte) 5));
+                break;
+            case 0xEC: // SET 5,H
+                regs.setH(BitUtils.setBit(regs.getH(), (byte) 5));
+                break;
+            case 0xED: // SET 5,L
+                regs.setL(BitUtils.setBit(regs.getL(), (byte) 5));
+                break;
+            case 0xEE: // SET 5,(HL)
+                mmu.setMemVal(regs.getHL(), BitUtils.setBit(mmu.getMemVal(regs.getHL()), (byte) 5));
+                break;
+            case 0xEF: // SET 5,A
+                regs.setA(BitUtils.setBit(regs.getA(), (byte) 5));
+                break;
+            case 0xF0: // SET 6,B
+                regs.setB(BitUtils.setBit(regs.getB(), (byte) 6));
+                break;
+            case 0xF1: // SET 6,C
+                regs.setC(BitUtils.setBit(regs.getC(), (byte) 6));
+                break;
+            case 0xF2: // SET 6,D
+                regs.setD(BitUtils.setBit(regs.getD(), (byte) 6));
+                break;
+            case 0xF3: // SET 6,E
+                regs.setE(BitUtils.setBit(regs.getE(), (byte) 6));
+                break;
+            case 0xF4: // SET 6,H
+                regs.setH(BitUtils.setBit(regs.getH(), (byte) 6));
+                break;
+            case 0xF5: // SET 6,L
+                regs.setL(BitUtils.setBit(regs.getL(), (byte) 6));
+                break;
+            case 0xF6: // SET 6,(HL)
+                mmu.setMemVal(regs.getHL(), BitUtils.setBit(mmu.getMemVal(regs.getHL()), (byte) 6));
+                break;
+            case 0xF7: // SET 6,A
+                regs.setA(BitUtils.setBit(regs.getA(), (byte) 6));
+                break;
+            case 0xF8: // SET 7,B
+                regs.setB(BitUtils.setBit(regs.getB(), (byte) 7));
+                break;
+            case 0xF9: // SET 7,C
+                regs.setC(BitUtils.setBit(regs.getC(), (byte) 7));
+                break;
+            case 0xFA: // SET 7,D
+                regs.setD(BitUtils.setBit(regs.getD(), (byte) 7));
+                break;
+            case 0xFB: // SET 7,E
+                regs.setE(BitUtils.setBit(regs.getE(), (byte) 7));
+                break;
+            case 0xFC: // SET 7,H
+                regs.setH(BitUtils.setBit(regs.getH(), (byte) 7));
+                break;
+            case 0xFD: // SET 7,L
+                regs.setL(BitUtils.setBit(regs.getL(), (byte) 7));
+                break;
+            case 0xFE: // SET 7,(HL)
+                mmu.setMemVal(regs.getHL(), BitUtils.setBit(mmu.getMemVal(regs.getHL()), (byte) 7));
+                break;
+            case 0xFF: // SET 7,A
+                regs.setA(BitUtils.setBit(regs.getA(), (byte) 7));
+                break;
+            default:
+                throw Opcodes.unknownOpcode(0xCB00 | opcode);
+        }
+    }
+}
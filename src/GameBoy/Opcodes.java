@@ -630,16 +630,37 @@ public class Opcodes {
      * @return The number of cycles it took to perform the opcode.
      */
     int execute(int opcode, Registers regs, MMU mmu, byte[] args) {
+        Instructions instr = getInstruction(opcode);
+        if (instr == null) {
+            throw unknownOpcode(opcode);
+        }
+        instr.op.cmd(regs, mmu, args);
+        return instr.cycles;
+    }
+
+    /**
+     * Looks up the instruction an opcode maps to.
+     * @param opcode An integer opcode. CB prefixed opcodes are given as 0xCBnn.
+     * @return The instruction containing the operation, cycles and number of arguments, or null if the opcode isn't
+     * implemented.
+     */
+    public Instructions getInstruction(int opcode) {
         if (opcode < 0x100) {
-            std_opcodes[0xFF & opcode].op.cmd(regs, mmu, args);
-            return std_opcodes[0xFF & opcode].cycles;
+            return std_opcodes[0xFF & opcode];
         } else {
-            opcode &= 0xFF; // Remove the CB prefix
-            cb_opcodes[0xFF & opcode].op.cmd(regs, mmu, args);
-            return cb_opcodes[0xFF & opcode].cycles;
+            return cb_opcodes[0xFF & opcode];   // Remove the CB prefix
         }
     }
 
+    /**
+     * The error both cores raise on reaching an opcode that isn't implemented.
+     * @param opcode An integer opcode. CB prefixed opcodes are given as 0xCBnn.
+     * @return The exception to throw, naming the opcode.
+     */
+    static IllegalArgumentException unknownOpcode(int opcode) {
+        return new IllegalArgumentException(String.format("Unknown opcode: 0x%02X", opcode));
+    }
+
     /**
      * Gets the assembly function that an opcode represents
      * @param opcode An integer opcode
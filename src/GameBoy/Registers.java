@@ -7,7 +7,8 @@ package GameBoy;
  * Description: GameBoy CPU registers and functions to manage them.
  */
 public class Registers {
-    private Byte[] registers = new Byte[8]; // GameBoy.Registers A, B, C, D, E, F (FLAGS), H, L (8 bit)
+    // GameBoy.Registers A, B, C, D, E, F (FLAGS), H, L (8 bit). Held as primitives to avoid boxing on every access.
+    private byte a, b, c, d, e, f, h, l;
     final private int A = 0;
     final private int B = 1;
     final private int C = 2;
@@ -20,10 +21,31 @@ public class Registers {
     // AF, BC, DE, HL pairings enable 16bit registers (Note: Bitshift to combine)
     private short SP = (short) (0xFFFE), PC = 0x100;          // SP (stack pointer), PC (program counter) (16 bit) registers
 
-    private byte z_pos = 7; // Zero
-    private byte n_pos = 6; // Subtraction
-    private byte h_pos = 5; // Half-carry
-    private byte c_pos = 4; // Carry
+    // Flag masks within register F
+    private static final int Z_MASK = 0x80; // Zero
+    private static final int N_MASK = 0x40; // Subtraction
+    private static final int H_MASK = 0x20; // Half-carry
+    private static final int C_MASK = 0x10; // Carry
+
+    /*
+     * Lazy flag evaluation. When enabled, ALU operations record what they did instead of writing Z/N/H/C.
+     * The flags are only computed when something reads register F (conditional jumps, PUSH AF, the debugger, ...).
+     */
+    static final int FLAGS_NONE = 0;   // Nothing pending, F is up to date
+    static final int FLAGS_ADD = 1;    // 8 bit add.           Z=*, N=0, H=*, C=*
+    static final int FLAGS_SUB = 2;    // 8 bit subtract/cp.   Z=*, N=1, H=*, C=*
+    static final int FLAGS_AND = 3;    // AND.                 Z=*, N=0, H=1, C=0
+    static final int FLAGS_OR = 4;     // OR/XOR.              Z=*, N=0, H=0, C=0
+    static final int FLAGS_INC = 5;    // 8 bit increment.     Z=*, N=0, H=*, C=-
+    static final int FLAGS_DEC = 6;    // 8 bit decrement.     Z=*, N=1, H=*, C=-
+    static final int FLAGS_ADD16 = 7;  // 16 bit add to HL.    Z=-, N=0, H=*, C=*
+    static final int FLAGS_SHIFT = 8;  // Rotates/shifts/swap. Z=*, N=0, H=0, C=operand
+
+    private boolean lazyFlags = false;
+    private int pendingFlags = FLAGS_NONE;  // Operation whose flags have not been written to F yet
+    private int flagOperand1;               // First operand of the pending operation
+    private int flagOperand2;               // Second operand, or the carry out for FLAGS_SHIFT
+    private int flagResult;                 // Result of the pending operation
 
     public Registers() {
         // Register values after a real GameBoy boots through boot ROM
@@ -43,59 +65,127 @@ public class Registers {
      */
 
     public byte getA() {
-        return this.registers[A];
+        return this.a;
     }
 
     public void setA(byte a) {
-        this.registers[A] = a;
+        this.a = a;
     }
 
     public byte getB() {
-        return this.registers[B];
+        return this.b;
     }
 
     public void setB(byte b) {
-        this.registers[B] = b;
+        this.b = b;
     }
 
     public byte getC() {
-        return this.registers[C];
+        return this.c;
     }
 
     public void setC(byte c) {
-        this.registers[C] = c;
+        this.c = c;
     }
 
     public byte getD() {
-        return registers[D];
+        return this.d;
     }
 
     public void setD(byte d) {
-        this.registers[D] = d;
+        this.d = d;
     }
 
     public byte getE() {
-        return registers[E];
+        return this.e;
     }
 
     public void setE(byte e) {
-        this.registers[E] = e;
+        this.e = e;
     }
 
     public byte getH() {
-        return registers[H];
+        return this.h;
     }
 
     public void setH(byte h) {
-        this.registers[H] = h;
+        this.h = h;
     }
 
     public byte getL() {
-        return registers[L];
+        return this.l;
     }
 
     public void setL(byte l) {
-        this.registers[L] = l;
+        this.l = l;
+    }
+
+    /**
+     * Reads an 8 bit register by its index.
+     *
+     * @param reg Register index: A=0, B=1, C=2, D=3, E=4, F=5, H=6, L=7
+     * @return The register's value
+     */
+    private byte getReg(int reg) {
+        switch (reg) {
+            case A:
+                return a;
+            case B:
+                return b;
+            case C:
+                return c;
+            case D:
+                return d;
+            case E:
+                return e;
+            case F:
+                resolveFlags();
+                return f;
+            case H:
+                return h;
+            case L:
+                return l;
+            default:
+                throw new IllegalArgumentException("Unknown register: " + reg);
+        }
+    }
+
+    /**
+     * Writes an 8 bit register by its index.
+     *
+     * @param reg Register index: A=0, B=1, C=2, D=3, E=4, F=5, H=6, L=7
+     * @param val Value to store
+     */
+    private void setReg(int reg, byte val) {
+        switch (reg) {
+            case A:
+                a = val;
+                break;
+            case B:
+                b = val;
+                break;
+            case C:
+                c = val;
+                break;
+            case D:
+                d = val;
+                break;
+            case E:
+                e = val;
+                break;
+            case F:
+                pendingFlags = FLAGS_NONE;
+                f = val;
+                break;
+            case H:
+                h = val;
+                break;
+            case L:
+                l = val;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown register: " + reg);
+        }
     }
 
 
@@ -104,12 +194,12 @@ public class Registers {
      */
 
     public void setRegPair(int upperReg, int lowerReg, short val) {
-        registers[0xFF & lowerReg] = (byte) (val); // Cast lower half to a byte to remove upper bits
-        registers[0xFF & upperReg] = (byte) (val >> 8); // Shift upper bits to lower half and fill upper half with 0's.
+        setReg(0xFF & lowerReg, (byte) (val)); // Cast lower half to a byte to remove upper bits
+        setReg(0xFF & upperReg, (byte) (val >> 8)); // Shift upper bits to lower half and fill upper half with 0's.
     }
 
     public short getRegPair(int upperReg, int lowerReg) {
-        return BitUtils.mergeBytes(registers[upperReg & 0xFF], registers[lowerReg & 0xFF]);
+        return BitUtils.mergeBytes(getReg(upperReg & 0xFF), getReg(lowerReg & 0xFF));
     }
 
     public short getSP() {
@@ -129,35 +219,41 @@ public class Registers {
     }
 
     public short getAF() {
-        return getRegPair(0, 5);
+        resolveFlags();
+        return (short) ((a << 8) | (f & 0xFF));
     }
 
     public void setAF(short val) {
-        setRegPair(A, F, val);
+        pendingFlags = FLAGS_NONE;
+        a = (byte) (val >> 8);
+        f = (byte) val;
     }
 
     public short getBC() {
-        return getRegPair(B, C);
+        return (short) ((b << 8) | (c & 0xFF));
     }
 
     public void setBC(short val) {
-        setRegPair(B, C, val);
+        b = (byte) (val >> 8);
+        c = (byte) val;
     }
 
     public short getDE() {
-        return getRegPair(D, E);
+        return (short) ((d << 8) | (e & 0xFF));
     }
 
     public void setDE(short val) {
-        setRegPair(D, E, val);
+        d = (byte) (val >> 8);
+        e = (byte) val;
     }
 
     public short getHL() {
-        return getRegPair(H, L);
+        return (short) ((h << 8) | (l & 0xFF));
     }
 
     public void setHL(short val) {
-        setRegPair(H, L, val);
+        h = (byte) (val >> 8);
+        l = (byte) val;
     }
 
     /*
@@ -165,51 +261,160 @@ public class Registers {
      */
 
     public void setZFlag() {
-        registers[F] = BitUtils.setBit(registers[F], z_pos);
+        resolveFlags();
+        f |= Z_MASK;
     }
 
     public void setNFlag() {
-        registers[F] = BitUtils.setBit(registers[F], n_pos);
+        resolveFlags();
+        f |= N_MASK;
     }
 
     public void setHFlag() {
-        registers[F] = BitUtils.setBit(registers[F], h_pos);
+        resolveFlags();
+        f |= H_MASK;
     }
 
     public void setCFlag() {
-        registers[F] = BitUtils.setBit(registers[F], c_pos);
+        resolveFlags();
+        f |= C_MASK;
     }
 
     public byte getZFlag() {
-        return (byte) ((this.registers[F] >> this.z_pos) & 0x1);
+        resolveFlags();
+        return (byte) ((f & Z_MASK) >> 7);
     }
 
     public byte getNFlag() {
-        return (byte) ((this.registers[F] >> this.n_pos) & 0x1);
+        resolveFlags();
+        return (byte) ((f & N_MASK) >> 6);
     }
 
     public byte getCFlag() {
-        return (byte) ((this.registers[F] >> this.c_pos) & 0x1);
+        resolveFlags();
+        return (byte) ((f & C_MASK) >> 4);
     }
 
     public byte getHFlag() {
-        return (byte) ((this.registers[F] >> this.h_pos) & 0x1);
+        resolveFlags();
+        return (byte) ((f & H_MASK) >> 5);
     }
 
     public void clearZFlag() {
-        registers[F] = BitUtils.clearBit(registers[F], z_pos);
+        resolveFlags();
+        f &= ~Z_MASK;
     }
 
     public void clearNFlag() {
-        registers[F] = BitUtils.clearBit(registers[F], n_pos);
+        resolveFlags();
+        f &= ~N_MASK;
     }
 
     public void clearHFlag() {
-        registers[F] = BitUtils.clearBit(registers[F], h_pos);
+        resolveFlags();
+        f &= ~H_MASK;
     }
 
     public void clearCFlag() {
-        registers[F] = BitUtils.clearBit(registers[F], c_pos);
+        resolveFlags();
+        f &= ~C_MASK;
+    }
+
+    /*
+     * Lazy flag evaluation
+     */
+
+    public boolean isLazyFlags() {
+        return lazyFlags;
+    }
+
+    /**
+     * Switches between writing flags as soon as an ALU operation completes (eager) and deferring them until read (lazy).
+     *
+     * @param lazyFlags true to defer flag evaluation
+     */
+    public void setLazyFlags(boolean lazyFlags) {
+        resolveFlags();
+        this.lazyFlags = lazyFlags;
+    }
+
+    /**
+     * Records an ALU operation so its flags can be computed when they are next read.
+     * Operations which leave a flag unaffected need the previous flags, so any pending operation is resolved first.
+     *
+     * @param operation One of the FLAGS_ constants
+     * @param operand1  First operand (e.g. the old value of A)
+     * @param operand2  Second operand, or the carry out for FLAGS_SHIFT
+     * @param result    The result of the operation
+     */
+    void deferFlags(int operation, int operand1, int operand2, int result) {
+        if (operation == FLAGS_INC || operation == FLAGS_DEC || operation == FLAGS_ADD16) {
+            resolveFlags();
+        }
+        pendingFlags = operation;
+        flagOperand1 = operand1;
+        flagOperand2 = operand2;
+        flagResult = result;
+    }
+
+    /**
+     * Computes the flags of the pending ALU operation, if any, and writes them to register F.
+     * The calculations mirror the eager versions in Commands.
+     */
+    private void resolveFlags() {
+        if (pendingFlags == FLAGS_NONE) {
+            return;
+        }
+
+        int op1 = flagOperand1;
+        int op2 = flagOperand2;
+        int flags;
+        int affected = Z_MASK | N_MASK | H_MASK | C_MASK;
+        int zero = ((byte) flagResult == 0) ? Z_MASK : 0;
+
+        switch (pendingFlags) {
+            case FLAGS_ADD:
+                flags = zero;
+                if (((op1 & 0xF) + (op2 & 0xF)) > 0xF) flags |= H_MASK;
+                if (((op1 & 0xFF) + (op2 & 0xFF)) > 0xFF) flags |= C_MASK;
+                break;
+            case FLAGS_SUB:
+                // H and C are set when there is NO borrow
+                flags = zero | N_MASK;
+                if (((op1 & 0xF) - (op2 & 0xF)) >= 0) flags |= H_MASK;
+                if ((op1 & 0xFF) >= (op2 & 0xFF)) flags |= C_MASK;
+                break;
+            case FLAGS_AND:
+                flags = zero | H_MASK;
+                break;
+            case FLAGS_OR:
+                flags = zero;
+                break;
+            case FLAGS_INC:
+                flags = zero;
+                if (((op1 & 0xF) + 0x1) >= 0x10) flags |= H_MASK;
+                affected = Z_MASK | N_MASK | H_MASK;
+                break;
+            case FLAGS_DEC:
+                flags = zero | N_MASK;
+                if ((op1 & 0xF) < 0x1) flags |= H_MASK;
+                affected = Z_MASK | N_MASK | H_MASK;
+                break;
+            case FLAGS_ADD16:
+                flags = 0;
+                if ((((op1 & 0xFFF) + (op2 & 0xFFF)) & 0x1000) == 0x1000) flags |= H_MASK;
+                if ((((op1 & 0xFFFF) + (op2 & 0xFFFF)) & 0x10000) == 0x10000) flags |= C_MASK;
+                affected = N_MASK | H_MASK | C_MASK;
+                break;
+            case FLAGS_SHIFT:
+                flags = zero | (op2 != 0 ? C_MASK : 0);
+                break;
+            default:
+                throw new IllegalStateException("Unknown pending flag operation: " + pendingFlags);
+        }
+
+        pendingFlags = FLAGS_NONE;
+        f = (byte) ((f & ~affected) | flags);
     }
 
     public void incPC() {
@@ -0,0 +1,26 @@
+package GameBoy;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: RomOnly
+ * Description: Cartridge without a memory bank controller. 32k of ROM, plus up to 8k of RAM which is always enabled.
+ */
+class RomOnly implements Mapper {
+    private boolean hasRam;
+
+    RomOnly(boolean hasRam) {
+        this.hasRam = hasRam;
+    }
+
+    public void write(int adr, byte val) {
+        // No registers
+    }
+
+    public int getRomBank() {
+        return 1;
+    }
+
+    public boolean isRamEnabled() {
+        return hasRam;
+    }
+}
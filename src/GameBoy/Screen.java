@@ -5,17 +5,23 @@ import org.w3c.dom.css.RGBColor;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 
 /**
  * Author: Benjamin Baird
  * Date: 2019-01-16
  * Date Created: 2019-01-03
  * Description: Represents a screen of the GameBoy
+ * Frames arrive from the emulation thread through a lock free triple buffer. A Swing timer takes the latest one on the
+ * event dispatch thread once per display refresh and repaints, so the emulator never waits on Java2D.
  **/
-public class Screen extends JPanel {
+public class Screen extends JPanel implements Display {
     int width;
     int height;
     BufferedImage bufferedImage;
+    private final int[] imagePixels;    // The array backing bufferedImage, RGB of every pixel row by row
+    private final FrameExchange frames; // Completed frames waiting to be shown
+    private final Timer refreshTimer;   // Shows the latest frame once per display refresh
 
     /**
      * Constructor
@@ -27,6 +33,46 @@ public class Screen extends JPanel {
         this.width = width;
         this.height = height;
         bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        imagePixels = ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
+        frames = new FrameExchange(width * height);
+
+        refreshTimer = new Timer(1000 / getRefreshRate(), e -> {
+            int[] frame = frames.acquire();
+            if (frame != null) {
+                System.arraycopy(frame, 0, imagePixels, 0, imagePixels.length);
+                repaint();
+            }
+        });
+        refreshTimer.start();
+    }
+
+    /**
+     * @return Refresh rate of the default display in hz, or 60 if it's unknown
+     */
+    private static int getRefreshRate() {
+        try {
+            int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode()
+                    .getRefreshRate();
+            return rate == DisplayMode.REFRESH_RATE_UNKNOWN ? 60 : rate;
+        } catch (HeadlessException e) {
+            return 60;
+        }
+    }
+
+    /**
+     * Opens a window containing a new GameBoy sized screen
+     *
+     * @param title Title of the window
+     * @return The screen shown in the window
+     */
+    public static Screen createWindow(String title) {
+        Screen screen = new Screen(160, 144);
+        JFrame window = new JFrame(title);
+        window.getContentPane().add(screen);
+        window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        window.setSize(160, 144);
+        window.setVisible(true);
+        return screen;
     }
 
 
@@ -49,48 +95,25 @@ public class Screen extends JPanel {
 //    }
 
     /**
-     * Draws a row of pixels to the screen
+     * Publishes a completed frame to be shown at the next refresh. Called from the emulation thread.
      *
-     * @param pixels A row of pixels
-     * @param row    The current row of the screen (scanline) to draw to.
+     * @param frame RGB of every pixel on the screen, 160 per row
+     * @return Array to draw the next frame into
      */
-    public void renderScreen(Pixel[] pixels, int row) {
-        Graphics g = this.getGraphics();
-        // Load each pixel into the bufferedImage
-        for (int j = 0; j < pixels.length; j++) {
-            bufferedImage.setRGB(j, row, pixelColour(pixels[j]));
-        }
-        g.drawImage(bufferedImage, 0, 0, this);
+    public int[] presentFrame(int[] frame) {
+        return frames.publish(frame);
     }
 
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        g.drawImage(bufferedImage, 0, 0, this);
+    }
 
     /**
-     * Converts the GameBoy's pixel value (0 - 3) into an RGB value
-     *
-     * @param pixel Colour of pixel in GameBoy (0-3)
-     * @return RGB value of pixel
+     * @return The frames handed over, with counts of frames dropped and duplicated
      */
-    public int pixelColour(Pixel pixel) {
-        int rgb = 0;
-        switch (pixel.colour) {
-            case 0:
-                // White (Off)
-                rgb = 0xFFFFFF;
-                break;
-            case 1:
-                // Light Grey
-                rgb = 0xC0C0C0;
-                break;
-            case 2:
-                // Dark Grey
-                rgb = 0x404040;
-                break;
-            case 3:
-                // Black
-                rgb = 0;
-                break;
-        }
-
-        return rgb;
+    public FrameExchange getFrames() {
+        return frames;
     }
 }
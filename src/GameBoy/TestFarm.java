@@ -0,0 +1,367 @@
+package GameBoy;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: TestFarm
+ * Description: Runs every .gb file under a directory (test-roms/ by default) on its own headless Machine, spread over
+ * a fixed thread pool, and writes JUnit XML and JSON reports.
+ *
+ * A ROM's result is read the two ways blargg's test ROMs report it:
+ *
+ *      1. Text sent over the serial port (0xFF01/0xFF02), which ends in "Passed" or "Failed".
+ *
+ *      2. The result in cartridge RAM: 0xA001 - 0xA003 hold the signature DE B0 61, 0xA000 is 0x80 while the test
+ *      runs and then the result code (0 passed), and the text output starts at 0xA004, zero terminated.
+ *
+ * A ROM that reports neither within its cycle budget times out.
+ *
+ * Run with: java -cp out GameBoy.TestFarm [dir] [--threads=N] [--budget=seconds] [--junit=file] [--json=file]
+ */
+public class TestFarm {
+    private static final int DEFAULT_BUDGET = 30;       // Emulated seconds a ROM may run for unless listed below
+
+    // Emulated seconds needed by the ROMs which take longer than the default, by file name
+    private static final Map<String, Integer> BUDGETS = new HashMap<>();
+
+    static {
+        BUDGETS.put("cpu_instrs.gb", 120);
+        BUDGETS.put("dmg_sound.gb", 90);
+        BUDGETS.put("cgb_sound.gb", 90);
+        BUDGETS.put("oam_bug.gb", 60);
+    }
+
+    public enum Status {PASSED, FAILED, TIMEOUT, ERROR}
+
+    /**
+     * Outcome of running a single ROM.
+     */
+    public static class Result {
+        private final Path rom;
+        private final Status status;
+        private final String message;
+        private final String output;    // Everything sent over the serial port
+        private final long cycles;      // Emulated cycles executed
+        private final long nanos;       // Wall clock time taken
+
+        Result(Path rom, Status status, String message, String output, long cycles, long nanos) {
+            this.rom = rom;
+            this.status = status;
+            this.message = message;
+            this.output = output;
+            this.cycles = cycles;
+            this.nanos = nanos;
+        }
+
+        public Path getRom() {
+            return rom;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public String getOutput() {
+            return output;
+        }
+
+        public long getCycles() {
+            return cycles;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return Emulated cycles per wall clock second
+         */
+        public double getCyclesPerSecond() {
+            return nanos == 0 ? 0 : cycles * 1e9 / nanos;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Paths.get("test-roms");
+        int threads = Runtime.getRuntime().availableProcessors();
+        int budget = -1;
+        Path junit = Paths.get("test-farm.xml");
+        Path json = Paths.get("test-farm.json");
+        for (String arg : args) {
+            if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring(10));
+            } else if (arg.startsWith("--budget=")) {
+                budget = Integer.parseInt(arg.substring(9));
+            } else if (arg.startsWith("--junit=")) {
+                junit = Paths.get(arg.substring(8));
+            } else if (arg.startsWith("--json=")) {
+                json = Paths.get(arg.substring(7));
+            } else {
+                dir = Paths.get(arg);
+            }
+        }
+
+        List<Path> roms = findRoms(dir);
+        System.out.printf("Running %d ROMs from %s on %d threads%n", roms.size(), dir, threads);
+
+        long start = System.nanoTime();
+        List<Result> results = runAll(roms, threads, budget);
+        long elapsed = System.nanoTime() - start;
+
+        int passed = 0;
+        for (Result result : results) {
+            System.out.printf("%-8s %-60s %12d cycles %8.1f Mcycles/s  %s%n", result.getStatus(),
+                    dir.relativize(result.getRom()), result.getCycles(), result.getCyclesPerSecond() / 1e6,
+                    result.getMessage());
+            if (result.getStatus() == Status.PASSED) {
+                passed++;
+            }
+        }
+        System.out.printf("%d/%d passed in %.1f s%n", passed, results.size(), elapsed / 1e9);
+
+        writeJUnit(junit, dir, results, elapsed);
+        writeJson(json, dir, results, elapsed);
+        System.exit(passed == results.size() ? 0 : 1);
+    }
+
+    /**
+     * @param dir Directory to search
+     * @return Every .gb file under dir, sorted by path
+     */
+    public static List<Path> findRoms(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(f -> f.toString().endsWith(".gb") && Files.isRegularFile(f))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Runs ROMs concurrently, one machine per ROM.
+     *
+     * @param roms    ROMs to run
+     * @param threads Size of the thread pool
+     * @param budget  Emulated seconds each ROM may run for, or -1 to use each ROM's own budget
+     * @return Results in the same order as roms
+     */
+    public static List<Result> runAll(List<Path> roms, int threads, int budget) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (Path rom : roms) {
+                long cycles = (long) (budget < 0 ? getBudget(rom) : budget) * FramePacer.CLOCK_SPEED;
+                futures.add(pool.submit(() -> run(rom, cycles)));
+            }
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @param rom A test ROM
+     * @return Emulated seconds the ROM may run for before it times out
+     */
+    static int getBudget(Path rom) {
+        return BUDGETS.getOrDefault(rom.getFileName().toString(), DEFAULT_BUDGET);
+    }
+
+    /**
+     * Runs a ROM on a new headless machine until it reports a result or runs out of cycles.
+     *
+     * @param rom          ROM to run
+     * @param budgetCycles Cycles the ROM may run for
+     * @return The result
+     */
+    public static Result run(Path rom, long budgetCycles) {
+        Machine machine = new Machine();
+        MMU mmu = machine.getMMU();
+        StringBuilder serial = new StringBuilder();
+        long start = System.nanoTime();
+        try {
+            mmu.setSaveRamPersisted(false);     // Don't leave .sav files next to the ROMs
+            machine.load(rom.toString());
+            mmu.setSerialListener(b -> serial.append((char) b));
+
+            while (machine.getTotalCycles() < budgetCycles) {
+                machine.runFrame();
+
+                String text = serial.toString();
+                if (text.contains("Passed")) {
+                    return result(rom, Status.PASSED, lastLine(text), serial, machine, start);
+                } else if (text.contains("Failed")) {
+                    return result(rom, Status.FAILED, lastLine(text), serial, machine, start);
+                }
+
+                if (mmu.getMemVal(0xA001) == (byte) 0xDE && mmu.getMemVal(0xA002) == (byte) 0xB0
+                        && mmu.getMemVal(0xA003) == (byte) 0x61 && mmu.getMemVal(0xA000) != (byte) 0x80) {
+                    int code = mmu.getMemVal(0xA000) & 0xFF;
+                    String message = code == 0 ? "Passed" : "Failed with code " + code + ": " + readText(mmu);
+                    return result(rom, code == 0 ? Status.PASSED : Status.FAILED, message, serial, machine, start);
+                }
+            }
+            return result(rom, Status.TIMEOUT, "No result after " + budgetCycles + " cycles", serial, machine, start);
+        } catch (RuntimeException e) {
+            return result(rom, Status.ERROR, e.toString(), serial, machine, start);
+        }
+    }
+
+    private static Result result(Path rom, Status status, String message, StringBuilder serial, Machine machine,
+                                 long start) {
+        return new Result(rom, status, message, serial.toString(), machine.getTotalCycles(),
+                System.nanoTime() - start);
+    }
+
+    /**
+     * @return The last non empty line of text
+     */
+    private static String lastLine(String text) {
+        String[] lines = text.trim().split("\n");
+        return lines[lines.length - 1].trim();
+    }
+
+    /**
+     * @return The zero terminated text a test left in cartridge RAM from 0xA004
+     */
+    private static String readText(MMU mmu) {
+        StringBuilder sb = new StringBuilder();
+        for (int adr = 0xA004; adr < 0xC000 && mmu.getMemVal(adr) != 0; adr++) {
+            sb.append((char) (mmu.getMemVal(adr) & 0xFF));
+        }
+        return lastLine(sb.toString());
+    }
+
+    /**
+     * Writes results as a JUnit XML test suite, one test case per ROM. The suite is named after the directory and
+     * each case is named after the ROM, with the ROM's directory as its class name.
+     */
+    static void writeJUnit(Path file, Path dir, List<Result> results, long nanos) throws IOException {
+        long failures = results.stream().filter(r -> r.getStatus() == Status.FAILED || r.getStatus() == Status.TIMEOUT).count();
+        long errors = results.stream().filter(r -> r.getStatus() == Status.ERROR).count();
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            out.printf("<testsuite name=\"%s\" tests=\"%d\" failures=\"%d\" errors=\"%d\" time=\"%.3f\">%n",
+                    xml(dir.toString()), results.size(), failures, errors, nanos / 1e9);
+            for (Result result : results) {
+                Path relative = dir.relativize(result.getRom());
+                String name = relative.getFileName().toString().replaceAll("\\.gb$", "");
+                String className = relative.getParent() == null ? dir.getFileName().toString()
+                        : relative.getParent().toString().replace(relative.getFileSystem().getSeparator(), ".");
+
+                out.printf("  <testcase classname=\"%s\" name=\"%s\" time=\"%.3f\">%n",
+                        xml(className), xml(name), result.getNanos() / 1e9);
+                out.println("    <properties>");
+                out.printf("      <property name=\"cycles\" value=\"%d\"/>%n", result.getCycles());
+                out.printf("      <property name=\"cyclesPerSecond\" value=\"%.0f\"/>%n", result.getCyclesPerSecond());
+                out.println("    </properties>");
+                switch (result.getStatus()) {
+                    case FAILED:
+                    case TIMEOUT:
+                        out.printf("    <failure type=\"%s\" message=\"%s\"/>%n", result.getStatus(),
+                                xml(result.getMessage()));
+                        break;
+                    case ERROR:
+                        out.printf("    <error message=\"%s\"/>%n", xml(result.getMessage()));
+                        break;
+                    default:
+                        break;
+                }
+                out.printf("    <system-out>%s</system-out>%n", xml(result.getOutput()));
+                out.println("  </testcase>");
+            }
+            out.println("</testsuite>");
+        }
+    }
+
+    /**
+     * Writes results as JSON: a summary and an array with one object per ROM.
+     */
+    static void writeJson(Path file, Path dir, List<Result> results, long nanos) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("{");
+            out.printf("  \"directory\": \"%s\",%n", json(dir.toString()));
+            out.printf("  \"seconds\": %.3f,%n", nanos / 1e9);
+            out.println("  \"results\": [");
+            for (int i = 0; i < results.size(); i++) {
+                Result result = results.get(i);
+                out.printf("    {\"rom\": \"%s\", \"status\": \"%s\", \"message\": \"%s\", \"cycles\": %d, " +
+                                "\"seconds\": %.3f, \"cyclesPerSecond\": %.0f, \"output\": \"%s\"}%s%n",
+                        json(dir.relativize(result.getRom()).toString()), result.getStatus(),
+                        json(result.getMessage()), result.getCycles(), result.getNanos() / 1e9,
+                        result.getCyclesPerSecond(), json(result.getOutput()), i + 1 < results.size() ? "," : "");
+            }
+            out.println("  ]");
+            out.println("}");
+        }
+    }
+
+    /**
+     * Escapes text for an XML attribute or element, dropping characters XML 1.0 can't hold.
+     */
+    private static String xml(String s) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                default:
+                    if (c >= 0x20 || c == '\n' || c == '\t') {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Escapes text for a JSON string.
+     */
+    private static String json(String s) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else if (c < 0x20 || c > 0x7E) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,154 @@
+package GameBoy;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: TileCache
+ * Description: Cache of the 384 tiles in VRAM (0x8000 - 0x97FF), decoded into one colour number (0 - 3) per pixel.
+ * Each row of a tile is decoded the first time it's drawn after a write to either of its 2 bytes, rather than on
+ * every scanline that uses it, and only that row: a game streaming new tile data in a row at a time doesn't cost a
+ * whole tile per row. Decoding is a copy out of a table of every possible row. Each tile is also kept mirrored
+ * horizontally, for sprites with the X flip flag set.
+ *
+ * Counters are kept for the frame in progress and for the last complete frame.
+ */
+public class TileCache {
+    public static final int TILES = 384;
+    private static final int TILE_DATA_END = 0x9800;
+
+    // Colour numbers of the 8 pixels of every possible row, indexed by (high byte << 8 | low byte) * 8. Each row is 2
+    // bytes, the first holding the low bit of each pixel's colour number and the second the high bit, leftmost pixel
+    // in bit 7.
+    private static final byte[] ROW_PIXELS = new byte[0x10000 * 8];
+
+    static {
+        for (int bits = 0; bits < 0x10000; bits++) {
+            for (int x = 0; x < 8; x++) {
+                int shift = 7 - x;
+                ROW_PIXELS[bits * 8 + x] = (byte) ((((bits >> (8 + shift)) & 1) << 1) | ((bits >> shift) & 1));
+            }
+        }
+    }
+
+    private final MMU mmu;
+    private final byte[] pixels = new byte[TILES * 64];         // 8 rows of 8 colour numbers per tile
+    private final byte[] flippedPixels = new byte[TILES * 64];  // The same, with each row reversed
+    private final boolean[] valid = new boolean[TILES * 8];     // Whether each row is decoded
+
+    // Counts for the frame in progress
+    private long hits = 0;
+    private long decodes = 0;
+    private long invalidations = 0;
+
+    // Counts for the last complete frame
+    private long frameHits = 0;
+    private long frameDecodes = 0;
+    private long frameInvalidations = 0;
+
+    /**
+     * @param mmu Memory holding VRAM
+     */
+    public TileCache(MMU mmu) {
+        this.mmu = mmu;
+    }
+
+    /**
+     * Finds a row of a tile, decoding the row first if it has changed since it was last decoded.
+     *
+     * @param tile Tile number (0 - 383), tile 0 being at 0x8000
+     * @param row  Row within the tile (0 - 7)
+     * @return Index of the row's 8 pixels in getPixels() and getFlippedPixels()
+     */
+    public int getRow(int tile, int row) {
+        int index = tile * 8 + row;
+        if (valid[index]) {
+            hits++;
+        } else {
+            decode(index);
+        }
+        return index * 8;
+    }
+
+    /**
+     * @return Decoded colour numbers of every tile, the leftmost pixel of each row first
+     */
+    public byte[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * @return Decoded colour numbers of every tile, the rightmost pixel of each row first
+     */
+    public byte[] getFlippedPixels() {
+        return flippedPixels;
+    }
+
+    /**
+     * Decodes a row of a tile, straight from VRAM.
+     *
+     * @param index Tile number * 8 + row
+     */
+    private void decode(int index) {
+        int adr = 0x8000 + index * 2;
+        int bits = ((mmu.loadVideo(adr + 1) & 0xFF) << 8) | (mmu.loadVideo(adr) & 0xFF);
+        int offset = index * 8;
+        System.arraycopy(ROW_PIXELS, bits * 8, pixels, offset, 8);
+        for (int x = 0; x < 8; x++) {
+            flippedPixels[offset + 7 - x] = pixels[offset + x];
+        }
+        valid[index] = true;
+        decodes++;
+    }
+
+    /**
+     * Drops the tile row covering an address, if it's tile data. Called on every write to VRAM.
+     *
+     * @param adr Address written to
+     */
+    void invalidate(int adr) {
+        if (adr >= 0x8000 && adr < TILE_DATA_END) {
+            int index = (adr - 0x8000) >> 1;
+            if (valid[index]) {
+                valid[index] = false;
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * Keeps the counts of the frame just finished and starts counting again. Called at the start of V-Blank.
+     */
+    void endFrame() {
+        frameHits = hits;
+        frameDecodes = decodes;
+        frameInvalidations = invalidations;
+        hits = 0;
+        decodes = 0;
+        invalidations = 0;
+    }
+
+    /**
+     * @return Rows served without decoding during the last frame
+     */
+    public long getHits() {
+        return frameHits;
+    }
+
+    /**
+     * @return Tile rows decoded during the last frame
+     */
+    public long getDecodes() {
+        return frameDecodes;
+    }
+
+    /**
+     * @return Decoded tile rows dropped by writes to VRAM during the last frame
+     */
+    public long getInvalidations() {
+        return frameInvalidations;
+    }
+
+    public String toString() {
+        return String.format("Tile cache: %d hits, %d decodes, %d invalidations last frame",
+                frameHits, frameDecodes, frameInvalidations);
+    }
+}
@@ -0,0 +1,68 @@
+package GameBoy.bench;
+
+import GameBoy.CPU;
+import GameBoy.MMU;
+import GameBoy.Registers;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: CoreBenchmark
+ * Description: Runs a fixed ROM for N million instructions on each interpreter core, with and without the block
+ * cache, and reports instructions/second.
+ * Only the CPU is stepped, so the numbers reflect fetch, decode and dispatch cost.
+ * Run with: java -cp out GameBoy.bench.CoreBenchmark [rom] [millions of instructions]
+ */
+public class CoreBenchmark {
+
+    public static void main(String[] args) {
+        String rom = args.length > 0 ? args[0] : "test-roms/cpu_instrs/individual/06-ld r,r.gb";
+        long instructions = (args.length > 1 ? Long.parseLong(args[1]) : 20) * 1_000_000L;
+
+        for (int round = 0; round < 3; round++) {
+            report("table ", run(rom, CPU.TABLE_CORE, false, instructions), instructions);
+            report("switch", run(rom, CPU.SWITCH_CORE, false, instructions), instructions);
+            report("table  + blocks", run(rom, CPU.TABLE_CORE, true, instructions), instructions);
+            report("switch + blocks", run(rom, CPU.SWITCH_CORE, true, instructions), instructions);
+        }
+    }
+
+    /**
+     * Runs a ROM from 0x100 on a fresh machine.
+     *
+     * @return The elapsed time in nanoseconds
+     */
+    private static long run(String rom, int core, boolean blocks, long instructions) {
+        MMU mmu = new MMU();
+        Registers regs = new Registers();
+        mmu.load(rom);
+        regs.setPC((short) 0x100);
+        regs.setLazyFlags(true);
+        CPU cpu = new CPU(mmu, regs);
+        cpu.setCore(core);
+        cpu.setBlockCacheEnabled(blocks);
+
+        long start = System.nanoTime();
+        if (blocks) {
+            long executed = 0;
+            while (executed < instructions) {
+                cpu.runNextBlock();
+                executed += cpu.getLastBlockLength();
+            }
+        } else {
+            for (long i = 0; i < instructions; i++) {
+                cpu.runNextOpCode();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (blocks) {
+            System.out.println(cpu.getBlockCache());
+        }
+        return elapsed;
+    }
+
+    private static void report(String core, long nanos, long instructions) {
+        System.out.printf("%s core: %.1f million instructions/s (%.2f ns/instruction)%n",
+                core, instructions * 1000.0 / nanos, (double) nanos / instructions);
+    }
+}
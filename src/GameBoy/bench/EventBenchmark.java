@@ -0,0 +1,86 @@
+package GameBoy.bench;
+
+import GameBoy.Machine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: EventBenchmark
+ * Description: Measures instructions per second and frames per second of single machines. Run it on a build from
+ * before the event queue (stepping one instruction at a time, with the timers and GPU updated after each) and after
+ * it to compare. Besides the ROMs given, always runs a loop polling LY with the LCD on, which is what most games do
+ * while they wait and where updating the GPU after every instruction cost the most.
+ * Run with: java -cp out GameBoy.bench.EventBenchmark [seconds per ROM] [rom ...]
+ */
+public class EventBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        String[] roms = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length) : new String[]{
+                "test-roms/cpu_instrs/individual/06-ld r,r.gb", "test-roms/instr_timing/instr_timing.gb"};
+
+        int[] pollLY = {
+                0xF3,                           // DI
+                0xF0, 0x44,                     // LDH A,(0x44)
+                0xFE, 0x90,                     // CP 144
+                0x20, 0xFA,                     // JR NZ,-6
+                0xF0, 0x44,                     // LDH A,(0x44)
+                0xFE, 0x90,                     // CP 144
+                0x28, 0xFA,                     // JR Z,-6
+                0x18, 0xF2};                    // JR -14
+
+        for (String rom : roms) {
+            Machine machine = new Machine();
+            machine.load(rom);
+            measure(new File(rom).getName(), machine, seconds);
+        }
+        measure("LY polling, LCD on", load(pollLY), seconds);
+    }
+
+    /**
+     * Runs whole frames for about the given time, after a second of warm up.
+     */
+    private static void measure(String name, Machine machine, int seconds) {
+        long end = System.nanoTime() + 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            machine.runFrame();
+        }
+
+        long instructions = machine.getInstructions();
+        long frames = 0;
+        long start = System.nanoTime();
+        end = start + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            machine.runFrame();
+            frames++;
+        }
+        long nanos = System.nanoTime() - start;
+
+        System.out.printf("%-30s %6.1f M instructions/s, %6.0f frames/s%n", name,
+                (machine.getInstructions() - instructions) * 1e3 / nanos, frames * 1e9 / nanos);
+    }
+
+    /**
+     * Loads a 32k cartridge which jumps from the entry point to code at 0x150.
+     */
+    private static Machine load(int[] code) throws IOException {
+        byte[] image = new byte[0x8000];
+        image[0x100] = (byte) 0xC3;     // JP 0x150
+        image[0x101] = 0x50;
+        image[0x102] = 0x01;
+        for (int i = 0; i < code.length; i++) {
+            image[0x150 + i] = (byte) code[i];
+        }
+        File rom = File.createTempFile("gameboy-bench", ".gb");
+        rom.deleteOnExit();
+        Files.write(rom.toPath(), image);
+
+        Machine machine = new Machine();
+        machine.load(rom.getPath());
+        return machine;
+    }
+}
@@ -0,0 +1,96 @@
+package GameBoy.bench;
+
+import GameBoy.Machine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: HaltBenchmark
+ * Description: Compares idle games which wait in HALT with ones which poll a register in a busy loop. A halted machine
+ * skips from event to event instead of running instructions, so it runs far fewer instructions per frame.
+ * Two cases: waiting for V-Blank with the LCD on, where drawing scanlines costs the same either way, and waiting for
+ * the timer with the LCD off, where only the CPU is left.
+ * Run with: java -cp out GameBoy.bench.HaltBenchmark [frames]
+ */
+public class HaltBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+        int[] vblankHalt = {
+                0xF3, 0x3E, 0x01, 0xE0, 0xFF,   // DI; LD A,1; LDH (0xFF),A - enable V-Blank
+                0xAF, 0xE0, 0x0F,               // XOR A; LDH (0x0F),A
+                0x76,                           // HALT
+                0x18, 0xFA};                    // JR -6
+        int[] vblankPoll = {
+                0xF3, 0x3E, 0x01, 0xE0, 0xFF,   // DI; LD A,1; LDH (0xFF),A - enable V-Blank
+                0xF0, 0x44,                     // LDH A,(0x44)
+                0xFE, 0x90,                     // CP 144
+                0x18, 0xFA};                    // JR -6
+        int[] timerHalt = {
+                0xF3, 0xAF, 0xE0, 0x40,         // DI; XOR A; LDH (0x40),A - LCD off
+                0x3E, 0x05, 0xE0, 0x07,         // LD A,5; LDH (0x07),A - timer on, 262144hz
+                0x3E, 0x04, 0xE0, 0xFF,         // LD A,4; LDH (0xFF),A - enable the timer interrupt
+                0xAF, 0xE0, 0x0F,               // XOR A; LDH (0x0F),A
+                0x76,                           // HALT
+                0x18, 0xFA};                    // JR -6
+        int[] timerPoll = {
+                0xF3, 0xAF, 0xE0, 0x40,         // DI; XOR A; LDH (0x40),A - LCD off
+                0x3E, 0x05, 0xE0, 0x07,         // LD A,5; LDH (0x07),A - timer on, 262144hz
+                0xF0, 0x0F,                     // LDH A,(0x0F)
+                0xE6, 0x04,                     // AND 4
+                0x18, 0xFA};                    // JR -6
+
+        for (int round = 0; round < 3; round++) {
+            compare("V-Blank, LCD on", load(vblankHalt), load(vblankPoll), frames);
+            compare("Timer, LCD off ", load(timerHalt), load(timerPoll), frames);
+        }
+    }
+
+    private static void compare(String name, Machine halted, Machine polling, int frames) {
+        long haltInstructions = halted.getInstructions();
+        long haltStart = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            halted.runFrame();
+        }
+        long haltNanos = System.nanoTime() - haltStart;
+        haltInstructions = halted.getInstructions() - haltInstructions;
+
+        long pollInstructions = polling.getInstructions();
+        long pollStart = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            polling.runFrame();
+        }
+        long pollNanos = System.nanoTime() - pollStart;
+        pollInstructions = polling.getInstructions() - pollInstructions;
+
+        System.out.printf("%s: HALT %.0f frames/s, %d instructions/frame (%.0f%% of cycles skipped); " +
+                        "polling %.0f frames/s, %d instructions/frame; %.1fx faster%n",
+                name, frames * 1e9 / haltNanos, haltInstructions / frames,
+                100.0 * halted.getHaltedCycles() / halted.getTotalCycles(), frames * 1e9 / pollNanos,
+                pollInstructions / frames, (double) pollNanos / haltNanos);
+    }
+
+    /**
+     * Loads a 32k cartridge which jumps from the entry point to code at 0x150.
+     */
+    private static Machine load(int[] code) throws IOException {
+        byte[] image = new byte[0x8000];
+        image[0x100] = (byte) 0xC3;     // JP 0x150
+        image[0x101] = 0x50;
+        image[0x102] = 0x01;
+        for (int i = 0; i < code.length; i++) {
+            image[0x150 + i] = (byte) code[i];
+        }
+        File rom = File.createTempFile("gameboy-bench", ".gb");
+        rom.deleteOnExit();
+        Files.write(rom.toPath(), image);
+
+        Machine machine = new Machine();
+        machine.load(rom.getPath());
+        return machine;
+    }
+}
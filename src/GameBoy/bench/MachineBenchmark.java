@@ -0,0 +1,71 @@
+package GameBoy.bench;
+
+import GameBoy.Machine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: MachineBenchmark
+ * Description: Runs N independent headless machines on N threads, for 1, 2, 4 ... up to N threads, and reports
+ * aggregate emulated frames per second. Shows how throughput scales with cores now that machines share no state.
+ * Run with: java -cp out GameBoy.bench.MachineBenchmark [rom] [max threads] [frames per machine]
+ */
+public class MachineBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String rom = args.length > 0 ? args[0] : "test-roms/cpu_instrs/individual/06-ld r,r.gb";
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int frames = args.length > 2 ? Integer.parseInt(args[2]) : 600;
+
+        // Warm up so the first measurement isn't mostly JIT compilation
+        run(rom, 1, frames);
+
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            report(threads, run(rom, threads, frames), frames);
+        }
+        // Always finish with exactly maxThreads, even when it isn't a power of two
+        report(maxThreads, run(rom, maxThreads, frames), frames);
+    }
+
+    /**
+     * Runs one machine per thread until each has emulated frames frames.
+     *
+     * @return The elapsed time in nanoseconds
+     */
+    private static long run(String rom, int threads, int frames) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Machine> machines = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Machine machine = new Machine();
+            machine.load(rom);
+            machines.add(machine);
+        }
+
+        long start = System.nanoTime();
+        List<Future<?>> results = new ArrayList<>();
+        for (Machine machine : machines) {
+            results.add(pool.submit(() -> {
+                for (int i = 0; i < frames; i++) {
+                    machine.runFrame();
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        return elapsed;
+    }
+
+    private static void report(int threads, long nanos, int frames) {
+        double fps = (double) threads * frames * 1e9 / nanos;
+        System.out.printf("%3d machines/threads: %.0f frames/s total, %.0f frames/s per machine (%.1fx real time each)%n",
+                threads, fps, fps / threads, fps / threads / 59.73);
+    }
+}
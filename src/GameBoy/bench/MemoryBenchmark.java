@@ -0,0 +1,151 @@
+package GameBoy.bench;
+
+import GameBoy.MMU;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: MemoryBenchmark
+ * Description: Compares the page table MMU against the previous chain of range checks, using a fetch heavy
+ * workload (sequential reads through ROM, WRAM and HRAM) and an I/O heavy workload (reads and writes of the
+ * registers in 0xFF00 - 0xFF7F, including the timer controller).
+ * Run with: java -cp out GameBoy.bench.MemoryBenchmark [iterations]
+ */
+public class MemoryBenchmark {
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 50_000_000;
+
+        // Alternate between implementations so both get the same JIT warm up
+        for (int round = 0; round < 5; round++) {
+            MMU mmu = new MMU();
+            BranchyMemory branchy = new BranchyMemory();
+            System.out.printf("Round %d: fetch branchy %.2f ns/op, paged %.2f ns/op | I/O branchy %.2f ns/op, paged %.2f ns/op%n",
+                    round,
+                    (double) fetchBranchy(branchy, iterations) / iterations,
+                    (double) fetchPaged(mmu, iterations) / iterations,
+                    (double) ioBranchy(branchy, iterations) / iterations,
+                    (double) ioPaged(mmu, iterations) / iterations);
+        }
+    }
+
+    // Addresses an instruction stream would fetch from: home ROM, banked ROM, WRAM and HRAM
+    private static final int[] regions = {0x0150, 0x4000, 0xC000, 0xFF80};
+
+    private static long fetchPaged(MMU mmu, int iterations) {
+        int sum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sum += mmu.getMemVal(regions[i & 3] + ((i >> 2) & 0x7F));
+        }
+        long elapsed = System.nanoTime() - start;
+        blackhole(sum);
+        return elapsed;
+    }
+
+    private static long fetchBranchy(BranchyMemory mem, int iterations) {
+        int sum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sum += mem.getMemVal(regions[i & 3] + ((i >> 2) & 0x7F));
+        }
+        long elapsed = System.nanoTime() - start;
+        blackhole(sum);
+        return elapsed;
+    }
+
+    private static long ioPaged(MMU mmu, int iterations) {
+        int sum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            int adr = 0xFF00 + (i & 0x7F);
+            if (adr != 0xFF46) {
+                mmu.setMemVal(adr, (byte) i);
+            }
+            sum += mmu.getMemVal(adr ^ 0x40);
+        }
+        long elapsed = System.nanoTime() - start;
+        blackhole(sum);
+        return elapsed;
+    }
+
+    private static long ioBranchy(BranchyMemory mem, int iterations) {
+        int sum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            int adr = 0xFF00 + (i & 0x7F);
+            if (adr != 0xFF46) {
+                mem.setMemVal(adr, (byte) i);
+            }
+            sum += mem.getMemVal(adr ^ 0x40);
+        }
+        long elapsed = System.nanoTime() - start;
+        blackhole(sum);
+        return elapsed;
+    }
+
+    private static volatile int sink;
+
+    private static void blackhole(int val) {
+        sink = val;
+    }
+
+    /**
+     * The address decoding of MMU as it was before the page tables, kept as the comparison baseline.
+     * Banking and DMA are left out since neither workload touches them.
+     */
+    private static class BranchyMemory {
+        boolean inBios = false;
+        byte[] bios = new byte[0x100];
+        byte[] mem = new byte[0x10000];
+        byte[] ramBanks = new byte[0x8000];
+        byte interruptEnabled = 0;
+        boolean enableERAM = false;
+        int currentRAMBank = 0;
+        int timerCounter = 1024;
+
+        byte getMemVal(int adr) {
+            adr &= 0xFFFF;
+            if (inBios && adr < 0x100) {
+                return bios[adr];
+            }
+
+            if ((adr >= 0xA000) && (adr < 0xC000)) {
+                return ramBanks[(adr - 0xA000) + (currentRAMBank * 0x2000)];
+            } else {
+                if (adr == (short) 0xFFFF) {
+                    return interruptEnabled;
+                } else {
+                    return mem[adr];
+                }
+            }
+        }
+
+        void setMemVal(int adr, byte val) {
+            adr &= 0xFFFF;
+            if (inBios && adr < 0x100) {
+                return;
+            }
+
+            if (adr < 0x8000) {
+                return;
+            } else if ((adr >= 0xA000 && adr < 0xC000)) {
+                if (enableERAM) {
+                    ramBanks[adr - 0xA000 + (currentRAMBank * 0x2000)] = val;
+                }
+            } else {
+                if (adr == 0xFF07) {
+                    if (val != (byte) (mem[0xFF07] & 0x3)) {
+                        mem[adr] = val;
+                        timerCounter = 16 << ((val & 0x3) * 2);
+                    }
+                } else if (adr == 0xFF44) {
+                    mem[0xFF44] = 0;
+                } else if (adr == 0xFFFF) {
+                    interruptEnabled = val;
+                } else {
+                    mem[adr] = val;
+                }
+            }
+        }
+    }
+}
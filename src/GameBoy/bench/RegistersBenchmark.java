@@ -0,0 +1,128 @@
+package GameBoy.bench;
+
+import GameBoy.Commands;
+import GameBoy.Registers;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: RegistersBenchmark
+ * Description: Compares the primitive register file against the previous boxed Byte[] implementation using a
+ * workload shaped like the ALU opcodes: 8 bit reads/writes, flag updates and 16 bit pair access.
+ * Run with: java -cp out GameBoy.bench.RegistersBenchmark [iterations]
+ */
+public class RegistersBenchmark {
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+
+        // Alternate between implementations so both get the same JIT warm up
+        for (int round = 0; round < 5; round++) {
+            long boxed = timeBoxed(iterations);
+            long primitive = timePrimitive(iterations);
+            System.out.printf("Round %d: boxed %.2f ns/op, primitive %.2f ns/op%n",
+                    round, (double) boxed / iterations, (double) primitive / iterations);
+        }
+    }
+
+    private static long timePrimitive(int iterations) {
+        Registers regs = new Registers();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            regs.setB((byte) i);
+            Commands.addToA(regs, regs.getB());
+            regs.setC(Commands.inc(regs, regs.getC()));
+            regs.setHL((short) (regs.getHL() + regs.getBC()));
+            if (regs.getZFlag() == 1) {
+                regs.setCFlag();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        blackhole(regs.getAF() + regs.getHL());
+        return elapsed;
+    }
+
+    private static long timeBoxed(int iterations) {
+        BoxedRegisters regs = new BoxedRegisters();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            regs.set(BoxedRegisters.B, (byte) i);
+            regs.addToA(regs.get(BoxedRegisters.B));
+            regs.set(BoxedRegisters.C, regs.inc(regs.get(BoxedRegisters.C)));
+            regs.setPair(BoxedRegisters.H, BoxedRegisters.L,
+                    (short) (regs.getPair(BoxedRegisters.H, BoxedRegisters.L) + regs.getPair(BoxedRegisters.B, BoxedRegisters.C)));
+            if (regs.getFlag(7) == 1) {
+                regs.setFlag(4);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        blackhole(regs.getPair(BoxedRegisters.A, BoxedRegisters.F) + regs.getPair(BoxedRegisters.H, BoxedRegisters.L));
+        return elapsed;
+    }
+
+    private static volatile int sink;
+
+    private static void blackhole(int val) {
+        sink = val;
+    }
+
+    /**
+     * The register file as it was before the primitive rewrite, kept as the comparison baseline.
+     */
+    private static class BoxedRegisters {
+        static final int A = 0, B = 1, C = 2, F = 5, H = 6, L = 7;
+        private Byte[] registers = new Byte[8];
+
+        BoxedRegisters() {
+            for (int i = 0; i < registers.length; i++) {
+                registers[i] = 0;
+            }
+        }
+
+        byte get(int reg) {
+            return registers[reg];
+        }
+
+        void set(int reg, byte val) {
+            registers[reg] = val;
+        }
+
+        short getPair(int upper, int lower) {
+            return (short) ((registers[upper] << 8) + (registers[lower] & 0xFF));
+        }
+
+        void setPair(int upper, int lower, short val) {
+            registers[lower] = (byte) val;
+            registers[upper] = (byte) (val >> 8);
+        }
+
+        byte getFlag(int pos) {
+            return (byte) ((registers[F] >> pos) & 0x1);
+        }
+
+        void setFlag(int pos) {
+            registers[F] = (byte) (registers[F] | (1 << pos));
+        }
+
+        void clearFlag(int pos) {
+            registers[F] = (byte) (registers[F] & ~(1 << pos));
+        }
+
+        void addToA(byte val) {
+            byte aVal = registers[A];
+            byte sum = (byte) (aVal + val);
+            clearFlag(6);
+            if (((aVal & 0xF) + (val & 0xF)) > 0xF) setFlag(5); else clearFlag(5);
+            if (((aVal & 0xFF) + (val & 0xFF)) > 0xFF) setFlag(4); else clearFlag(4);
+            if (sum == 0) setFlag(7); else clearFlag(7);
+            registers[A] = sum;
+        }
+
+        byte inc(byte val) {
+            if (((val & 0xf) + 0x1) >= 0x10) setFlag(5); else clearFlag(5);
+            val += 1;
+            if (val == 0) setFlag(7); else clearFlag(7);
+            clearFlag(6);
+            return val;
+        }
+    }
+}
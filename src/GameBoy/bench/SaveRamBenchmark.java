@@ -0,0 +1,80 @@
+package GameBoy.bench;
+
+import GameBoy.MMU;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: SaveRamBenchmark
+ * Description: Measures the cost of writes to cartridge RAM with and without a memory mapped .sav file behind it,
+ * next to writing every byte straight to the file, to show persisting battery RAM adds no per-write I/O.
+ * Run with: java -cp out GameBoy.bench.SaveRamBenchmark [iterations]
+ */
+public class SaveRamBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+
+        Path dir = Files.createTempDirectory("gameboy-bench");
+        MMU plain = cartridge(dir, "plain.gb", (byte) 0x02);     // MBC1 + RAM
+        MMU battery = cartridge(dir, "battery.gb", (byte) 0x03); // MBC1 + RAM + BATTERY
+        RandomAccessFile direct = new RandomAccessFile(dir.resolve("direct.sav").toFile(), "rw");
+        direct.setLength(0x8000);
+
+        for (int round = 0; round < 5; round++) {
+            long plainNanos = time(plain, iterations);
+            long batteryNanos = time(battery, iterations);
+            long flushStart = System.nanoTime();
+            battery.flushSaveRam();
+            long flushNanos = System.nanoTime() - flushStart;
+            long directNanos = timeDirect(direct, iterations / 100);
+            System.out.printf("Round %d: no battery %.2f ns/write, mapped .sav %.2f ns/write (flush %.2f ms), " +
+                            "RandomAccessFile per write %.2f ns/write%n",
+                    round, (double) plainNanos / iterations, (double) batteryNanos / iterations, flushNanos / 1e6,
+                    (double) directNanos / (iterations / 100));
+        }
+
+        direct.close();
+        for (File f : dir.toFile().listFiles()) {
+            f.delete();
+        }
+        dir.toFile().delete();
+    }
+
+    /**
+     * Creates a cartridge with 32k of RAM and loads it with ERAM enabled.
+     */
+    private static MMU cartridge(Path dir, String name, byte type) throws IOException {
+        byte[] image = new byte[0x8000];
+        image[0x147] = type;
+        image[0x149] = 0x03;
+        Files.write(dir.resolve(name), image);
+
+        MMU mmu = new MMU();
+        mmu.load(dir.resolve(name).toString());
+        mmu.setMemVal(0x0000, (byte) 0x0A);
+        return mmu;
+    }
+
+    private static long time(MMU mmu, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            mmu.setMemVal(0xA000 + (i & 0x1FFF), (byte) i);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long timeDirect(RandomAccessFile fp, int iterations) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            fp.seek(i & 0x1FFF);
+            fp.write(i);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,87 @@
+package GameBoy.bench;
+
+import GameBoy.GPU;
+import GameBoy.MMU;
+import GameBoy.Machine;
+
+import java.util.Random;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: ScanlineBenchmark
+ * Description: Measures how long the GPU takes to draw one scanline, with VRAM full of random tiles: the background
+ * alone, scrolled part way into a tile, with the window over half the line, with 10 sprites, and with all of the tile
+ * data rewritten once a frame so every row has to be fetched again. Drawing the same line again would be skipped, as
+ * nothing it's drawn from has changed, so BGP is rewritten before each line; the last two cases leave it alone to measure
+ * the cost of finding a line unchanged.
+ * Run with: java -cp out GameBoy.bench.ScanlineBenchmark [scanlines per case]
+ */
+public class ScanlineBenchmark {
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        for (int round = 0; round < 3; round++) {
+            measure("Background", lines, 0x91, 0, 0, false, true);
+            measure("Background, SCX = 3", lines, 0x91, 3, 0, false, true);
+            measure("Background and window", lines, 0xB1, 0, 0, false, true);
+            measure("Background and 10 sprites", lines, 0x93, 0, 10, false, true);
+            measure("Tile data rewritten every frame", lines, 0x91, 0, 0, true, true);
+            measure("Background, unchanged", lines, 0x91, 0, 0, false, false);
+            measure("Background and sprites, unchanged", lines, 0x93, 0, 10, false, false);
+            System.out.println();
+        }
+    }
+
+    /**
+     * Draws the same scanline over and over.
+     *
+     * @param lcdControl LCDC value
+     * @param scrollX    SCX value
+     * @param sprites    Number of sprites on the line
+     * @param rewrite    Whether to write all of the tile data again every 144 lines
+     * @param redraw     Whether to write BGP before each line, so it's drawn rather than skipped
+     */
+    private static void measure(String name, int lines, int lcdControl, int scrollX, int sprites, boolean rewrite,
+                                boolean redraw) {
+        Machine machine = new Machine();
+        MMU mmu = machine.getMMU();
+        GPU gpu = machine.getGPU();
+        Random random = new Random(42);
+
+        for (int adr = 0x8000; adr < 0xA000; adr++) {
+            mmu.setMemVal(adr, (byte) random.nextInt(256));
+        }
+        for (int i = 0; i < 40; i++) {
+            int adr = 0xFE00 + i * 4;
+            mmu.setMemVal(adr, (byte) (i < sprites ? 16 : 0));     // Line 0, or off the screen
+            mmu.setMemVal(adr + 1, (byte) (8 + i * 16));
+            mmu.setMemVal(adr + 2, (byte) random.nextInt(256));
+            mmu.setMemVal(adr + 3, (byte) (random.nextInt(4) << 5));   // Random flips
+        }
+        mmu.setMemVal(0xFF40, (byte) lcdControl);
+        mmu.setMemVal(0xFF43, (byte) scrollX);
+        mmu.setMemVal(0xFF4A, (byte) 0);       // Window from the top
+        mmu.setMemVal(0xFF4B, (byte) 87);      // and the middle of the line
+
+        byte fill = 0;
+        for (int i = 0; i < lines / 10; i++) {
+            gpu.drawScanline();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < lines; i++) {
+            if (rewrite && i % 144 == 0) {
+                fill++;
+                for (int adr = 0x8000; adr < 0x9800; adr++) {
+                    mmu.setMemVal(adr, fill);
+                }
+            }
+            if (redraw) {
+                mmu.setMemVal(0xFF47, (byte) (0xE4 + (i & 1)));
+            }
+            gpu.drawScanline();
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%-36s %6.0f ns/scanline%n", name, (double) nanos / lines);
+    }
+}
@@ -0,0 +1,63 @@
+package GameBoy.bench;
+
+import GameBoy.Machine;
+import GameBoy.MachineScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: SchedulerLoadTest
+ * Description: Hosts thousands of machines on one MachineScheduler. Most are paused, as idle sessions would be, and a
+ * few run throttled to real time. Prints the scheduler's metrics and the heap used once a second, then resumes every
+ * machine to show the aggregate frame rate with all of them competing for the CPU.
+ * Each machine takes about 650 KB of heap, so give thousands of them room, e.g. -Xmx4g.
+ * Run with: java -Xmx4g -cp out GameBoy.bench.SchedulerLoadTest [machines] [active] [seconds] [rom]
+ */
+public class SchedulerLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int machines = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int active = args.length > 1 ? Integer.parseInt(args[1]) : 5 * Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        String rom = args.length > 3 ? args[3] : null;     // Without a ROM the machines run an empty cartridge
+
+        MachineScheduler scheduler = new MachineScheduler();
+        System.out.printf("Starting %d machines, %d active, on %s threads%n", machines, active,
+                scheduler.isVirtual() ? "virtual" : "platform");
+
+        long start = System.nanoTime();
+        List<MachineScheduler.Session> sessions = new ArrayList<>();
+        for (int i = 0; i < machines; i++) {
+            Machine machine = new Machine();
+            if (rom != null) {
+                machine.load(rom);
+            }
+            sessions.add(scheduler.start(machine, true, i >= active));
+        }
+        System.out.printf("Started in %.0f ms%n", (System.nanoTime() - start) / 1e6);
+
+        report(scheduler, seconds);
+
+        System.out.println("Resuming every machine");
+        for (MachineScheduler.Session session : sessions) {
+            session.resume();
+        }
+        report(scheduler, seconds);
+
+        start = System.nanoTime();
+        scheduler.shutdown();
+        System.out.printf("Shut down in %.0f ms%n", (System.nanoTime() - start) / 1e6);
+    }
+
+    private static void report(MachineScheduler scheduler, int seconds) throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        scheduler.getFramesPerSecond();
+        for (int i = 0; i < seconds; i++) {
+            Thread.sleep(1000);
+            System.out.printf("%s, %.1f frames/s, heap %d MB%n", scheduler, scheduler.getFramesPerSecond(),
+                    (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+        }
+    }
+}
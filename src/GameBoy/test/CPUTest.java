@@ -0,0 +1,248 @@
+package GameBoy.test;
+
+import GameBoy.CPU;
+import GameBoy.MMU;
+import GameBoy.Opcodes;
+import GameBoy.Registers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class CPUTest {
+    private static final Opcodes OPCODES = new Opcodes();
+
+    MMU mmu;
+    Registers regs;
+    CPU cpu;
+
+    @BeforeEach
+    void setUp() {
+        mmu = new MMU();
+        regs = new Registers();
+        cpu = new CPU(mmu, regs);
+
+        // Small loop in work RAM using immediate operands, a CB opcode and a conditional jump
+        int[] program = {
+                0x3C,               // C000: INC A
+                0xC6, 0x03,         // C001: ADD A,3
+                0x77,               // C003: LD (HL),A
+                0x13,               // C004: INC DE
+                0xCB, 0x37,         // C005: SWAP A
+                0x20, 0xF7,         // C007: JR NZ,C000
+                0xC3, 0x00, 0xC0    // C009: JP C000
+        };
+        for (int i = 0; i < program.length; i++) {
+            mmu.setMemVal(0xC000 + i, (byte) program[i]);
+        }
+        regs.setPC((short) 0xC000);
+        regs.setSP((short) 0xDFFE);
+        regs.setHL((short) 0xD000);
+    }
+
+    @Test
+    void runNextOpCode() {
+        assertEquals(4, cpu.runNextOpCode());
+        assertEquals((short) 0xC001, regs.getPC());
+        assertEquals(1, regs.getA());
+
+        assertEquals(8, cpu.runNextOpCode());
+        assertEquals((short) 0xC003, regs.getPC());
+        assertEquals(4, regs.getA());
+
+        cpu.runNextOpCode();
+        assertEquals(4, mmu.getMemVal(0xD000));
+
+        cpu.runNextOpCode();
+        assertEquals(8, cpu.runNextOpCode());
+        assertEquals((short) 0xC007, regs.getPC());
+        assertEquals(0x40, regs.getA());
+
+        cpu.runNextOpCode();
+        assertEquals((short) 0xC000, regs.getPC());
+    }
+
+    @Test
+    void runNextOpCodeDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Warm up so class loading and JIT compilation are not counted
+        for (int i = 0; i < 500_000; i++) {
+            cpu.runNextOpCode();
+        }
+
+        int instructions = 1_000_000;
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < instructions; i++) {
+            cpu.runNextOpCode();
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(0, allocated / instructions, "Bytes allocated per instruction");
+    }
+
+    /**
+     * @return Whether the opcode at PC is implemented
+     */
+    private static boolean isImplemented(MMU mmu, Registers regs) {
+        int pc = regs.getPC() & 0xFFFF;
+        int opcode = mmu.getMemVal(pc) & 0xFF;
+        if (opcode == 0xCB) {
+            opcode = 0xCB00 | (mmu.getMemVal((pc + 1) & 0xFFFF) & 0xFF);
+        }
+        return OPCODES.getInstruction(opcode) != null;
+    }
+
+    @Test
+    void unknownOpcodesNamed() {
+        // 0xD3 doesn't exist on the GameBoy, in either core
+        mmu.setMemVal(0xC000, (byte) 0xD3);
+        IllegalArgumentException table = assertThrows(IllegalArgumentException.class, cpu::runNextOpCode);
+        regs.setPC((short) 0xC000);
+        cpu.setCore(CPU.SWITCH_CORE);
+        IllegalArgumentException sw = assertThrows(IllegalArgumentException.class, cpu::runNextOpCode);
+        assertEquals("Unknown opcode: 0xD3", table.getMessage());
+        assertEquals(table.getMessage(), sw.getMessage());
+    }
+
+    @Test
+    void switchCoreMatchesTableCore() {
+        File dir = new File("test-roms/cpu_instrs/individual");
+        assumeTrue(dir.isDirectory(), "cpu_instrs test ROMs not found");
+
+        File[] roms = dir.listFiles((d, name) -> name.endsWith(".gb"));
+        assertNotNull(roms);
+        for (File rom : roms) {
+            MMU tableMMU = new MMU();
+            MMU switchMMU = new MMU();
+            tableMMU.load(rom.getPath());
+            switchMMU.load(rom.getPath());
+            Registers tableRegs = new Registers();
+            Registers switchRegs = new Registers();
+            tableRegs.setPC((short) 0x100);
+            switchRegs.setPC((short) 0x100);
+            CPU tableCPU = new CPU(tableMMU, tableRegs);
+            CPU switchCPU = new CPU(switchMMU, switchRegs);
+            switchCPU.setCore(CPU.SWITCH_CORE);
+
+            for (int step = 0; step < 200_000; step++) {
+                // Unimplemented opcodes end the run
+                if (!isImplemented(tableMMU, tableRegs)) {
+                    break;
+                }
+                int tableCycles = tableCPU.runNextOpCode();
+                String where = rom.getName() + " step " + step;
+                assertEquals(tableCycles, switchCPU.runNextOpCode(), where);
+                assertEquals(tableRegs.toString(), switchRegs.toString(), where);
+            }
+        }
+    }
+
+    @Test
+    void runNextBlock() {
+        cpu.setBlockCacheEnabled(true);
+
+        // INC A through JR NZ is one block
+        assertEquals(4 + 8 + 8 + 8 + 8 + 8, cpu.runNextBlock());
+        assertEquals(6, cpu.getLastBlockLength());
+        assertEquals((short) 0xC000, regs.getPC());
+        assertEquals(0x40, regs.getA());
+        assertEquals(0x04, mmu.getMemVal(0xD000));
+        assertEquals(1, regs.getDE());
+
+        cpu.runNextBlock();
+        assertEquals(1, cpu.getBlockCache().getHits());
+
+        // Changing an operand must drop the decoded block
+        mmu.setMemVal(0xC002, (byte) 0x05);
+        regs.setA((byte) 0);
+        cpu.runNextBlock();
+        assertEquals(1, cpu.getBlockCache().getInvalidations());
+        assertEquals(0x60, regs.getA());
+    }
+
+    @Test
+    void bankSwitchDropsBlocks() throws IOException {
+        // MBC1 cartridge whose banks 1 and 2 both start with LD A,bank; JP 0x3FFD, which is the last 3 NOPs of bank 0
+        byte[] image = TestRoms.image(0x01, 0x00, 4, new byte[0]);
+        for (int bank = 1; bank <= 2; bank++) {
+            byte[] code = TestRoms.bytes(0x3E, bank, 0xC3, 0xFD, 0x3F);
+            System.arraycopy(code, 0, image, bank * 0x4000, code.length);
+        }
+        mmu.load(TestRoms.write(image).toString());
+        cpu.setBlockCacheEnabled(true);
+
+        // The work RAM block stays cached across bank switches
+        cpu.runNextBlock();
+        regs.setPC((short) 0x4000);
+        cpu.runNextBlock();
+        assertEquals(1, regs.getA());
+
+        mmu.setMemVal(0x2000, (byte) 2);
+        regs.setPC((short) 0x4000);
+        cpu.runNextBlock();
+        assertEquals(2, regs.getA());
+        assertEquals(1, cpu.getBlockCache().getInvalidations());
+
+        regs.setPC((short) 0xC000);
+        cpu.runNextBlock();
+        assertEquals(1, cpu.getBlockCache().getHits());
+
+        // Blocks from the end of bank 0 stop at 0x4000, so running on into the switched bank runs its code
+        regs.setPC((short) 0x3FFD);
+        for (int i = 0; i < 10; i++) {
+            cpu.runNextBlock();
+        }
+        assertEquals(2, regs.getA());
+        mmu.setMemVal(0x2000, (byte) 1);
+        for (int i = 0; i < 10; i++) {
+            cpu.runNextBlock();
+        }
+        assertEquals(1, regs.getA());
+    }
+
+    @Test
+    void blockCacheMatchesInterpreter() {
+        File dir = new File("test-roms/cpu_instrs/individual");
+        assumeTrue(dir.isDirectory(), "cpu_instrs test ROMs not found");
+
+        File[] roms = dir.listFiles((d, name) -> name.endsWith(".gb"));
+        assertNotNull(roms);
+
+        for (File rom : roms) {
+            MMU plainMMU = new MMU();
+            MMU blockMMU = new MMU();
+            plainMMU.load(rom.getPath());
+            blockMMU.load(rom.getPath());
+            Registers plainRegs = new Registers();
+            Registers blockRegs = new Registers();
+            plainRegs.setPC((short) 0x100);
+            blockRegs.setPC((short) 0x100);
+            CPU plainCPU = new CPU(plainMMU, plainRegs);
+            CPU blockCPU = new CPU(blockMMU, blockRegs);
+            blockCPU.setBlockCacheEnabled(true);
+
+            for (int step = 0; step < 100_000; step++) {
+                // Blocks end before an unimplemented opcode, which ends the run once it is next
+                if (!isImplemented(blockMMU, blockRegs)) {
+                    break;
+                }
+                int blockCycles = blockCPU.runNextBlock();
+                int plainCycles = 0;
+                for (int i = 0; i < blockCPU.getLastBlockLength(); i++) {
+                    plainCycles += plainCPU.runNextOpCode();
+                }
+                String where = rom.getName() + " block " + step;
+                assertEquals(plainCycles, blockCycles, where);
+                assertEquals(plainRegs.toString(), blockRegs.toString(), where);
+            }
+            assertTrue(blockCPU.getBlockCache().getHitRate() > 0.9, blockCPU.getBlockCache().toString());
+        }
+    }
+}
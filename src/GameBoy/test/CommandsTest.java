@@ -1,7 +1,6 @@
 package GameBoy.test;
 
 import GameBoy.Commands;
-import GameBoy.Interrupts;
 import GameBoy.MMU;
 import GameBoy.Registers;
 import org.junit.jupiter.api.BeforeAll;
@@ -720,11 +719,15 @@ class CommandsTest {
 
     @Test
     void disableInterrupts() {
-        assertFalse(Interrupts.isMasterEnabled());
+        Commands.enableInterrupts(mmu);
+        Commands.disableInterrupts(mmu);
+        assertFalse(mmu.getInterrupts().isMasterEnabled());
     }
 
     @Test
     void enableInterrupts() {
-        assertTrue(Interrupts.isMasterEnabled());
+        Commands.disableInterrupts(mmu);
+        Commands.enableInterrupts(mmu);
+        assertTrue(mmu.getInterrupts().isMasterEnabled());
     }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package GameBoy.test;
+
+import GameBoy.FrameExchange;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameExchangeTest {
+
+    @Test
+    void countsDroppedAndDuplicated() {
+        FrameExchange frames = new FrameExchange(4);
+        assertNull(frames.acquire());
+        assertEquals(1, frames.getDuplicated());
+
+        int[] first = {1, 1, 1, 1};
+        int[] back = frames.publish(first);
+        assertNotSame(first, back);
+        assertSame(first, frames.acquire());
+        assertNull(frames.acquire());
+        assertEquals(2, frames.getDuplicated());
+
+        // Two frames before the next refresh: the first is dropped, the latest shown
+        int[] second = back;
+        Arrays.fill(second, 2);
+        int[] third = frames.publish(second);
+        Arrays.fill(third, 3);
+        back = frames.publish(third);
+        assertSame(second, back);
+        assertSame(third, frames.acquire());
+
+        assertEquals(3, frames.getPublished());
+        assertEquals(1, frames.getDropped());
+        assertEquals(2, frames.getShown());
+    }
+
+    @Test
+    void readerNeverSeesFrameBeingDrawn() throws InterruptedException {
+        FrameExchange frames = new FrameExchange(1000);
+        int count = 20_000;
+
+        Thread writer = new Thread(() -> {
+            int[] frame = new int[1000];
+            for (int i = 1; i <= count; i++) {
+                Arrays.fill(frame, i);
+                frame = frames.publish(frame);
+            }
+        });
+        writer.start();
+
+        int last = 0;
+        while (last < count) {
+            int[] frame = frames.acquire();
+            if (frame != null) {
+                int value = frame[0];
+                for (int pixel : frame) {
+                    assertEquals(value, pixel, "Frame changed while being shown");
+                }
+                assertTrue(value > last, "Frames shown out of order");
+                last = value;
+            }
+        }
+        writer.join();
+        assertEquals(count, frames.getPublished());
+        assertEquals(count, frames.getShown() + frames.getDropped());
+    }
+}
@@ -0,0 +1,122 @@
+package GameBoy.test;
+
+import GameBoy.FramePacer;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FramePacerTest {
+    private static final long FRAMES_30 = 502_281_188;     // 30 frames, in nanoseconds
+
+    /**
+     * A clock which only moves when told to, or when the pacer sleeps, waking a set time late.
+     */
+    private static class Clock {
+        long now = 0;
+        long lateBy = 0;
+        int sleeps = 0;
+
+        FramePacer pacer() {
+            return new FramePacer(() -> now, nanos -> {
+                now += nanos + lateBy;
+                sleeps++;
+            });
+        }
+    }
+
+    @Test
+    void holdsToRealTime() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        FramePacer pacer = new FramePacer();
+
+        long cycles = 0;
+        long start = pacer.pace(cycles);
+        for (int i = 0; i < 30; i++) {
+            cycles += FramePacer.FRAME_CYCLES;
+            pacer.pace(cycles);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // Never early. How late depends on the machine running the test.
+        assertTrue(elapsed >= FRAMES_30 && elapsed < FRAMES_30 + 1_000_000_000L, elapsed + " ns");
+        assertEquals(30, pacer.getFrames());
+        assertTrue(pacer.getJitter(50) <= pacer.getJitter(99));
+        assertTrue(pacer.getJitter(99) <= pacer.getJitter(100));
+
+        // Parked, not spinning
+        long cpu = threads.getCurrentThreadCpuTime() - cpuStart;
+        assertTrue(cpu < elapsed / 2, cpu + " ns of CPU time in " + elapsed + " ns");
+    }
+
+    @Test
+    void lateWakeUpsDontBuildUp() {
+        Clock clock = new Clock();
+        clock.lateBy = 1_000_000;
+        FramePacer pacer = clock.pacer();
+
+        long cycles = 0;
+        pacer.pace(cycles);
+        for (int i = 0; i < 30; i++) {
+            cycles += FramePacer.FRAME_CYCLES;
+            pacer.pace(cycles);
+        }
+
+        // Each wait is shorter by the last one's lateness, so 30 frames end only 1 ms late
+        assertEquals(FRAMES_30 + 1_000_000, clock.now);
+        assertEquals(30, clock.sleeps);
+        assertEquals(0, pacer.getLate());
+        assertEquals(1_000_000, pacer.getJitter(100));
+    }
+
+    @Test
+    void catchesUpAfterSlowFrames() {
+        Clock clock = new Clock();
+        FramePacer pacer = clock.pacer();
+        long cycles = 0;
+        pacer.pace(cycles);
+        for (int i = 0; i < 30; i++) {
+            if (i == 5) {
+                clock.now += 3 * FramePacer.FRAME_NANOS;   // A frame taking 3 frames' time
+            }
+            cycles += FramePacer.FRAME_CYCLES;
+            pacer.pace(cycles);
+        }
+
+        // The lost time is made up rather than adding to the run
+        assertEquals(FRAMES_30, clock.now);
+        assertEquals(2, pacer.getLate());
+        assertEquals(0, pacer.getResyncs());
+
+        // Too far behind, it carries on from the current time instead
+        clock.now += 20 * FramePacer.FRAME_NANOS;
+        cycles += FramePacer.FRAME_CYCLES;
+        pacer.pace(cycles);
+        assertEquals(1, pacer.getResyncs());
+        long resumed = clock.now;
+        for (int i = 0; i < 30; i++) {
+            cycles += FramePacer.FRAME_CYCLES;
+            pacer.pace(cycles);
+        }
+        assertEquals(FRAMES_30, clock.now - resumed);
+    }
+
+    @Test
+    void pacesLongRuns() {
+        Clock clock = new Clock();
+        FramePacer pacer = clock.pacer();
+        pacer.pace(0);
+
+        // A day's worth of cycles, far past where cycles * 10^9 overflows, a frame early
+        long day = 24L * 60 * 60 * 1_000_000_000L;
+        clock.now = day - FramePacer.FRAME_NANOS;
+        pacer.pace(24L * 60 * 60 * FramePacer.CLOCK_SPEED);
+
+        assertEquals(day, clock.now);
+        assertEquals(0, pacer.getLate());
+        assertEquals(0, pacer.getResyncs());
+    }
+}
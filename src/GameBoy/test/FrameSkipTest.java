@@ -0,0 +1,93 @@
+package GameBoy.test;
+
+import GameBoy.FramePacer;
+import GameBoy.FrameSkip;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameSkipTest {
+
+    @Test
+    void everyNthFrame() {
+        FrameSkip frameSkip = FrameSkip.parse("3");
+        StringBuilder drawn = new StringBuilder();
+        for (int i = 0; i < 9; i++) {
+            drawn.append(frameSkip.drawNext(0, 0) ? 'D' : '-');
+        }
+        assertEquals("--D--D--D", drawn.toString());
+        assertEquals(3, frameSkip.getDrawn());
+        assertEquals(6, frameSkip.getSkipped());
+
+        assertThrows(IllegalArgumentException.class, () -> FrameSkip.parse("0"));
+        assertThrows(IllegalArgumentException.class, () -> FrameSkip.parse("sometimes"));
+    }
+
+    @Test
+    void skipsOnlyWhileBehind() {
+        FrameSkip frameSkip = FrameSkip.parse("auto");
+        long frame = FramePacer.FRAME_NANOS;
+
+        // Keeping up with real time
+        long now = 0;
+        long cycles = 0;
+        for (int i = 0; i < 10; i++) {
+            assertTrue(frameSkip.drawNext(now, cycles += FramePacer.FRAME_CYCLES));
+            now += frame;
+        }
+
+        // A frame took a little over 3 frames' time, then frames take half the time. They're skipped until back within
+        // a frame of real time.
+        now += 2 * frame + frame / 10;
+        for (int i = 0; i < 3; i++) {
+            assertFalse(frameSkip.drawNext(now, cycles += FramePacer.FRAME_CYCLES), "Frame " + i);
+            now += frame / 2;
+        }
+        assertTrue(frameSkip.drawNext(now, cycles += FramePacer.FRAME_CYCLES));
+
+        // Always behind: at least 1 frame in 9 is still drawn
+        int drawn = 0;
+        for (int i = 0; i < 18; i++) {
+            now += frame * 2;
+            drawn += frameSkip.drawNext(now, cycles += FramePacer.FRAME_CYCLES) ? 1 : 0;
+        }
+        assertTrue(drawn >= 2, drawn + " frames drawn");
+    }
+
+    @Test
+    void runningAheadDoesNotHideFallingBehind() {
+        FrameSkip frameSkip = FrameSkip.parse("auto");
+        long frame = FramePacer.FRAME_NANOS;
+
+        // A long stretch of frames taking half their time, without pacing
+        long now = 0;
+        long cycles = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(frameSkip.drawNext(now, cycles += FramePacer.FRAME_CYCLES));
+            now += frame / 2;
+        }
+
+        // Then frames take twice their time. Once a frame behind, frames are skipped.
+        int skipped = 0;
+        for (int i = 0; i < 10; i++) {
+            now += frame * 2;
+            skipped += frameSkip.drawNext(now, cycles += FramePacer.FRAME_CYCLES) ? 0 : 1;
+        }
+        assertTrue(skipped >= 5, skipped + " frames skipped");
+    }
+
+    @Test
+    void realTimeFromCycles() {
+        FrameSkip frameSkip = FrameSkip.parse("auto");
+
+        // Runs of CPU.maxCycles are shorter than a frame on the GPU. Taking a whole frame's time each, they fall
+        // behind, 76 microseconds at a time.
+        long now = 0;
+        long cycles = 0;
+        for (int i = 0; i < 500; i++) {
+            frameSkip.drawNext(now, cycles += 69905);
+            now += FramePacer.FRAME_NANOS;
+        }
+        assertTrue(frameSkip.getSkipped() > 0, frameSkip.toString());
+    }
+}
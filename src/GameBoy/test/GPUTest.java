@@ -0,0 +1,233 @@
+package GameBoy.test;
+
+import GameBoy.ColourScheme;
+import GameBoy.DirtyLines;
+import GameBoy.FrameBuffer;
+import GameBoy.MMU;
+import GameBoy.Machine;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class GPUTest {
+
+    /**
+     * Loads a 32k cartridge which disables interrupts and loops forever, leaving the GPU alone.
+     */
+    private static Machine idle(FrameBuffer frame) throws IOException {
+        Machine machine = new Machine(frame);
+        machine.load(TestRoms.cartridge(0x00, 0x00, 0xF3).toString());     // DI, then loops
+        return machine;
+    }
+
+    /**
+     * Fills tile 1 with colour 3 and puts 12 sprites using it on lines 10 - 17, 10 pixels apart from x = 0.
+     */
+    private static void twelveSprites(MMU mmu) {
+        mmu.setMemVal(0xFF40, (byte) 0x93);     // LCD, BG and sprites on, 8x8 sprites, tiles at 0x8000
+        for (int i = 0; i < 16; i++) {
+            mmu.setMemVal(0x8010 + i, (byte) 0xFF);
+        }
+        for (int i = 0; i < 12; i++) {
+            int adr = 0xFE00 + i * 4;
+            mmu.setMemVal(adr, (byte) (10 + 16));
+            mmu.setMemVal(adr + 1, (byte) (i * 10 + 8));
+            mmu.setMemVal(adr + 2, (byte) 1);
+            mmu.setMemVal(adr + 3, (byte) 0);
+        }
+    }
+
+    @Test
+    void paletteWritesChangeColours() {
+        FrameBuffer frame = new FrameBuffer();
+        Machine machine = new Machine(frame);
+
+        // Blank tiles are colour 0 throughout, white under the starting palette
+        machine.runFrame();
+        machine.runFrame();
+        assertEquals(0xFFFFFF, frame.getRGB(0, 0));
+        assertEquals(0xFFFFFF, frame.getRGB(159, 143));
+
+        // Colour 0 to black
+        machine.getMMU().setMemVal(0xFF47, (byte) 0x03);
+        machine.runFrame();
+        machine.runFrame();
+        assertEquals(0x000000, frame.getRGB(0, 0));
+        assertEquals(0x000000, frame.getRGB(159, 143));
+
+        // Colour 0 to light grey
+        machine.getMMU().setMemVal(0xFF47, (byte) 0x01);
+        machine.runFrame();
+        machine.runFrame();
+        assertEquals(0xC0C0C0, frame.getRGB(80, 72));
+    }
+
+    @Test
+    void colourSchemes() {
+        FrameBuffer frame = new FrameBuffer();
+        Machine machine = new Machine(frame);
+
+        machine.getGPU().setColourScheme(ColourScheme.CLASSIC_GREEN);
+        machine.runFrame();
+        machine.runFrame();
+        assertEquals(0x9BBC0F, frame.getRGB(0, 0));
+
+        // Colour 0 to the darkest shade of a custom scheme
+        machine.getGPU().setColourScheme(ColourScheme.parse("E0F8D0, 88C070, 346856, #081820"));
+        machine.getMMU().setMemVal(0xFF47, (byte) 0x03);
+        machine.runFrame();
+        machine.runFrame();
+        assertEquals(0x081820, frame.getRGB(0, 0));
+
+        assertSame(ColourScheme.GREYSCALE, ColourScheme.parse("Grey"));
+        assertThrows(IllegalArgumentException.class, () -> ColourScheme.parse("FFFFFF,000000"));
+        assertThrows(IllegalArgumentException.class, () -> ColourScheme.parse("purple"));
+    }
+
+    @Test
+    void scrollAndWindow() throws IOException {
+        FrameBuffer frame = new FrameBuffer();
+        Machine machine = idle(frame);
+        MMU mmu = machine.getMMU();
+
+        // Tile 1 is colour 3 throughout, and the only tile in the map, top left
+        for (int i = 0; i < 16; i++) {
+            mmu.setMemVal(0x8010 + i, (byte) 0xFF);
+        }
+        mmu.setMemVal(0x9800, (byte) 1);
+        mmu.setMemVal(0xFF40, (byte) 0xB1);     // LCD, BG and window on, tiles at 0x8000, both using the 0x9800 map
+        mmu.setMemVal(0xFF42, (byte) 2);        // SCY
+        mmu.setMemVal(0xFF43, (byte) 3);        // SCX
+        mmu.setMemVal(0xFF4A, (byte) 100);      // WY
+        mmu.setMemVal(0xFF4B, (byte) (80 + 7)); // WX
+        machine.runFrame();
+        machine.runFrame();
+
+        // Scrolled part way into the tile
+        assertEquals(0x000000, frame.getRGB(4, 0));
+        assertEquals(0xFFFFFF, frame.getRGB(5, 0));
+        assertEquals(0x000000, frame.getRGB(0, 5));
+        assertEquals(0xFFFFFF, frame.getRGB(0, 6));
+
+        // The window's top left tile, not scrolled
+        assertEquals(0xFFFFFF, frame.getRGB(80, 99));
+        assertEquals(0x000000, frame.getRGB(80, 100));
+        assertEquals(0x000000, frame.getRGB(87, 107));
+        assertEquals(0xFFFFFF, frame.getRGB(88, 100));
+        assertEquals(0xFFFFFF, frame.getRGB(80, 108));
+    }
+
+    @Test
+    void unchangedLinesSkipped() throws IOException {
+        FrameBuffer frame = new FrameBuffer();
+        Machine machine = idle(frame);
+        MMU mmu = machine.getMMU();
+        DirtyLines lines = machine.getGPU().getDirtyLines();
+        for (int i = 0; i < 5; i++) {
+            machine.runFrame();
+        }
+
+        // Nothing changes, so nothing is drawn or presented
+        long drawn = lines.getLinesDrawn();
+        long presented = lines.getFramesPresented();
+        machine.runFrame();
+        machine.runFrame();
+        assertEquals(drawn, lines.getLinesDrawn());
+        assertEquals(presented, lines.getFramesPresented());
+        assertTrue(lines.getSkipRatio() > 0.5, lines.toString());
+
+        // Tile 1 at the top left of the map: only its 8 lines are drawn again, once in each buffer at most
+        for (int i = 0; i < 16; i++) {
+            mmu.setMemVal(0x8010 + i, (byte) 0xFF);
+        }
+        mmu.setMemVal(0x9800, (byte) 1);
+        for (int i = 0; i < 4; i++) {
+            machine.runFrame();
+        }
+        assertEquals(0x000000, frame.getRGB(0, 7));
+        assertEquals(0xFFFFFF, frame.getRGB(0, 8));
+        assertEquals(0xFFFFFF, frame.getRGB(8, 0));
+        assertTrue(lines.getLinesDrawn() - drawn >= 8 && lines.getLinesDrawn() - drawn <= 16, lines.toString());
+
+        // Switching between two palettes, each buffer still shows the right one
+        for (int i = 0; i < 3; i++) {
+            mmu.setMemVal(0xFF47, (byte) 0x03);
+            machine.runFrame();
+            machine.runFrame();
+            assertEquals(0x000000, frame.getRGB(80, 72));
+            mmu.setMemVal(0xFF47, (byte) 0x00);
+            machine.runFrame();
+            machine.runFrame();
+            assertEquals(0xFFFFFF, frame.getRGB(80, 72));
+        }
+    }
+
+    @Test
+    void undrawnFramesKeepTiming() throws IOException {
+        Machine drawn = idle(new FrameBuffer());
+        FrameBuffer frames = new FrameBuffer();
+        Machine skipped = idle(frames);
+        skipped.getGPU().setRendering(false);
+
+        for (int i = 0; i < 10; i++) {
+            drawn.runFrame();
+            skipped.runFrame();
+            for (int adr : new int[]{0xFF0F, 0xFF41, 0xFF44}) {
+                assertEquals(drawn.getMMU().getMemVal(adr), skipped.getMMU().getMemVal(adr),
+                        String.format("0x%04X, frame %d", adr, i));
+            }
+        }
+        // Only the frame in progress when drawing was turned off
+        assertTrue(frames.getFrames() <= 1, frames.getFrames() + " frames presented");
+
+        skipped.getMMU().setMemVal(0xFF47, (byte) 0x03);
+        skipped.getGPU().setRendering(true);
+        skipped.runFrame();
+        skipped.runFrame();
+        skipped.runFrame();
+        assertEquals(0x000000, frames.getRGB(80, 72));
+    }
+
+    @Test
+    void tenSpritesPerLine() throws IOException {
+        FrameBuffer frame = new FrameBuffer();
+        Machine machine = idle(frame);
+        twelveSprites(machine.getMMU());
+        machine.runFrame();
+        machine.runFrame();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0x000000, frame.getRGB(i * 10 + 4, 12), "Sprite " + i);
+        }
+        // The 11th and 12th sprites in OAM are past the limit
+        assertEquals(0xFFFFFF, frame.getRGB(104, 12));
+        assertEquals(0xFFFFFF, frame.getRGB(114, 12));
+        assertEquals(0xFFFFFF, frame.getRGB(4, 18));
+    }
+
+    @Test
+    void framesAllocateNothing() throws IOException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean, "Allocation counts not available");
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+
+        Machine machine = idle(new FrameBuffer());
+        twelveSprites(machine.getMMU());
+        for (int i = 0; i < 10; i++) {
+            machine.runFrame();
+        }
+
+        long thread = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 60; i++) {
+            machine.runFrame();
+        }
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before;
+        assertTrue(allocated < 1024, allocated + " bytes allocated in 60 frames");
+    }
+}
@@ -0,0 +1,140 @@
+package GameBoy.test;
+
+import GameBoy.CPU;
+import GameBoy.Commands;
+import GameBoy.MMU;
+import GameBoy.Registers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks the lazy flag evaluation against the eager flag writes in Commands.
+ */
+class LazyFlagsTest {
+    Registers eager;
+    Registers lazy;
+
+    @BeforeEach
+    void setUp() {
+        eager = new Registers();
+        lazy = new Registers();
+        lazy.setLazyFlags(true);
+    }
+
+    @Test
+    void aluFlags() {
+        for (int a = 0; a < 0x100; a += 7) {
+            for (int b = 0; b < 0x100; b += 5) {
+                eager.setA((byte) a);
+                lazy.setA((byte) a);
+                Commands.addToA(eager, (byte) b);
+                Commands.addToA(lazy, (byte) b);
+                assertEquals(eager.getAF(), lazy.getAF());
+
+                eager.setA((byte) a);
+                lazy.setA((byte) a);
+                Commands.sub(eager, (byte) b);
+                Commands.sub(lazy, (byte) b);
+                assertEquals(eager.getAF(), lazy.getAF());
+
+                Commands.addShorts(eager, (short) (a << 8 | b), (short) (b << 8 | a));
+                Commands.addShorts(lazy, (short) (a << 8 | b), (short) (b << 8 | a));
+                assertEquals(eager.getAF(), lazy.getAF());
+            }
+        }
+    }
+
+    @Test
+    void partialFlagsKeepPendingResults() {
+        // INC leaves C alone, so the carry of the pending ADD must survive it
+        eager.setA((byte) 0xF0);
+        lazy.setA((byte) 0xF0);
+        Commands.addToA(eager, (byte) 0x20);
+        Commands.addToA(lazy, (byte) 0x20);
+        assertEquals(Commands.inc(eager, (byte) 0x0F), Commands.inc(lazy, (byte) 0x0F));
+        assertEquals(1, lazy.getCFlag());
+        assertEquals(eager.getAF(), lazy.getAF());
+
+        // 16 bit adds leave Z alone
+        Commands.dec(eager, (byte) 1);
+        Commands.dec(lazy, (byte) 1);
+        Commands.addShorts(eager, (short) 0x0FFF, (short) 1);
+        Commands.addShorts(lazy, (short) 0x0FFF, (short) 1);
+        assertEquals(1, lazy.getZFlag());
+        assertEquals(eager.getAF(), lazy.getAF());
+
+        // RL reads the carry left behind by a pending shift
+        assertEquals(Commands.srl(eager, (byte) 0x81), Commands.srl(lazy, (byte) 0x81));
+        assertEquals(Commands.rl(eager, (byte) 0x01), Commands.rl(lazy, (byte) 0x01));
+        assertEquals(eager.getAF(), lazy.getAF());
+    }
+
+    @Test
+    void cpuInstrsRoms() {
+        File dir = new File("test-roms/cpu_instrs/individual");
+        assumeTrue(dir.isDirectory(), "cpu_instrs test ROMs not found");
+
+        File[] roms = dir.listFiles((d, name) -> name.endsWith(".gb"));
+        assertNotNull(roms);
+        for (File rom : roms) {
+            runDifferential(rom.getPath(), 500_000);
+        }
+    }
+
+    /**
+     * Runs the same ROM on an eager and a lazy machine in lock step, comparing registers after every instruction.
+     * AF is only compared periodically so the lazy machine also has to carry pending flags across instructions.
+     */
+    private void runDifferential(String rom, int steps) {
+        MMU eagerMMU = new MMU();
+        MMU lazyMMU = new MMU();
+        eagerMMU.load(rom);
+        lazyMMU.load(rom);
+        eager.setPC((short) 0x100);
+        lazy.setPC((short) 0x100);
+        CPU eagerCPU = new CPU(eagerMMU, eager);
+        CPU lazyCPU = new CPU(lazyMMU, lazy);
+
+        for (int step = 0; step < steps; step++) {
+            // STOP waits for console input
+            if (eagerMMU.getMemVal(eager.getPC() & 0xFFFF) == 0x10) {
+                break;
+            }
+
+            String eagerError = null;
+            String lazyError = null;
+            try {
+                eagerCPU.runNextOpCode();
+            } catch (RuntimeException e) {
+                eagerError = e.getClass().getName();
+            }
+            try {
+                lazyCPU.runNextOpCode();
+            } catch (RuntimeException e) {
+                lazyError = e.getClass().getName();
+            }
+            assertEquals(eagerError, lazyError, rom + " step " + step);
+            if (eagerError != null) {
+                // Unimplemented opcode reached, both machines stopped at the same place
+                break;
+            }
+
+            String where = rom + " step " + step;
+            assertEquals(eager.getPC(), lazy.getPC(), where);
+            assertEquals(eager.getSP(), lazy.getSP(), where);
+            assertEquals(eager.getA(), lazy.getA(), where);
+            assertEquals(eager.getBC(), lazy.getBC(), where);
+            assertEquals(eager.getDE(), lazy.getDE(), where);
+            assertEquals(eager.getHL(), lazy.getHL(), where);
+            if (step % 1000 == 999) {
+                assertEquals(eager.getAF(), lazy.getAF(), where);
+            }
+        }
+        assertEquals(eager.getAF(), lazy.getAF(), rom);
+    }
+}
@@ -0,0 +1,240 @@
+package GameBoy.test;
+
+import GameBoy.MMU;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MMUTest {
+    MMU mmu;
+
+    @BeforeEach
+    void setUp() {
+        mmu = new MMU();
+    }
+
+    @Test
+    void readWrite() {
+        mmu.setMemVal(0xC123, (byte) 0x42);
+        mmu.setMemVal(0xFF85, (byte) 0x24);
+        mmu.setMemVal(0xFFFF, (byte) 0x1F);
+        assertEquals(0x42, mmu.getMemVal(0xC123));
+        assertEquals(0x24, mmu.getMemVal(0xFF85));
+        assertEquals(0x1F, mmu.getMemVal(0xFFFF));
+
+        // ROM can't be written to
+        mmu.setMemVal(0x0150, (byte) 0x42);
+        assertEquals(0, mmu.getMemVal(0x0150));
+    }
+
+    @Test
+    void ioRegisters() {
+        // Writing to LY resets it
+        mmu.setMemVal(0xFF44, (byte) 0x12);
+        assertEquals(0, mmu.getMemVal(0xFF44));
+
+        // DMA copies 0xA0 bytes into OAM
+        for (int i = 0; i < 0xA0; i++) {
+            mmu.setMemVal(0xC100 + i, (byte) i);
+        }
+        mmu.setMemVal(0xFF46, (byte) 0xC1);
+        assertEquals(0x00, mmu.getMemVal(0xFE00));
+        assertEquals((byte) 0x9F, mmu.getMemVal(0xFE9F));
+
+        // HRAM is plain memory
+        mmu.setMemVal(0xFF80, (byte) 0x12);
+        mmu.setMemVal(0xFFFE, (byte) 0x34);
+        assertEquals(0x12, mmu.getMemVal(0xFF80));
+        assertEquals(0x34, mmu.getMemVal(0xFFFE));
+    }
+
+    @Test
+    void bios() {
+        mmu.setBiosMapped(true);
+        mmu.setMemVal(0x0010, (byte) 0x42);
+        assertEquals(0, mmu.getMemVal(0x0010));
+        mmu.setBiosMapped(false);
+        assertEquals(0, mmu.getMemVal(0x0010));
+    }
+
+    @Test
+    void romBanking() throws IOException {
+        File rom = new File("test-roms/cpu_instrs/cpu_instrs.gb");
+        assumeTrue(rom.isFile(), "cpu_instrs.gb not found");
+        byte[] image = Files.readAllBytes(rom.toPath());
+
+        mmu.load(rom.getPath());
+        assertEquals(image[0x0150], mmu.getMemVal(0x0150));
+        assertEquals(image[0x4123], mmu.getMemVal(0x4123));
+
+        // Selecting a bank only remaps 0x4000 - 0x7FFF
+        mmu.resetBankSwitches();
+        for (int bank = 1; bank < image.length / 0x4000; bank++) {
+            mmu.setMemVal(0x2000, (byte) bank);
+            assertEquals(image[bank * 0x4000 + 0x123], mmu.getMemVal(0x4123));
+            assertEquals(image[bank * 0x4000 + 0x3FFF], mmu.getMemVal(0x7FFF));
+        }
+        // Selecting bank 1 again doesn't remap anything
+        assertEquals(image.length / 0x4000 - 2, mmu.getBankSwitches());
+        assertEquals(image[0x0150], mmu.getMemVal(0x0150));
+    }
+
+    @Test
+    void batterySave() throws IOException {
+        // MBC1 + RAM + BATTERY with one 8k RAM bank
+        Path rom = TestRoms.cartridge(0x03, 0x02);
+        Path save = TestRoms.save(rom);
+
+        mmu.load(rom.toString());
+        mmu.setMemVal(0xA010, (byte) 0x42);     // Dropped, ERAM is disabled
+        mmu.setMemVal(0x0000, (byte) 0x0A);
+        mmu.setMemVal(0xA000, (byte) 0x12);
+        mmu.setMemVal(0xBFFF, (byte) 0x34);
+        assertEquals(0x12, mmu.getMemVal(0xA000));
+        mmu.setMemVal(0x0000, (byte) 0x00);
+
+        byte[] saved = Files.readAllBytes(save);
+        assertEquals(0x2000, saved.length);
+        assertEquals(0x12, saved[0]);
+        assertEquals(0x00, saved[0x10]);
+        assertEquals(0x34, saved[0x1FFF]);
+
+        MMU reloaded = new MMU();
+        reloaded.load(rom.toString());
+        assertEquals(0x12, reloaded.getMemVal(0xA000));
+        assertEquals(0x34, reloaded.getMemVal(0xBFFF));
+    }
+
+    /**
+     * Writes a cartridge in which the first two bytes of every bank are its bank number, and loads it.
+     */
+    private void loadCartridge(int type, int banks, int ramSize) throws IOException {
+        byte[] image = TestRoms.image(type, ramSize, banks, new byte[0]);
+        for (int bank = 0; bank < banks; bank++) {
+            image[bank * 0x4000] = (byte) bank;
+            image[bank * 0x4000 + 1] = (byte) (bank >> 8);
+        }
+        mmu.load(TestRoms.write(image).toString());
+    }
+
+    @Test
+    void mbc1() throws IOException {
+        loadCartridge(0x02, 0x40, 0x03);
+        mmu.setMemVal(0x2000, (byte) 0x00);
+        assertEquals(1, mmu.getMemVal(0x4000));
+        mmu.setMemVal(0x2000, (byte) 0x1F);
+        mmu.setMemVal(0x4000, (byte) 0x01);
+        assertEquals(0x3F, mmu.getMemVal(0x4000));
+
+        // Mode 1 selects RAM banks with the upper bits
+        mmu.setMemVal(0x0000, (byte) 0x0A);
+        mmu.setMemVal(0x6000, (byte) 0x01);
+        mmu.setMemVal(0xA000, (byte) 0x11);
+        mmu.setMemVal(0x4000, (byte) 0x02);
+        mmu.setMemVal(0xA000, (byte) 0x22);
+        mmu.setMemVal(0x4000, (byte) 0x01);
+        assertEquals(0x11, mmu.getMemVal(0xA000));
+    }
+
+    @Test
+    void mbc2() throws IOException {
+        loadCartridge(0x05, 0x10, 0x00);
+        // Bit 8 of the address picks the register
+        mmu.setMemVal(0x2100, (byte) 0x0B);
+        assertEquals(0x0B, mmu.getMemVal(0x4000));
+        mmu.setMemVal(0x2000, (byte) 0x0A);
+        mmu.setMemVal(0xA000, (byte) 0x05);
+        assertEquals(0x0B, mmu.getMemVal(0x4000));
+
+        // 512 x 4 bits, repeated through 0xA000 - 0xBFFF, whose upper 4 bits read as 1
+        assertEquals((byte) 0xF5, mmu.getMemVal(0xA000));
+        assertEquals((byte) 0xF5, mmu.getMemVal(0xA200));
+        assertEquals((byte) 0xF5, mmu.getMemVal(0xBE00));
+        mmu.setMemVal(0xBFFF, (byte) 0x3C);
+        assertEquals((byte) 0xFC, mmu.getMemVal(0xA1FF));
+        assertEquals((byte) 0xF0, mmu.getMemVal(0xA100));
+    }
+
+    @Test
+    void mbc3() throws IOException {
+        loadCartridge(0x10, 0x80, 0x03);
+        mmu.setMemVal(0x2000, (byte) 0x7F);
+        assertEquals(0x7F, mmu.getMemVal(0x4000));
+
+        // Halt the clock, set the minutes and latch them
+        mmu.setMemVal(0x0000, (byte) 0x0A);
+        mmu.setMemVal(0x4000, (byte) 0x0C);
+        mmu.setMemVal(0xA000, (byte) 0x40);
+        mmu.setMemVal(0x4000, (byte) 0x09);
+        mmu.setMemVal(0xA000, (byte) 42);
+        mmu.setMemVal(0x6000, (byte) 0x00);
+        mmu.setMemVal(0x6000, (byte) 0x01);
+        assertEquals(42, mmu.getMemVal(0xB123));
+        mmu.setMemVal(0x4000, (byte) 0x0C);
+        assertEquals(0x40, mmu.getMemVal(0xA000));
+
+        // Selecting a RAM bank maps RAM again
+        mmu.setMemVal(0x4000, (byte) 0x01);
+        mmu.setMemVal(0xA000, (byte) 0x33);
+        assertEquals(0x33, mmu.getMemVal(0xA000));
+    }
+
+    @Test
+    void mbc3ClockSaved() throws IOException {
+        // MBC3 + TIMER + RAM + BATTERY with one 8k RAM bank
+        Path rom = TestRoms.cartridge(0x10, 0x02);
+        Path save = TestRoms.save(rom);
+
+        // Halt the clock at 42 minutes and latch it, then disable ERAM to save
+        mmu.load(rom.toString());
+        mmu.setMemVal(0x0000, (byte) 0x0A);
+        mmu.setMemVal(0xA000, (byte) 0x12);
+        mmu.setMemVal(0x4000, (byte) 0x0C);
+        mmu.setMemVal(0xA000, (byte) 0x40);
+        mmu.setMemVal(0x4000, (byte) 0x09);
+        mmu.setMemVal(0xA000, (byte) 42);
+        mmu.setMemVal(0x6000, (byte) 0x00);
+        mmu.setMemVal(0x6000, (byte) 0x01);
+        mmu.setMemVal(0x0000, (byte) 0x00);
+
+        // The RAM, then the registers as they are and as latched, then the time saved
+        ByteBuffer saved = ByteBuffer.wrap(Files.readAllBytes(save)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0x2000 + 48, saved.capacity());
+        assertEquals(0x12, saved.get(0));
+        assertEquals(42, saved.getInt(0x2000 + 4));
+        assertEquals(0x40, saved.getInt(0x2000 + 16) & 0x40);
+        assertEquals(42, saved.getInt(0x2000 + 20 + 4));
+        assertEquals(System.currentTimeMillis() / 1000, saved.getLong(0x2000 + 40), 60);
+
+        MMU reloaded = new MMU();
+        reloaded.load(rom.toString());
+        reloaded.setMemVal(0x0000, (byte) 0x0A);
+        assertEquals(0x12, reloaded.getMemVal(0xA000));
+        reloaded.setMemVal(0x4000, (byte) 0x09);
+        assertEquals(42, reloaded.getMemVal(0xA000));
+        reloaded.setMemVal(0x6000, (byte) 0x00);
+        reloaded.setMemVal(0x6000, (byte) 0x01);
+        assertEquals(42, reloaded.getMemVal(0xA000));
+    }
+
+    @Test
+    void mbc5() throws IOException {
+        loadCartridge(0x19, 0x200, 0x00);
+        mmu.setMemVal(0x2000, (byte) 0x00);
+        assertEquals(0, mmu.getMemVal(0x4000));
+        mmu.setMemVal(0x2000, (byte) 0x05);
+        mmu.setMemVal(0x3000, (byte) 0x01);
+        assertEquals(0x05, mmu.getMemVal(0x4000));
+        assertEquals(0x01, mmu.getMemVal(0x4001));
+        assertEquals(0x00, mmu.getMemVal(0x0000));
+    }
+}
@@ -0,0 +1,89 @@
+package GameBoy.test;
+
+import GameBoy.Machine;
+import GameBoy.MachineScheduler;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MachineSchedulerTest {
+
+    /**
+     * Waits up to 10 seconds for a condition.
+     */
+    private static void await(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void pausedMachinesPark() throws InterruptedException {
+        MachineScheduler scheduler = new MachineScheduler();
+        List<MachineScheduler.Session> paused = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            paused.add(scheduler.start(new Machine(), true, true));
+        }
+        MachineScheduler.Session running = scheduler.start(new Machine(), false, false);
+        assertEquals(201, scheduler.getInstances());
+
+        await(() -> scheduler.getParked() == 200 && scheduler.getTotalFrames() > 0);
+        for (MachineScheduler.Session session : paused) {
+            assertEquals(0, session.getMachine().getFrames());
+        }
+
+        // A resumed machine runs again, a paused one stops
+        paused.get(0).resume();
+        await(() -> paused.get(0).getMachine().getFrames() > 0);
+        running.pause();
+        await(running::isParked);
+        long frames = running.getMachine().getFrames();
+        Thread.sleep(50);
+        assertEquals(frames, running.getMachine().getFrames());
+
+        scheduler.shutdown();
+        assertEquals(0, scheduler.getInstances());
+        assertNull(running.getError());
+    }
+
+    @Test
+    void haltedMachinesPark() throws Exception {
+        // Turns the LCD off, so no event is left to wake the CPU, then halts
+        Path rom = TestRoms.cartridge(0x00, 0x00,
+                0xF3,           // DI
+                0xAF,           // XOR A
+                0xE0, 0x40,     // LDH (0x40),A
+                0x76);          // HALT
+        Machine machine = new Machine();
+        machine.load(rom.toString());
+
+        MachineScheduler scheduler = new MachineScheduler();
+        MachineScheduler.Session session = scheduler.start(machine, false, false);
+        await(session::isParked);
+        long frames = machine.getFrames();
+        Thread.sleep(50);
+        assertEquals(frames, machine.getFrames());
+        assertTrue(machine.getCPU().isHalted());
+
+        scheduler.shutdown();
+        assertNull(session.getError());
+    }
+
+    @Test
+    void throttledMachinesRunAtRealTime() throws InterruptedException {
+        MachineScheduler scheduler = new MachineScheduler();
+        MachineScheduler.Session session = scheduler.start(new Machine(), true, false);
+        Thread.sleep(500);
+        scheduler.shutdown();
+
+        // About 30 frames in half a second, allowing for a slow start
+        long frames = session.getMachine().getFrames();
+        assertTrue(frames >= 10 && frames <= 35, "Ran " + frames + " frames");
+    }
+}
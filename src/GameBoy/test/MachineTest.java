@@ -0,0 +1,157 @@
+package GameBoy.test;
+
+import GameBoy.FramePacer;
+import GameBoy.Machine;
+import GameBoy.TestFarm;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MachineTest {
+    private static final String ROM = "test-roms/cpu_instrs/individual/06-ld r,r.gb";
+
+    /**
+     * Runs a ROM for a number of frames on a new machine.
+     *
+     * @return The final registers and cycle count
+     */
+    private static String run(int frames) {
+        Machine machine = new Machine();
+        machine.load(ROM);
+        for (int i = 0; i < frames; i++) {
+            machine.runFrame();
+        }
+        return machine.getRegisters() + " cycles: " + machine.getTotalCycles();
+    }
+
+    @Test
+    void machinesAreIndependent() throws Exception {
+        assumeTrue(new File(ROM).isFile(), "cpu_instrs test ROMs not found");
+
+        String expected = run(120);
+
+        // The same ROM on several threads at once must end up exactly where a lone machine does
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(pool.submit(() -> run(120)));
+            }
+            for (Future<String> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Loads a 32k cartridge which jumps from the entry point to code at 0x150.
+     */
+    private static Machine load(int... code) throws IOException {
+        Machine machine = new Machine();
+        machine.load(TestRoms.cartridge(0x00, 0x00, code).toString());
+        return machine;
+    }
+
+    @Test
+    void haltSkipsToInterrupt() throws IOException {
+        Machine machine = load(
+                0xF3,                           // DI
+                0x3E, 0x01, 0xE0, 0xFF,         // LD A,1; LDH (0xFF),A - enable V-Blank only
+                0xAF, 0xE0, 0x0F,               // XOR A; LDH (0x0F),A - nothing requested
+                0x76,                           // HALT
+                0xF0, 0x44,                     // LDH A,(0x44)
+                0xEA, 0x01, 0xC0,               // LD (0xC001),A - the scanline it woke on
+                0x3E, 0x42,                     // LD A,0x42
+                0xEA, 0x00, 0xC0,               // LD (0xC000),A
+                0x18, 0xFE);                    // JR -2
+
+        int steps = 0;
+        while (machine.getMMU().getMemVal(0xC000) != 0x42) {
+            machine.step();
+            assertTrue(++steps < 5000, "Still halted after " + steps + " steps");
+        }
+
+        // Woken by V-Blank with interrupts disabled, having skipped the visible scanlines in one go
+        assertEquals((byte) 144, machine.getMMU().getMemVal(0xC001));
+        assertTrue(machine.getHaltedCycles() > 144 * 400);
+        assertFalse(machine.getCPU().isHalted());
+    }
+
+    @Test
+    void haltsEveryFrameWithInterruptsEnabled() throws IOException {
+        Machine machine = load(
+                0x3E, 0x01, 0xE0, 0xFF,         // LD A,1; LDH (0xFF),A - enable V-Blank only
+                0xAF, 0xE0, 0x0F,               // XOR A; LDH (0x0F),A - nothing requested
+                0xFB,                           // EI
+                0x76,                           // HALT, until V-Blank is serviced
+                0x18, 0xFC);                    // JR -4
+
+        // Servicing V-Blank clears its request, so the CPU halts again until the next one
+        for (int frame = 0; frame < 10; frame++) {
+            long halted = machine.getHaltedCycles();
+            long instructions = machine.getInstructions();
+            machine.runFrame();
+            assertTrue(machine.getHaltedCycles() - halted > 60_000, "Frame " + frame);
+            assertTrue(machine.getInstructions() - instructions < 100, "Frame " + frame);
+        }
+        assertEquals(0, machine.getMMU().getMemVal(0xFF0F) & 0x01);
+    }
+
+    @Test
+    void gpuCatchesUpWhenRead() throws IOException {
+        Machine machine = load(
+                0xF3,                           // DI
+                0x18, 0xFE);                    // JR -2
+
+        // Nothing touches the GPU, so it falls behind until LY and STAT are read
+        while (machine.getTotalCycles() < 10 * 456 + 300) {
+            machine.step();
+        }
+        long time = machine.getMMU().getEvents().getTime();
+        long line = time / 456 % 154;
+        int mode = line >= 144 ? 1 : time % 456 < 80 ? 2 : time % 456 < 252 ? 3 : 0;
+        assertEquals((byte) line, machine.getMMU().getMemVal(0xFF44));
+        assertEquals(mode, machine.getMMU().getMemVal(0xFF41) & 0x3);
+    }
+
+    @Test
+    void haltBug() throws IOException {
+        Machine machine = load(
+                0xF3,                           // DI
+                0x3E, 0x01, 0xE0, 0xFF,         // LD A,1; LDH (0xFF),A
+                0xE0, 0x0F,                     // LDH (0x0F),A - V-Blank already requested
+                0xAF,                           // XOR A
+                0x76,                           // HALT, doesn't halt and fails to increment PC
+                0x3C,                           // INC A, executed twice
+                0xEA, 0x00, 0xC0,               // LD (0xC000),A
+                0x18, 0xFE);                    // JR -2
+
+        for (int i = 0; i < 10; i++) {
+            machine.step();
+        }
+        assertEquals(2, machine.getMMU().getMemVal(0xC000));
+        assertEquals(0, machine.getHaltedCycles());
+    }
+
+    @Test
+    @Disabled("halt_bug.gb needs CALL cc,nn to read its operands and XOR n and SBC A,n to be implemented")
+    void haltBugRom() {
+        String rom = "test-roms/halt_bug/halt_bug.gb";
+        assumeTrue(new File(rom).isFile(), "halt_bug test ROM not found");
+        TestFarm.Result result = TestFarm.run(Paths.get(rom), 30L * FramePacer.CLOCK_SPEED);
+        assertEquals(TestFarm.Status.PASSED, result.getStatus(), result.getMessage());
+    }
+}
@@ -0,0 +1,83 @@
+package GameBoy.test;
+
+import GameBoy.TestFarm;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestFarmTest {
+
+    /**
+     * @return Code sending text over the serial port
+     */
+    private static byte[] serial(String text) {
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        for (char c : text.toCharArray()) {
+            code.writeBytes(new byte[]{0x3E, (byte) c, (byte) 0xE0, 0x01,      // LD A,c; LDH (0x01),A
+                    0x3E, (byte) 0x81, (byte) 0xE0, 0x02});                    // LD A,0x81; LDH (0x02),A
+        }
+        return code.toByteArray();
+    }
+
+    /**
+     * @return Code storing a byte in memory
+     */
+    private static byte[] store(int adr, int val) {
+        return new byte[]{0x3E, (byte) val, (byte) 0xEA, (byte) adr, (byte) (adr >> 8)};   // LD A,val; LD (adr),A
+    }
+
+    @Test
+    void serialPass() throws IOException {
+        TestFarm.Result result = TestFarm.run(TestRoms.cartridge(0x00, 0x00, serial("01-test\n\nPassed\n")), 1_000_000);
+        assertEquals(TestFarm.Status.PASSED, result.getStatus());
+        assertEquals("01-test\n\nPassed\n", result.getOutput());
+        assertTrue(result.getCycles() > 0);
+    }
+
+    @Test
+    void memoryFail() throws IOException {
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        code.writeBytes(store(0x0000, 0x0A));   // Enable ERAM
+        code.writeBytes(store(0xA000, 0x80));
+        code.writeBytes(store(0xA001, 0xDE));
+        code.writeBytes(store(0xA002, 0xB0));
+        code.writeBytes(store(0xA003, 0x61));
+        code.writeBytes(store(0xA004, 'B'));
+        code.writeBytes(store(0xA005, 'a'));
+        code.writeBytes(store(0xA006, 'd'));
+        code.writeBytes(store(0xA000, 0x02));
+
+        TestFarm.Result result = TestFarm.run(TestRoms.cartridge(0x02, 0x02, code.toByteArray()), 1_000_000);
+        assertEquals(TestFarm.Status.FAILED, result.getStatus());
+        assertEquals("Failed with code 2: Bad", result.getMessage());
+    }
+
+    @Test
+    void stopDoesNotBlock() throws IOException {
+        // Nothing to wake it: STOP waits until the budget runs out
+        byte[] stop = {(byte) 0xF3, 0x10, 0x00};      // DI; STOP
+        TestFarm.Result result = TestFarm.run(TestRoms.cartridge(0x00, 0x00, stop), 1_000_000);
+        assertEquals(TestFarm.Status.TIMEOUT, result.getStatus());
+        assertTrue(result.getCycles() >= 1_000_000);
+
+        // Woken by the timer interrupt, it carries on after STOP
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        code.writeBytes(new byte[]{(byte) 0xF3,         // DI
+                0x3E, 0x05, (byte) 0xE0, 0x07,           // LD A,0x05; LDH (0x07),A  Timer on, every 16 cycles
+                0x3E, 0x04, (byte) 0xE0, (byte) 0xFF,    // LD A,0x04; LDH (0xFF),A  Timer interrupt enabled
+                0x10, 0x00});                            // STOP
+        code.writeBytes(serial("Passed\n"));
+        result = TestFarm.run(TestRoms.cartridge(0x00, 0x00, code.toByteArray()), 1_000_000);
+        assertEquals(TestFarm.Status.PASSED, result.getStatus());
+    }
+
+    @Test
+    void timeout() throws IOException {
+        TestFarm.Result result = TestFarm.run(TestRoms.cartridge(0x00, 0x00, new byte[0]), 100_000);
+        assertEquals(TestFarm.Status.TIMEOUT, result.getStatus());
+        assertTrue(result.getCycles() >= 100_000);
+    }
+}
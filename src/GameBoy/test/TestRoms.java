@@ -0,0 +1,97 @@
+package GameBoy.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Created on: 2026-10-18
+ * Filename: TestRoms
+ * Description: Builds small cartridges for tests and writes them to temporary files, which are deleted on exit along
+ * with any .sav file made next to them.
+ */
+final class TestRoms {
+
+    private TestRoms() {
+    }
+
+    /**
+     * Builds a cartridge which jumps from the entry point to code at 0x150 and loops forever when it's done. Every
+     * interrupt handler is a RETI.
+     *
+     * @param type    Cartridge type, header byte 0x147
+     * @param ramSize RAM size code, header byte 0x149
+     * @param banks   Number of 16k ROM banks, at least 2
+     * @param code    Code to put at 0x150
+     * @return The cartridge image
+     */
+    static byte[] image(int type, int ramSize, int banks, byte[] code) {
+        byte[] image = new byte[banks * 0x4000];
+        for (int vector = 0x40; vector <= 0x60; vector += 8) {
+            image[vector] = (byte) 0xD9;    // RETI
+        }
+        image[0x100] = (byte) 0xC3;         // JP 0x150
+        image[0x101] = 0x50;
+        image[0x102] = 0x01;
+        image[0x147] = (byte) type;
+        image[0x149] = (byte) ramSize;
+        System.arraycopy(code, 0, image, 0x150, code.length);
+        image[0x150 + code.length] = 0x18;          // JR -2
+        image[0x151 + code.length] = (byte) 0xFE;
+        return image;
+    }
+
+    /**
+     * Writes a cartridge image to a temporary file.
+     *
+     * @param image Cartridge image
+     * @return Path of the .gb file
+     */
+    static Path write(byte[] image) throws IOException {
+        File rom = File.createTempFile("gameboy", ".gb");
+        rom.deleteOnExit();
+        save(rom.toPath()).toFile().deleteOnExit();
+        Files.write(rom.toPath(), image);
+        return rom.toPath();
+    }
+
+    /**
+     * Writes a 32k cartridge running code from 0x150. See image.
+     *
+     * @return Path of the .gb file
+     */
+    static Path cartridge(int type, int ramSize, byte[] code) throws IOException {
+        return write(image(type, ramSize, 2, code));
+    }
+
+    /**
+     * Writes a 32k cartridge running code from 0x150, given as unsigned bytes. See image.
+     *
+     * @return Path of the .gb file
+     */
+    static Path cartridge(int type, int ramSize, int... code) throws IOException {
+        return cartridge(type, ramSize, bytes(code));
+    }
+
+    /**
+     * @param rom Path of a .gb file
+     * @return Path of the .sav file the MMU keeps battery backed RAM in for it
+     */
+    static Path save(Path rom) {
+        return Paths.get(rom.toString().replaceFirst("\\.gb$", ".sav"));
+    }
+
+    /**
+     * @param code Unsigned bytes
+     * @return The same bytes
+     */
+    static byte[] bytes(int... code) {
+        byte[] bytes = new byte[code.length];
+        for (int i = 0; i < code.length; i++) {
+            bytes[i] = (byte) code[i];
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,49 @@
+package GameBoy.test;
+
+import GameBoy.MMU;
+import GameBoy.Machine;
+import GameBoy.TileCache;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TileCacheTest {
+
+    @Test
+    void decodesRows() {
+        Machine machine = new Machine();
+        MMU mmu = machine.getMMU();
+        TileCache tiles = machine.getGPU().getTileCache();
+
+        // Row 0 of tile 1: colours 3, 2, 1, 0, 0, 0, 0, 1
+        mmu.setMemVal(0x8010, (byte) 0b10100001);
+        mmu.setMemVal(0x8011, (byte) 0b11000000);
+
+        int row = tiles.getRow(1, 0);
+        assertArrayEquals(new byte[]{3, 2, 1, 0, 0, 0, 0, 1}, slice(tiles.getPixels(), row));
+        assertArrayEquals(new byte[]{1, 0, 0, 0, 0, 1, 2, 3}, slice(tiles.getFlippedPixels(), row));
+    }
+
+    @Test
+    void writesInvalidateTile() {
+        Machine machine = new Machine();
+        MMU mmu = machine.getMMU();
+        TileCache tiles = machine.getGPU().getTileCache();
+
+        assertEquals(0, tiles.getPixels()[tiles.getRow(383, 7)]);
+
+        // Last row of the last tile, 0x97FE - 0x97FF
+        mmu.setMemVal(0x97FF, (byte) 0x80);
+        assertEquals(2, tiles.getPixels()[tiles.getRow(383, 7)]);
+
+        // The tile maps aren't tile data
+        mmu.setMemVal(0x9800, (byte) 0xFF);
+        assertEquals(2, tiles.getPixels()[tiles.getRow(383, 7)]);
+    }
+
+    private static byte[] slice(byte[] pixels, int offset) {
+        byte[] row = new byte[8];
+        System.arraycopy(pixels, offset, row, 0, 8);
+        return row;
+    }
+}